@@ -21,16 +21,46 @@ import org.hellochange.cli.proc.CliProcessor;
  *
  */
 public class Main {
-
   /**
    * Program starting point.
    * 
-   * @param args - command line arguments if any.
+   * @param args - command line arguments if any: <code>--replay &lt;log file&gt;</code> replays transaction log 
+   * against empty cash register instead of running CLI; <code>--primary &lt;port&gt;</code> runs CLI replicating the register 
+   * to the replicas connecting to the local port; <code>--replica &lt;host:port&gt;</code> runs read-only CLI against 
+   * the register replicated from the primary; <code>--loadtest &lt;operations per second&gt; &lt;seconds&gt;</code> runs 
+   * the load test against cash register with initial float and prints out latencies.
+   * <p>
+   * Those modes live in {@link ToolModes}, so the interactive CLI started by scripts does not load their classes.
    */
-  public static void main(String[] args) throws IOException {
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if ((args.length == 2) && "--replay".equals(args[0])) {
+      ToolModes.replay(args[1]);
+      return;
+    }
+    if ((args.length == 3) && "--loadtest".equals(args[0])) {
+      ToolModes.loadTest(Double.parseDouble(args[1]), Long.parseLong(args[2]));
+      return;
+    }
+    if ((args.length == 2) && "--primary".equals(args[0])) {
+      ToolModes.runPrimary(Integer.parseInt(args[1]));
+      return;
+    }
+    if ((args.length == 2) && "--replica".equals(args[0])) {
+      ToolModes.runReplica(args[1]);
+      return;
+    }
+
     // 1: Create empty cash register
-    final CashRegister cashRegister = new SimpleCashRegister();
-    
+    runCli(new SimpleCashRegister());
+  }
+
+  /**
+   * Runs CLI against the cash register passed in.
+   * 
+   * @param cashRegister - cash register.
+   * @throws IOException - in case of I/O error.
+   */
+  static void runCli(final CashRegister cashRegister) throws IOException {
     // 2: setup CLI interface
     final CliProcessor cli = new CliProcessor(
         QuitCommand.INSTANCE, 
@@ -42,4 +72,4 @@ public class Main {
     // 3: run CLI
     cli.run();
   }
-}
\ No newline at end of file
+}
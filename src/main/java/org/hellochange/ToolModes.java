@@ -0,0 +1,135 @@
+/**
+ * 
+ */
+package org.hellochange;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.SimpleCashRegister;
+import org.hellochange.cash.event.RegisterEventRing;
+import org.hellochange.cli.QuitCommand;
+import org.hellochange.cli.ShowCommand;
+import org.hellochange.cli.proc.CliProcessor;
+import org.hellochange.load.AmountDistributions;
+import org.hellochange.load.LoadOperation;
+import org.hellochange.load.LoadReport;
+import org.hellochange.load.LoadTest;
+import org.hellochange.load.PaymentPattern;
+import org.hellochange.load.Workload;
+import org.hellochange.replay.ReplayEngine;
+import org.hellochange.replay.ReplayListener;
+import org.hellochange.replay.ReplayReport;
+import org.hellochange.replication.ReplicaCashRegister;
+import org.hellochange.replication.ReplicationPrimary;
+
+/**
+ * Modes of the program other than the interactive CLI, started by {@link Main} from the command line arguments.
+ * 
+ * @author vladimir
+ *
+ */
+final class ToolModes {
+  /** Capacity of the event ring of the primary register. */
+  private static final int PRIMARY_RING_CAPACITY = 4096;
+  /** Time to wait for the snapshot from the primary for. */
+  private static final long REPLICA_SNAPSHOT_TIMEOUT_SECONDS = 10;
+  /** Amount of bills of every denomination in the register the load test starts with. */
+  private static final int LOAD_TEST_FLOAT_BILLS = 20;
+
+  /**
+   * Hidden constructor.
+   */
+  private ToolModes() {
+    // nothing to do here
+  }
+
+  /**
+   * Runs CLI against empty cash register replicated to the replicas connecting to the local port.
+   * 
+   * @param port - local port to listen to.
+   * @throws IOException - in case of I/O error.
+   */
+  static void runPrimary(final int port) throws IOException {
+    final RegisterEventRing events = new RegisterEventRing(PRIMARY_RING_CAPACITY);
+    try (final ReplicationPrimary primary = new ReplicationPrimary(events, Cash.EMPTY, port)) {
+      primary.start();
+      Main.runCli(new SimpleCashRegister(Cash.EMPTY, events));
+    }
+  }
+
+  /**
+   * Runs read-only CLI against the cash register replicated from the primary.
+   * 
+   * @param primaryAddress - primary address as <code>host:port</code>.
+   * @throws IOException - in case of I/O error.
+   * @throws InterruptedException - if interrupted while waiting for the snapshot.
+   */
+  static void runReplica(final String primaryAddress) throws IOException, InterruptedException {
+    final int separator = primaryAddress.lastIndexOf(':');
+    if (separator < 0) {
+      throw new IllegalArgumentException(String.format("Primary address must be host:port, but was: %1$s", primaryAddress));
+    }
+
+    try (final ReplicaCashRegister replica = new ReplicaCashRegister(primaryAddress.substring(0, separator), 
+        Integer.parseInt(primaryAddress.substring(separator + 1)))) {
+      if (!replica.awaitSequence(0, REPLICA_SNAPSHOT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        throw new IOException("No snapshot has been received from the primary.");
+      }
+      new CliProcessor(QuitCommand.INSTANCE, new ShowCommand(replica)).run();
+    }
+  }
+
+  /**
+   * Runs the load test of the default traffic mix against cash register with initial float of 20 bills of every denomination.
+   * 
+   * @param rate - operations per second.
+   * @param seconds - duration of the test in seconds.
+   * @throws InterruptedException - if interrupted while waiting for the test.
+   */
+  static void loadTest(final double rate, final long seconds) throws InterruptedException {
+    final Map<BillDenomination, Integer> initialFloat = new HashMap<>();
+    for (final BillDenomination billDenomination : BillDenomination.values()) {
+      initialFloat.put(billDenomination, LOAD_TEST_FLOAT_BILLS);
+    }
+    final Map<LoadOperation, Integer> mix = new EnumMap<>(LoadOperation.class);
+    mix.put(LoadOperation.PUT, 30);
+    mix.put(LoadOperation.TAKE, 5);
+    mix.put(LoadOperation.CHANGE, 55);
+    mix.put(LoadOperation.SHOW, 10);
+
+    final LoadTest loadTest = new LoadTest(new SimpleCashRegister(Cash.newInstance(initialFloat)), 
+        new Workload(mix, AmountDistributions.logNormal(12, 1, 200), PaymentPattern.BALANCED, 3));
+    final LoadReport report = loadTest.run(rate, seconds, TimeUnit.SECONDS, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    System.out.println(report.toString());
+  }
+
+  /**
+   * Replays transaction log against empty cash register and prints out mismatches and summary.
+   * 
+   * @param logFile - transaction log file name.
+   * @throws IOException - in case of I/O error.
+   */
+  static void replay(final String logFile) throws IOException {
+    final ReplayEngine replayEngine = new ReplayEngine(new SimpleCashRegister(), new ReplayListener() {
+      @Override
+      public void onMismatch(final long lineNumber, final String expected, final String actual) {
+        System.out.println(String.format("line %1$d: expected [%2$s] but was [%3$s]", lineNumber, expected, actual));
+      }
+
+      @Override
+      public void onError(final long lineNumber, final String message) {
+        System.out.println(String.format("line %1$d: %2$s", lineNumber, message));
+      }
+    });
+
+    final ReplayReport report = replayEngine.replay(Paths.get(logFile));
+    System.out.println(report.toString());
+  }
+}
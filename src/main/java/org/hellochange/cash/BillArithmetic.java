@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+/**
+ * Element-wise arithmetic on amounts of bills indexed by denomination ordinal, which cash objects are built from.
+ * <p>
+ * The scalar implementation works on any JVM. The SIMD one, built on <code>jdk.incubator.vector</code>, is compiled 
+ * into the multi-release jar by the <code>vector</code> build profile and is only picked up on Java 16 or later with 
+ * the incubator module added, e.g. <code>java --add-modules jdk.incubator.vector -jar hello-change.jar</code>.
+ * 
+ * @author vladimir
+ *
+ */
+interface BillArithmetic {
+  /** Name of the SIMD implementation class. */
+  String VECTOR_IMPLEMENTATION = "org.hellochange.cash.VectorBillArithmetic";
+
+  /**
+   * Adds amounts of bills element by element.
+   * 
+   * @param left - amounts of bills.
+   * @param right - amounts of bills to add, of the same length.
+   * @param result - array to put the sums to, of the same length, may be one of the arguments.
+   */
+  void add(int[] left, int[] right, int[] result);
+
+  /**
+   * Subtracts amounts of bills element by element.
+   * 
+   * @param left - amounts of bills.
+   * @param right - amounts of bills to subtract, of the same length.
+   * @param result - array to put the differences to, of the same length, may be one of the arguments.
+   * @return true if the result is valid, false if some amount of bills has gone negative; the result is undefined then.
+   */
+  boolean subtract(int[] left, int[] right, int[] result);
+
+  /**
+   * Computes total amount of money.
+   * 
+   * @param billsAmounts - amounts of bills.
+   * @param denominations - values of the denominations, of the same length.
+   * @return sum of amounts of bills multiplied by the values of their denominations.
+   */
+  long dot(int[] billsAmounts, int[] denominations);
+
+  /**
+   * Creates the fastest implementation available on this JVM.
+   * 
+   * @return SIMD implementation if the vector API is available, scalar one otherwise.
+   */
+  static BillArithmetic load() {
+    try {
+      return (BillArithmetic) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // Java 8 runtime, jar built without the vector profile or incubator module not added
+      return new ScalarBillArithmetic();
+    }
+  }
+}
@@ -4,10 +4,9 @@
 package org.hellochange.cash;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-import com.google.common.collect.Lists;
-
 /**
  * Represents supported bill denominations.
  * 
@@ -21,7 +20,7 @@ public enum BillDenomination {
   private final int denomination;
   
   /** Bill denominations in  their reversed order */
-  public final static List<BillDenomination> denominationsReversed = Lists.reverse(Arrays.asList(values()));
+  public final static List<BillDenomination> denominationsReversed = Collections.unmodifiableList(Arrays.asList(reverse(values())));
 
   /**
    * Constructor.
@@ -40,4 +39,19 @@ public enum BillDenomination {
   public int getDenomination() {
     return this.denomination;
   }
+
+  /**
+   * Reverses the array of denominations in place.
+   * 
+   * @param denominations - denominations to reverse.
+   * @return the array passed in.
+   */
+  private static BillDenomination[] reverse(final BillDenomination[] denominations) {
+    for (int i = 0, j = denominations.length - 1; i < j; i++, j--) {
+      final BillDenomination denomination = denominations[i];
+      denominations[i] = denominations[j];
+      denominations[j] = denomination;
+    }
+    return denominations;
+  }
 }
\ No newline at end of file
@@ -3,24 +3,57 @@
  */
 package org.hellochange.cash;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import org.apache.commons.collections4.MapUtils;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Represents cash as the immutable value object class with a combination of certain amount of bills of different denominations enclosed. Contains valid amount of bills of supported denominations.
+ * <p>
+ * Small cash objects (no more than 7 bills of every denomination) are interned: there is exactly one 
+ * canonical instance for every such combination of bills, so they are compared by reference and cost no allocation once created.
  * 
  * @author vladimir
  */
 public final class Cash {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Values of the denominations by ordinal. */
+  private static final int[] DENOMINATION_VALUES = new int[DENOMINATIONS.length];
+
+  static {
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      DENOMINATION_VALUES[d] = DENOMINATIONS[d].getDenomination();
+    }
+  }
+
+  /** Arithmetic on amounts of bills. */
+  private static final BillArithmetic ARITHMETIC = BillArithmetic.load();
+
+  /** Amount of bits per denomination used to pack contents of a small cash object into its interning key. */
+  private static final int INTERN_BITS = 3;
+
+  /** Maximum amount of bills of each denomination for the cash object to be interned. */
+  private static final int INTERN_MAX_BILLS = (1 << INTERN_BITS) - 1;
+
+  /** Canonical instances of small cash objects indexed by their packed interning key. Populated lazily. */
+  private static final AtomicReferenceArray<Cash> INTERNED = new AtomicReferenceArray<>(1 << (INTERN_BITS * DENOMINATIONS.length));
+
   /** Special case of empty cash object. */
   public static final Cash EMPTY = new Cash();
 
-  /** Contents. */
-  private final Map<BillDenomination, Integer> contents;
+  static {
+    INTERNED.set(0, EMPTY);
+  }
+
+  /** Amounts of bills by denomination ordinal. */
+  private final int[] billsAmounts;
+
+  /** Contents as a map of positive amounts of bills, created lazily. */
+  private Map<BillDenomination, Integer> contents;
 
   /** Total amount of money. */
   private final int moneyAmount;
@@ -28,6 +61,15 @@ public final class Cash {
   /** Total amount of bills. */
   private final int billsAmount;
 
+  /** Whether this is the canonical instance for its contents. */
+  private final boolean interned;
+
+  /** Cached string representation, computed lazily. Shared by all the users of interned instances. */
+  private String rendered;
+
+  /** Cached hash code, computed lazily. */
+  private int hash;
+
   /**
    * Factory method.
    * 
@@ -35,11 +77,11 @@ public final class Cash {
    * @return class instance.
    */
   public static Cash newInstance(final Map<BillDenomination, Integer> contents) {
-    if (MapUtils.isEmpty(contents)) {
+    if ((contents == null) || contents.isEmpty()) {
       return EMPTY;
     }
 
-    final Map<BillDenomination, Integer> filteredContents = new HashMap<>();
+    final int[] billsAmounts = new int[DENOMINATIONS.length];
 
     for (Map.Entry<BillDenomination, Integer> nextEntry : contents.entrySet()) {
       final int amount = nextEntry.getValue();
@@ -48,18 +90,10 @@ public final class Cash {
         throw new IllegalArgumentException(String.format("Negative amount of bills [%1$d] was passed in" + " as input parameter for denomination %2$s", amount, denomination));
       }
 
-      if (amount == 0) {
-        continue;
-      }
-
-      filteredContents.put(denomination, amount);
-    }
-
-    if (MapUtils.isEmpty(filteredContents)) {
-      return EMPTY;
+      billsAmounts[denomination.ordinal()] = amount;
     }
 
-    return new Cash(filteredContents);
+    return valueOf(billsAmounts);
   }
   
   /**
@@ -77,41 +111,98 @@ public final class Cash {
       throw new IllegalArgumentException(String.format("Zero or negative value [%1$d] has been passed in as required parameter: amount", amount));
     }
     
-    final Map<BillDenomination, Integer> resultContents = new HashMap<>();
-    resultContents.put(billDenomination, amount);
+    final int[] resultAmounts = new int[DENOMINATIONS.length];
+    resultAmounts[billDenomination.ordinal()] = amount;
     
-    return new Cash(resultContents);
+    return valueOf(resultAmounts);
+  }
+
+  /**
+   * Returns cash object for the contents passed in: canonical instance for small contents and a new one otherwise.
+   * 
+   * @param billsAmounts - amounts of bills by denomination ordinal to create cash object for. Must not be shared.
+   * @return class instance.
+   */
+  static Cash valueOf(final int[] billsAmounts) {
+    final int key = internKey(billsAmounts);
+    if (key < 0) {
+      return new Cash(billsAmounts, false);
+    }
+
+    final Cash interned = INTERNED.get(key);
+    if (interned != null) {
+      return interned;
+    }
+
+    final Cash candidate = new Cash(billsAmounts, true);
+    return INTERNED.compareAndSet(key, null, candidate) ? candidate : INTERNED.get(key);
+  }
+
+  /**
+   * Packs the amounts of bills passed in into the interning key.
+   * 
+   * @param billsAmounts - amounts of bills to pack.
+   * @return interning key or -1 if the contents is too large to be interned.
+   */
+  private static int internKey(final int[] billsAmounts) {
+    int key = 0;
+    for (int d = 0; d < billsAmounts.length; d++) {
+      final int amount = billsAmounts[d];
+      if (amount > INTERN_MAX_BILLS) {
+        return -1;
+      }
+      key |= amount << (d * INTERN_BITS);
+    }
+    return key;
   }
 
   /**
    * Default constructor that produces empty cash object.
    */
   private Cash() {
-    this.contents = Collections.emptyMap();
+    this.billsAmounts = new int[DENOMINATIONS.length];
     this.moneyAmount = 0;
     this.billsAmount = 0;
+    this.interned = true;
   }
 
   /**
    * Constructor.
    * 
-   * @param contents - bills to create cash object for.
+   * @param billsAmounts - amounts of bills by denomination ordinal to create cash object for.
+   * @param interned - whether this is the canonical instance for its contents.
    */
-  private Cash(final Map<BillDenomination, Integer> contents) {
-    this.contents = contents;
-    this.billsAmount = this.contents.entrySet().stream().collect(Collectors.summingInt(
-        entry -> entry.getValue()));
-    this.moneyAmount = this.contents.entrySet().stream().collect(Collectors.summingInt(
-        entry -> entry.getValue() * entry.getKey().getDenomination()));
+  private Cash(final int[] billsAmounts, final boolean interned) {
+    this.billsAmounts = billsAmounts;
+    this.interned = interned;
+    int billsAmount = 0;
+    for (final int amount : billsAmounts) {
+      billsAmount += amount;
+    }
+    this.billsAmount = billsAmount;
+    this.moneyAmount = (int) ARITHMETIC.dot(billsAmounts, DENOMINATION_VALUES);
   }
 
   /**
    * Gets the actual bill denominations and their amount for this cash object.
+   * <p>
+   * Created on the first call and cached: benign data race as in {@link #hashCode()}.
    * 
    * @return the actual bill denominations and their amount for this cash object.
    */
   public Map<BillDenomination, Integer> getContents() {
-    return Collections.unmodifiableMap(this.contents);
+    Map<BillDenomination, Integer> result = this.contents;
+    if (result == null) {
+      final Map<BillDenomination, Integer> positiveAmounts = new HashMap<>();
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        if (this.billsAmounts[d] > 0) {
+          positiveAmounts.put(DENOMINATIONS[d], this.billsAmounts[d]);
+        }
+      }
+      result = Collections.unmodifiableMap(positiveAmounts);
+      this.contents = result;
+    }
+    return result;
   }
 
   /**
@@ -132,6 +223,16 @@ public final class Cash {
     return this.billsAmount;
   }
   
+  /**
+   * Get amount of bills of the denomination passed in for this cash object.
+   * 
+   * @param billDenomination - bills denomination.
+   * @return amount of bills of the denomination passed in.
+   */
+  public int getBillsAmount(final BillDenomination billDenomination) {
+    return this.billsAmounts[billDenomination.ordinal()];
+  }
+  
   /**
    * Adds passed in cash to this cash object and return the resulting cash object.
    * 
@@ -143,22 +244,9 @@ public final class Cash {
       throw new IllegalArgumentException("Null has been passed in as required parameter: anotherCash");
     }
 
-    final Map<BillDenomination, Integer> resultContents = new HashMap<>();
-    for (BillDenomination nextDenomination : BillDenomination.values()) {
-      final Integer thisAmount = this.contents.get(nextDenomination);
-      final Integer otherAmount = anotherCash.contents.get(nextDenomination);
-
-      if ((thisAmount == null) && (otherAmount == null)) {
-        continue;
-      }
-
-      final int thisAmountToUse = thisAmount != null ? thisAmount : 0;
-      final int otherAmountToUse = otherAmount != null ? otherAmount : 0;
-
-      resultContents.put(nextDenomination, thisAmountToUse + otherAmountToUse);
-    }
-
-    return new Cash(resultContents);
+    final int[] resultAmounts = new int[DENOMINATIONS.length];
+    ARITHMETIC.add(this.billsAmounts, anotherCash.billsAmounts, resultAmounts);
+    return valueOf(resultAmounts);
   }
   
   /**
@@ -175,16 +263,13 @@ public final class Cash {
     if(amount < 0) {
       throw new IllegalArgumentException(String.format("Negative value [%1$d] has been passed in as required parameter: amount", amount));
     }
+    if (amount == 0) {
+      return this;
+    }
     
-    final Map<BillDenomination, Integer> resultContents = new HashMap<>();
-    resultContents.putAll(contents);
-    
-    final Integer origValue = resultContents.get(billDenomination);
-    final int origValueToUse = origValue != null ? origValue : 0;
-    final Integer newValue = origValueToUse + amount;
-    
-    resultContents.put(billDenomination, newValue);
-    return new Cash(resultContents);
+    final int[] resultAmounts = this.billsAmounts.clone();
+    resultAmounts[billDenomination.ordinal()] += amount;
+    return valueOf(resultAmounts);
   }
 
   /**
@@ -199,30 +284,17 @@ public final class Cash {
       throw new IllegalArgumentException("Null has been passed in as required parameter: anotherCash");
     }
 
-    final Map<BillDenomination, Integer> resultContents = new HashMap<>();
-    for (BillDenomination nextDenomination : BillDenomination.values()) {
-      final Integer thisAmount = this.contents.get(nextDenomination);
-      final Integer otherAmount = anotherCash.contents.get(nextDenomination);
-
-      if ((thisAmount == null) && (otherAmount == null)) {
-        continue;
-      }
-
-      final int thisAmountToUse = thisAmount != null ? thisAmount : 0;
-      final int otherAmountToUse = otherAmount != null ? otherAmount : 0;
-
-      if (thisAmountToUse < otherAmountToUse) {
-        throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", nextDenomination, otherAmountToUse, thisAmountToUse);
-      }
-
-      if (thisAmountToUse == otherAmountToUse) {
-        continue;
+    final int[] resultAmounts = new int[DENOMINATIONS.length];
+    if (!ARITHMETIC.subtract(this.billsAmounts, anotherCash.billsAmounts, resultAmounts)) {
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        if (this.billsAmounts[d] < anotherCash.billsAmounts[d]) {
+          throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", 
+              DENOMINATIONS[d], anotherCash.billsAmounts[d], this.billsAmounts[d]);
+        }
       }
-
-      resultContents.put(nextDenomination, thisAmountToUse - otherAmountToUse);
     }
 
-    return resultContents.isEmpty() ? EMPTY : new Cash(resultContents);
+    return valueOf(resultAmounts);
   }
   
   /**
@@ -240,52 +312,61 @@ public final class Cash {
       throw new IllegalArgumentException(String.format("Negative value [%1$d] has been passed in as required parameter: amount", amount));
     }
     
-    final Map<BillDenomination, Integer> resultContents = new HashMap<>();
-    resultContents.putAll(contents);
-    
-    final Integer origValue = resultContents.get(billDenomination);
-    final int origValueToUse = origValue != null ? origValue : 0;
-    
-    if (origValueToUse < amount) {
-      throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", billDenomination, amount, origValueToUse);
-    }
-    
-    if (origValueToUse == amount) {
-      resultContents.remove(billDenomination);
-      return resultContents.isEmpty() ? EMPTY : new Cash(resultContents);
+    final int origValue = this.billsAmounts[billDenomination.ordinal()];
+    if (origValue < amount) {
+      throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", billDenomination, amount, origValue);
     }
     
-    final Integer newValue = origValueToUse - amount;
-    
-    resultContents.put(billDenomination, newValue);
-    return new Cash(resultContents);
+    final int[] resultAmounts = this.billsAmounts.clone();
+    resultAmounts[billDenomination.ordinal()] -= amount;
+    return valueOf(resultAmounts);
   }  
 
   /**
    * {@inheritDoc}
+   * <p>
+   * Computed once and cached: benign data race as in {@link String#hashCode()} since strings are immutable.
    */
   @Override  
   public String toString() {
+    String output = this.rendered;
+    if (output == null) {
+      output = render();
+      this.rendered = output;
+    }
+    return output;
+  }  
+  
+  /**
+   * Renders this cash object as its total amount of money followed by amounts of bills starting with the largest denomination.
+   * 
+   * @return string representation of this cash object.
+   */
+  private String render() {
     final StringBuilder output = new StringBuilder();
-    output.append(String.format("$%1$d", this.getMoneyAmount()));
+    output.append('$').append(this.getMoneyAmount());
     
     for (int i = 0; i < BillDenomination.denominationsReversed.size(); i++) {
-      final Integer billsNumber = this.contents.get(BillDenomination.denominationsReversed.get(i));
-      final int billsNumberToUse = billsNumber != null ? billsNumber : 0;
-      output.append(String.format(" %1$d", billsNumberToUse));
+      output.append(' ').append(getBillsAmount(BillDenomination.denominationsReversed.get(i)));
     }
     
     return output.toString();
-  }  
+  }
   
   /**
    * {@inheritDoc}
+   * <p>
+   * Computed once and cached: benign data race as in {@link String#hashCode()}.
    */
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + contents.hashCode();
+    int result = this.hash;
+    if (result == 0) {
+      final int prime = 31;
+      result = 1;
+      result = prime * result + Arrays.hashCode(this.billsAmounts);
+      this.hash = result;
+    }
     return result;
   }
 
@@ -304,7 +385,11 @@ public final class Cash {
       return false;
     }
     Cash other = (Cash) obj;
-    if (!contents.equals(other.contents)) {
+    // canonical instances are equal by reference only
+    if (this.interned || other.interned) {
+      return false;
+    }
+    if (!Arrays.equals(this.billsAmounts, other.billsAmounts)) {
       return false;
     }
     return true;
@@ -0,0 +1,124 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+ * Mutable sum of many cash objects kept in primitive counters, so summing does not create intermediate cash objects: 
+ * the immutable {@link Cash} is created once at the end. Not thread-safe: parallel sums use an accumulator per thread 
+ * and merge them, as {@link #summing()} does.
+ * 
+ * @author vladimir
+ *
+ */
+public final class CashAccumulator {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Amounts of bills by denomination ordinal. */
+  private final long[] billsAmounts = new long[DENOMINATIONS.length];
+
+  /**
+   * Creates collector which sums cash objects of a stream, sequential or parallel.
+   * 
+   * @return collector.
+   */
+  public static Collector<Cash, CashAccumulator, Cash> summing() {
+    return Collector.of(CashAccumulator::new, CashAccumulator::add, CashAccumulator::merge, CashAccumulator::toCash, 
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Adds the cash passed in.
+   * 
+   * @param cash - cash to add.
+   * @return this accumulator.
+   */
+  public CashAccumulator add(final Cash cash) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      this.billsAmounts[d] += cash.getBillsAmount(DENOMINATIONS[d]);
+    }
+    return this;
+  }
+
+  /**
+   * Adds the bills passed in.
+   * 
+   * @param billDenomination - denomination of the bills to add.
+   * @param amount - amount of bills to add.
+   * @return this accumulator.
+   */
+  public CashAccumulator addBills(final BillDenomination billDenomination, final long amount) {
+    if (billDenomination == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: billDenomination");
+    }
+    if (amount < 0) {
+      throw new IllegalArgumentException(String.format("Negative value [%1$d] has been passed in as required parameter: amount", amount));
+    }
+
+    this.billsAmounts[billDenomination.ordinal()] += amount;
+    return this;
+  }
+
+  /**
+   * Adds everything accumulated by another accumulator.
+   * 
+   * @param another - accumulator to add.
+   * @return this accumulator.
+   */
+  public CashAccumulator merge(final CashAccumulator another) {
+    if (another == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: another");
+    }
+
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      this.billsAmounts[d] += another.billsAmounts[d];
+    }
+    return this;
+  }
+
+  /**
+   * Gets amount of bills of the denomination accumulated.
+   * 
+   * @param billDenomination - bills denomination.
+   * @return amount of bills.
+   */
+  public long getBillsAmount(final BillDenomination billDenomination) {
+    return this.billsAmounts[billDenomination.ordinal()];
+  }
+
+  /**
+   * Gets total amount of money accumulated.
+   * 
+   * @return amount of money.
+   */
+  public long getMoneyAmount() {
+    long moneyAmount = 0;
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      moneyAmount += this.billsAmounts[d] * DENOMINATIONS[d].getDenomination();
+    }
+    return moneyAmount;
+  }
+
+  /**
+   * Creates cash object of everything accumulated.
+   * 
+   * @return cash object.
+   * @throws ArithmeticException - if amount of bills of some denomination does not fit in cash object.
+   */
+  public Cash toCash() {
+    final Map<BillDenomination, Integer> contents = new HashMap<>();
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      contents.put(DENOMINATIONS[d], Math.toIntExact(this.billsAmounts[d]));
+    }
+    return Cash.newInstance(contents);
+  }
+}
@@ -3,6 +3,8 @@
  */
 package org.hellochange.cash;
 
+import org.hellochange.cash.change.ChangeTrace;
+
 /**
  * Defines the API of a Cash Register.
  * 
@@ -41,4 +43,24 @@ public interface CashRegister {
    * @return removed cash from register that corresponds to the change amount if such cash is available. Otherwise null.
    */
   Cash change(Integer amount);
+
+  /**
+   * Computes, removes and returns the change as {@link #change(Integer)} does and explains how it has been computed.
+   * <p>
+   * Default implementation records the time the whole request has taken.
+   * 
+   * @param amount - change amount.
+   * @param trace - trace to record the computation to, null if it is not traced.
+   * @return removed cash from register that corresponds to the change amount if such cash is available. Otherwise null.
+   */
+  default Cash change(final Integer amount, final ChangeTrace trace) {
+    if (trace == null) {
+      return change(amount);
+    }
+
+    final long start = System.nanoTime();
+    final Cash change = change(amount);
+    trace.addPhaseNanos("change", System.nanoTime() - start);
+    return change;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+/**
+ * Contents of the register together with its version.
+ * 
+ * @author vladimir
+ *
+ */
+public final class CashSnapshot {
+  /** Contents of the register. */
+  private final Cash contents;
+  /** Version of the register. */
+  private final long version;
+
+  /**
+   * Constructor.
+   * 
+   * @param contents - contents of the register.
+   * @param version - version of the register.
+   */
+  public CashSnapshot(final Cash contents, final long version) {
+    if (contents == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: contents");
+    }
+
+    this.contents = contents;
+    this.version = version;
+  }
+
+  /**
+   * Gets contents of the register.
+   * 
+   * @return contents of the register.
+   */
+  public Cash getContents() {
+    return this.contents;
+  }
+
+  /**
+   * Gets version of the register.
+   * 
+   * @return version of the register.
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "v" + this.version + " " + this.contents;
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+/**
+ * Helper methods for cash packed into a single 64-bit word: {@value #BITS} bits of bills amount per denomination 
+ * with the least significant bits used by the smallest denomination.
+ * 
+ * @author vladimir
+ *
+ */
+public final class PackedCash {
+  /** Amount of bits per denomination. */
+  public static final int BITS = 12;
+
+  /** Maximum amount of bills per denomination which can be packed. */
+  public static final int MAX_BILLS = (1 << BITS) - 1;
+
+  /** Marker value for cash which can not be packed. */
+  public static final long OVERFLOW = -1L;
+
+  /**
+   * Hidden constructor.
+   */
+  private PackedCash() {
+    // nothing to do here
+  }
+
+  /**
+   * Packs cash object passed in.
+   * 
+   * @param cash - cash to pack.
+   * @return packed cash or {@link #OVERFLOW} if there are too many bills of some denomination.
+   */
+  public static long pack(final Cash cash) {
+    long packed = 0;
+    for (BillDenomination nextDenomination : BillDenomination.values()) {
+      final int amount = cash.getBillsAmount(nextDenomination);
+      if (amount > MAX_BILLS) {
+        return OVERFLOW;
+      }
+      packed |= ((long) amount) << shift(nextDenomination);
+    }
+    return packed;
+  }
+
+  /**
+   * Unpacks cash object.
+   * 
+   * @param packed - packed cash.
+   * @return cash object.
+   */
+  public static Cash unpack(final long packed) {
+    if (packed == 0) {
+      return Cash.EMPTY;
+    }
+
+    final BillDenomination[] denominations = BillDenomination.values();
+    final int[] billsAmounts = new int[denominations.length];
+    for (BillDenomination nextDenomination : denominations) {
+      billsAmounts[nextDenomination.ordinal()] = getBillsAmount(packed, nextDenomination);
+    }
+    return Cash.valueOf(billsAmounts);
+  }
+
+  /**
+   * Gets amount of bills of certain denomination from the packed cash.
+   * 
+   * @param packed - packed cash.
+   * @param billDenomination - bills denomination.
+   * @return amount of bills.
+   */
+  public static int getBillsAmount(final long packed, final BillDenomination billDenomination) {
+    return (int) ((packed >>> shift(billDenomination)) & MAX_BILLS);
+  }
+
+  /**
+   * Adds two packed cash values.
+   * 
+   * @param packed - packed cash.
+   * @param anotherPacked - another packed cash to add.
+   * @return packed sum or {@link #OVERFLOW} if there are too many bills of some denomination in the sum.
+   */
+  public static long add(final long packed, final long anotherPacked) {
+    for (BillDenomination nextDenomination : BillDenomination.values()) {
+      if (getBillsAmount(packed, nextDenomination) + getBillsAmount(anotherPacked, nextDenomination) > MAX_BILLS) {
+        return OVERFLOW;
+      }
+    }
+    // no field overflows, so there are no carries between fields either
+    return packed + anotherPacked;
+  }
+
+  /**
+   * Subtracts one packed cash value from another.
+   * 
+   * @param packed - packed cash.
+   * @param anotherPacked - another packed cash to subtract.
+   * @return packed result of subtraction.
+   * @throws NoSufficientFundsException - in case if there is no sufficient amount of bills of certain denomination to subtract.
+   */
+  public static long subtract(final long packed, final long anotherPacked) throws NoSufficientFundsException {
+    for (BillDenomination nextDenomination : BillDenomination.values()) {
+      final int amountAvail = getBillsAmount(packed, nextDenomination);
+      final int amountToRemove = getBillsAmount(anotherPacked, nextDenomination);
+      if (amountAvail < amountToRemove) {
+        throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", nextDenomination, amountToRemove, amountAvail);
+      }
+    }
+    // no field underflows, so there are no borrows between fields either
+    return packed - anotherPacked;
+  }
+
+  /**
+   * Gets bit offset of the denomination passed in.
+   * 
+   * @param billDenomination - bills denomination.
+   * @return bit offset.
+   */
+  private static int shift(final BillDenomination billDenomination) {
+    return billDenomination.ordinal() * BITS;
+  }
+}
@@ -0,0 +1,222 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.ChangeTrace;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
+import org.hellochange.cash.change.Solution;
+
+/**
+ * Thread-safe implementation of cash register which keeps its state packed into a single atomic 64-bit word 
+ * (see {@link PackedCash}) and converts it to {@link Cash} at the API boundary only.
+ * <p>
+ * Once the amount of bills of some denomination does not fit into the packed representation anymore the register 
+ * is inflated for good: its state is moved to a {@link SimpleCashRegister} all further requests are delegated to.
+ * <p>
+ * Version of the register is the version of the packed state plus the version of the inflated register, if any, 
+ * so it grows monotonically.
+ * 
+ * @author vladimir
+ *
+ */
+public class PackedCashRegister implements VersionedCashRegister {
+  /** State value which says that the register has been inflated. */
+  private static final long INFLATED = PackedCash.OVERFLOW;
+
+  /** Mutable but protected packed state of the cash register. */
+  private final AtomicLong state;
+  /** Change producer strategy. */
+  private final ChangeProducerStrategy changeProducer;
+  /** Object representation of the register once it has been inflated. */
+  private volatile VersionedCashRegister inflatedRegister;
+  /** Version of the packed state, incremented after every change committed. */
+  private final AtomicLong version = new AtomicLong();
+
+  /**
+   * Default constructor which creates empty cash register.
+   */
+  public PackedCashRegister() {
+    this(Cash.EMPTY);
+  }
+
+  /**
+   * Constructor which creates cash register with the cash passed in as parameter.
+   */
+  public PackedCashRegister(final Cash cash) {
+    this(cash, new TableChangeProducerStrategy());
+  }
+
+  /**
+   * Constructor which creates cash register with the cash and the change producer strategy passed in as parameters.
+   * 
+   * @param cash - initial contents of the register.
+   * @param changeProducer - change producer strategy.
+   */
+  public PackedCashRegister(final Cash cash, final ChangeProducerStrategy changeProducer) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+    if (changeProducer == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeProducer");
+    }
+
+    final long packed = PackedCash.pack(cash);
+    this.state = new AtomicLong(packed);
+    this.changeProducer = changeProducer;
+    if (packed == INFLATED) {
+      this.inflatedRegister = new SimpleCashRegister(cash, changeProducer);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash getContents() {
+    final long packed = this.state.get();
+    if (packed == INFLATED) {
+      return inflated().getContents();
+    }
+    return PackedCash.unpack(packed);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getVersion() {
+    // packed state is not changed anymore once the inflated register is published
+    final VersionedCashRegister register = this.inflatedRegister;
+    return this.version.get() + ((register == null) ? 0L : register.getVersion());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash add(final Cash cash) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    final long delta = PackedCash.pack(cash);
+    long prev, next;
+    do {
+      prev = this.state.get();
+      if (prev == INFLATED) {
+        return inflated().add(cash);
+      }
+      next = (delta == PackedCash.OVERFLOW) ? PackedCash.OVERFLOW : PackedCash.add(prev, delta);
+      if (next == PackedCash.OVERFLOW) {
+        if (inflate(prev)) {
+          return inflated().add(cash);
+        }
+        continue;
+      }
+    } while (!this.state.compareAndSet(prev, next));
+    this.version.incrementAndGet();
+    return PackedCash.unpack(next);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash remove(final Cash cash) throws NoSufficientFundsException {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    final long delta = PackedCash.pack(cash);
+    long prev, next;
+    do {
+      prev = this.state.get();
+      if (prev == INFLATED) {
+        return inflated().remove(cash);
+      }
+      if (delta == PackedCash.OVERFLOW) {
+        // more bills than the packed register can possibly hold: let the object representation report the shortage
+        PackedCash.unpack(prev).subtract(cash);
+      }
+      next = PackedCash.subtract(prev, delta);
+    } while (!this.state.compareAndSet(prev, next));
+    this.version.incrementAndGet();
+    return PackedCash.unpack(next);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash change(final Integer amount) {
+    return change(amount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Records compare-and-set retries and the time spent committing the change.
+   */
+  @Override
+  public Cash change(final Integer amount, final ChangeTrace trace) {
+    long prev, next;
+    Cash change;
+    long commitStart = 0L;
+    boolean retry = false;
+    do {
+      if (retry && (trace != null)) {
+        trace.addCasRetry();
+      }
+      retry = true;
+      prev = this.state.get();
+      if (prev == INFLATED) {
+        return inflated().change(amount, trace);
+      }
+
+      final Solution solution = this.changeProducer.computeChange(PackedCash.unpack(prev), amount, trace);
+      if (solution == null) {
+        return null;
+      }
+      // remaining cash never has more bills than the state it was computed from, so it always fits
+      next = PackedCash.pack(solution.getRemainingCash());
+      change = solution.getChange();
+      commitStart = (trace == null) ? 0L : System.nanoTime();
+    } while (!this.state.compareAndSet(prev, next));
+    this.version.incrementAndGet();
+    if (trace != null) {
+      trace.addPhaseNanos("commit", System.nanoTime() - commitStart);
+    }
+    return change;
+  }
+
+  /**
+   * Tries to inflate the register from the packed state passed in.
+   * 
+   * @param prev - packed state to inflate from.
+   * @return true if register has been inflated, false if its state has been changed concurrently.
+   */
+  private boolean inflate(final long prev) {
+    if (!this.state.compareAndSet(prev, INFLATED)) {
+      return this.state.get() == INFLATED;
+    }
+    this.inflatedRegister = new SimpleCashRegister(PackedCash.unpack(prev), this.changeProducer);
+    return true;
+  }
+
+  /**
+   * Gets the object representation of the inflated register, waiting for the inflating thread to publish it if needed.
+   * 
+   * @return inflated register.
+   */
+  private CashRegister inflated() {
+    VersionedCashRegister register;
+    while ((register = this.inflatedRegister) == null) {
+      Thread.yield();
+    }
+    return register;
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+/**
+ * Plain loop implementation of the bill arithmetic.
+ * 
+ * @author vladimir
+ *
+ */
+final class ScalarBillArithmetic implements BillArithmetic {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void add(final int[] left, final int[] right, final int[] result) {
+    for (int i = 0; i < result.length; i++) {
+      result[i] = left[i] + right[i];
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean subtract(final int[] left, final int[] right, final int[] result) {
+    // accumulate the sign bits instead of branching on every element
+    int negative = 0;
+    for (int i = 0; i < result.length; i++) {
+      result[i] = left[i] - right[i];
+      negative |= result[i];
+    }
+    return negative >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long dot(final int[] billsAmounts, final int[] denominations) {
+    long sum = 0;
+    for (int i = 0; i < billsAmounts.length; i++) {
+      sum += (long) billsAmounts[i] * denominations[i];
+    }
+    return sum;
+  }
+}
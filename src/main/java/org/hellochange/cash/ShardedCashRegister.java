@@ -0,0 +1,417 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.ChangeTrace;
+import org.hellochange.cash.change.Solution;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
+
+/**
+ * Thread-safe implementation of cash register which keeps a separate atomic counter per denomination, 
+ * so requests which touch disjoint denominations do not conflict.
+ * <p>
+ * Counters are padded to separate cache lines. Every counter word keeps the amount of bills in its low 32 bits, 
+ * the version of the counter, which is incremented by every update, above them and the lock bit in the sign bit:
+ * <ul>
+ * <li>single denomination add or remove is a compare-and-set of its counter only;</li>
+ * <li>add or remove of several denominations locks their counters in the order of denominations, 
+ * so it is atomic against the other requests yet does not touch the other counters;</li>
+ * <li>change is computed for a consistent snapshot of all the counters, then the counters the change uses are locked 
+ * and committed only if their versions are still those of the snapshot, which validates that the bills are still available;</li>
+ * <li>contents are read by collecting all the counters twice until no counter is locked or changed in between.</li>
+ * </ul>
+ * Version of the register is the sum of the versions of its counters, read from the same snapshot as the contents, 
+ * so it is exact. It is change-detecting only, not monotonic: versions of the counters wrap after 2<sup>31</sup> updates each 
+ * and so may the sum, so versions must be compared for equality only, as {@link #hasChangedSince(long)} does. 
+ * A shared monotonic counter would be written by every commit and bring back the contention the sharding avoids.
+ * 
+ * @author vladimir
+ *
+ */
+public class ShardedCashRegister implements VersionedCashRegister {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** Distance between the counters in longs, which keeps them on separate pairs of cache lines. */
+  private static final int STRIDE = 16;
+  /** Mask of the amount of bills in the counter word. */
+  private static final long COUNT_MASK = 0xFFFFFFFFL;
+  /** Increment of the version in the counter word. */
+  private static final long VERSION_UNIT = 1L << 32;
+  /** Lock bit of the counter word. */
+  private static final long LOCK = Long.MIN_VALUE;
+
+  /** Counter words by denomination. */
+  private final AtomicLongArray counters = new AtomicLongArray(DENOMINATIONS.length * STRIDE);
+  /** Change producer strategy. */
+  private final ChangeProducerStrategy changeProducer;
+
+  /**
+   * Default constructor which creates empty cash register.
+   */
+  public ShardedCashRegister() {
+    this(Cash.EMPTY);
+  }
+
+  /**
+   * Constructor which creates cash register with the cash passed in as parameter.
+   * 
+   * @param cash - initial contents of the register.
+   */
+  public ShardedCashRegister(final Cash cash) {
+    this(cash, new TableChangeProducerStrategy());
+  }
+
+  /**
+   * Constructor which creates cash register with the cash and the change producer strategy passed in as parameters.
+   * 
+   * @param cash - initial contents of the register.
+   * @param changeProducer - change producer strategy.
+   */
+  public ShardedCashRegister(final Cash cash, final ChangeProducerStrategy changeProducer) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+    if (changeProducer == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeProducer");
+    }
+
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      this.counters.set(d * STRIDE, cash.getBillsAmount(DENOMINATIONS[d]));
+    }
+    this.changeProducer = changeProducer;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash getContents() {
+    return toCash(snapshot());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getVersion() {
+    return getVersion(snapshot());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CashSnapshot getSnapshot() {
+    final long[] words = snapshot();
+    return new CashSnapshot(toCash(words), getVersion(words));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The contents returned hold the denominations added as committed and the other denominations as read once right 
+   * after the commit without locking, so under concurrent updates they may be a state the register never had as a whole.
+   */
+  @Override
+  public Cash add(final Cash cash) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    final int touched = touchedDenominations(cash);
+    if (Integer.bitCount(touched) == 1) {
+      final int d = Integer.numberOfTrailingZeros(touched);
+      final int amount = cash.getBillsAmount(DENOMINATIONS[d]);
+      final long[] committed = new long[DENOMINATIONS.length];
+      long prev;
+      do {
+        prev = awaitUnlocked(d);
+        committed[d] = update(prev, Math.addExact(count(prev), amount));
+      } while (!this.counters.compareAndSet(d * STRIDE, prev, committed[d]));
+      return getResultingContents(touched, committed);
+    } else if (touched != 0) {
+      final long[] locked = lock(touched);
+      final long[] committed = new long[DENOMINATIONS.length];
+      try {
+        for (int d = 0; d < DENOMINATIONS.length; d++) {
+          if ((touched & (1 << d)) != 0) {
+            committed[d] = update(locked[d], Math.addExact(count(locked[d]), cash.getBillsAmount(DENOMINATIONS[d])));
+          }
+        }
+      } catch (ArithmeticException aEx) {
+        // leave the counters as they were
+        unlock(touched, locked);
+        throw aEx;
+      }
+      unlock(touched, committed);
+      return getResultingContents(touched, committed);
+    }
+    return getContents();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The contents returned hold the denominations removed as committed and the other denominations as read once right 
+   * after the commit without locking, so under concurrent updates they may be a state the register never had as a whole.
+   */
+  @Override
+  public Cash remove(final Cash cash) throws NoSufficientFundsException {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    final int touched = touchedDenominations(cash);
+    if (Integer.bitCount(touched) == 1) {
+      final int d = Integer.numberOfTrailingZeros(touched);
+      final int amount = cash.getBillsAmount(DENOMINATIONS[d]);
+      final long[] committed = new long[DENOMINATIONS.length];
+      long prev;
+      do {
+        prev = awaitUnlocked(d);
+        if (count(prev) < amount) {
+          throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", DENOMINATIONS[d], amount, count(prev));
+        }
+        committed[d] = update(prev, count(prev) - amount);
+      } while (!this.counters.compareAndSet(d * STRIDE, prev, committed[d]));
+      return getResultingContents(touched, committed);
+    } else if (touched != 0) {
+      final long[] locked = lock(touched);
+      final long[] committed = new long[DENOMINATIONS.length];
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        if ((touched & (1 << d)) != 0) {
+          final int amount = cash.getBillsAmount(DENOMINATIONS[d]);
+          if (count(locked[d]) < amount) {
+            // leave the counters as they were
+            unlock(touched, locked);
+            throw new NoSufficientFundsException("Not sufficient amount of bills to complete subtraction. ", DENOMINATIONS[d], amount, count(locked[d]));
+          }
+          committed[d] = update(locked[d], count(locked[d]) - amount);
+        }
+      }
+      unlock(touched, committed);
+      return getResultingContents(touched, committed);
+    }
+    return getContents();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash change(final Integer amount) {
+    return change(amount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Records validation failures of the snapshot as compare-and-set retries and the time spent committing the change.
+   */
+  @Override
+  public Cash change(final Integer amount, final ChangeTrace trace) {
+    while (true) {
+      final long[] snapshot = snapshot();
+      final Solution solution = this.changeProducer.computeChange(toCash(snapshot), amount, trace);
+      if (solution == null) {
+        return null;
+      }
+
+      final long commitStart = (trace == null) ? 0L : System.nanoTime();
+      final Cash change = solution.getChange();
+      final int touched = touchedDenominations(change);
+      final long[] locked = lock(touched);
+      boolean valid = true;
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        if (((touched & (1 << d)) != 0) && (locked[d] != snapshot[d])) {
+          valid = false;
+          break;
+        }
+      }
+      if (!valid) {
+        unlock(touched, locked);
+        if (trace != null) {
+          trace.addCasRetry();
+        }
+        continue;
+      }
+
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        if ((touched & (1 << d)) != 0) {
+          locked[d] = update(locked[d], count(locked[d]) - change.getBillsAmount(DENOMINATIONS[d]));
+        }
+      }
+      unlock(touched, locked);
+      if (trace != null) {
+        trace.addPhaseNanos("commit", System.nanoTime() - commitStart);
+      }
+      return change;
+    }
+  }
+
+  /**
+   * Reads consistent snapshot of all the counter words: collects them twice until no counter is locked or changed in between.
+   * 
+   * @return counter words by denomination, unlocked.
+   */
+  private long[] snapshot() {
+    final long[] first = new long[DENOMINATIONS.length];
+    while (true) {
+      boolean locked = false;
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        first[d] = this.counters.get(d * STRIDE);
+        locked |= first[d] < 0;
+      }
+      if (locked) {
+        Thread.yield();
+        continue;
+      }
+
+      boolean same = true;
+      for (int d = 0; d < DENOMINATIONS.length; d++) {
+        if (this.counters.get(d * STRIDE) != first[d]) {
+          same = false;
+          break;
+        }
+      }
+      if (same) {
+        return first;
+      }
+    }
+  }
+
+  /**
+   * Locks the counters of the denominations in the order of denominations, which prevents deadlocks.
+   * 
+   * @param touched - bit mask of the denominations.
+   * @return counter words of the denominations locked, as they were before locking.
+   */
+  private long[] lock(final int touched) {
+    final long[] locked = new long[DENOMINATIONS.length];
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      if ((touched & (1 << d)) != 0) {
+        long prev;
+        do {
+          prev = awaitUnlocked(d);
+        } while (!this.counters.compareAndSet(d * STRIDE, prev, prev | LOCK));
+        locked[d] = prev;
+      }
+    }
+    return locked;
+  }
+
+  /**
+   * Unlocks the counters of the denominations setting the counter words passed in, which may be those before locking.
+   * 
+   * @param touched - bit mask of the denominations.
+   * @param words - counter words to set by denomination.
+   */
+  private void unlock(final int touched, final long[] words) {
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      if ((touched & (1 << d)) != 0) {
+        this.counters.set(d * STRIDE, words[d]);
+      }
+    }
+  }
+
+  /**
+   * Gets contents of the register right after the update: the counters of the denominations updated as committed 
+   * and the other counters as read once right after the update. The other counters are read without waiting for 
+   * their locks or validating the read - a locked counter still holds its last committed count - so the result 
+   * may combine counters which were never in the register together.
+   * 
+   * @param touched - bit mask of the denominations updated.
+   * @param committed - counter words committed by denomination.
+   * @return contents of the register.
+   */
+  private Cash getResultingContents(final int touched, final long[] committed) {
+    final long[] words = new long[DENOMINATIONS.length];
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      words[d] = ((touched & (1 << d)) != 0) ? committed[d] : this.counters.get(d * STRIDE);
+    }
+    return toCash(words);
+  }
+
+  /**
+   * Spins until the counter of the denomination is unlocked.
+   * 
+   * @param d - index of the denomination.
+   * @return counter word unlocked.
+   */
+  private long awaitUnlocked(final int d) {
+    long word;
+    while ((word = this.counters.get(d * STRIDE)) < 0) {
+      Thread.yield();
+    }
+    return word;
+  }
+
+  /**
+   * Computes bit mask of the denominations the cash has bills of.
+   * 
+   * @param cash - cash.
+   * @return bit mask of the denominations.
+   */
+  private static int touchedDenominations(final Cash cash) {
+    int touched = 0;
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      if (cash.getBillsAmount(DENOMINATIONS[d]) > 0) {
+        touched |= 1 << d;
+      }
+    }
+    return touched;
+  }
+
+  /**
+   * Gets amount of bills from the counter word.
+   * 
+   * @param word - counter word.
+   * @return amount of bills.
+   */
+  private static int count(final long word) {
+    return (int) (word & COUNT_MASK);
+  }
+
+  /**
+   * Creates the unlocked counter word of the next version with the amount of bills passed in.
+   * 
+   * @param word - current counter word.
+   * @param count - new amount of bills.
+   * @return next counter word.
+   */
+  private static long update(final long word, final int count) {
+    return (((word & ~LOCK) + VERSION_UNIT) & ~LOCK & ~COUNT_MASK) | count;
+  }
+
+  /**
+   * Sums the versions of the counter words.
+   * 
+   * @param words - unlocked counter words by denomination.
+   * @return version of the register.
+   */
+  private static long getVersion(final long[] words) {
+    long version = 0;
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      version += words[d] >>> 32;
+    }
+    return version;
+  }
+
+  /**
+   * Converts counter words to cash.
+   * 
+   * @param words - counter words by denomination.
+   * @return cash.
+   */
+  private static Cash toCash(final long[] words) {
+    final int[] billsAmounts = new int[DENOMINATIONS.length];
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      billsAmounts[d] = count(words[d]);
+    }
+    return Cash.valueOf(billsAmounts);
+  }
+}
@@ -6,39 +6,102 @@ package org.hellochange.cash;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.hellochange.cash.change.ChangeProducerStrategy;
-import org.hellochange.cash.change.DpChangeProducerStrategy;
+import org.hellochange.cash.change.ChangeTrace;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
 import org.hellochange.cash.change.Solution;
+import org.hellochange.cash.event.RegisterEventRing;
+import org.hellochange.cash.event.RegisterOperation;
 
 /**
  * Simple thread-safe implementation of cash register.
+ * <p>
+ * Contents and version of the register are committed together with a single compare-and-set, so snapshots are exact 
+ * and versions grow monotonically in the order of the commits, see {@link VersionedCashRegister}. Changes of the state are published 
+ * to the event ring, if there is one, with the sequence numbers derived from the versions committed, so events 
+ * of concurrent commits come in the order of the commits.
  * 
  * @author vladimir
  *
  */
-public class SimpleCashRegister implements CashRegister {
+public class SimpleCashRegister implements VersionedCashRegister {
   /** Mutable but protected state of the cash register. */
-  private final AtomicReference<Cash> cashRef;
+  private final AtomicReference<State> stateRef;
   /** Change producer strategy. */
   private final ChangeProducerStrategy changeProducer;
+  /** Ring to publish state changes to, null if they are not published. */
+  private final RegisterEventRing events;
+  /** Sequence number of the event of the first change committed. */
+  private final long firstSequence;
 
   /**
    * Default constructor which creates empty cash register.
    */
   public SimpleCashRegister() {
-    this.cashRef = new AtomicReference<>(Cash.EMPTY);
-    this.changeProducer = new DpChangeProducerStrategy();
+    this(Cash.EMPTY);
   }
 
   /**
    * Constructor which creates cash register with the cash passed in as parameter.
    */
   public SimpleCashRegister(final Cash cash) {
+    this(cash, new TableChangeProducerStrategy(), null);
+  }
+
+  /**
+   * Constructor which creates cash register with the cash and the change producer strategy passed in as parameters.
+   * 
+   * @param cash - initial contents of the register.
+   * @param changeProducer - change producer strategy.
+   */
+  public SimpleCashRegister(final Cash cash, final ChangeProducerStrategy changeProducer) {
+    this(cash, changeProducer, null);
+  }
+
+  /**
+   * Constructor which creates cash register with the cash passed in as parameter that publishes every change of its state.
+   * <p>
+   * The register must be the only producer of the ring. If the ring has gating consumers, every operation which changes 
+   * the state waits, yielding the processor, while the slowest of them lags a full ring behind.
+   * 
+   * @param cash - initial contents of the register.
+   * @param events - ring to publish state changes to.
+   */
+  public SimpleCashRegister(final Cash cash, final RegisterEventRing events) {
+    this(cash, new TableChangeProducerStrategy(), requireEvents(events));
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param cash - initial contents of the register.
+   * @param changeProducer - change producer strategy.
+   * @param events - ring to publish state changes to, null if they are not published.
+   */
+  private SimpleCashRegister(final Cash cash, final ChangeProducerStrategy changeProducer, final RegisterEventRing events) {
     if (cash == null) {
       throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
     }
+    if (changeProducer == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeProducer");
+    }
 
-    this.cashRef = new AtomicReference<>(cash);
-    this.changeProducer = new DpChangeProducerStrategy();
+    this.stateRef = new AtomicReference<>(new State(cash, 0L));
+    this.changeProducer = changeProducer;
+    this.events = events;
+    this.firstSequence = (events == null) ? 0L : events.getCursor();
+  }
+
+  /**
+   * Checks the required event ring passed in.
+   * 
+   * @param events - event ring.
+   * @return event ring.
+   */
+  private static RegisterEventRing requireEvents(final RegisterEventRing events) {
+    if (events == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: events");
+    }
+    return events;
   }
 
   /**
@@ -46,7 +109,26 @@ public class SimpleCashRegister implements CashRegister {
    */
   @Override
   public Cash getContents() {
-    return this.cashRef.get();
+    return this.stateRef.get().cash;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getVersion() {
+    return this.stateRef.get().version;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The contents are exactly the state of the version.
+   */
+  @Override
+  public CashSnapshot getSnapshot() {
+    final State state = this.stateRef.get();
+    return new CashSnapshot(state.cash, state.version);
   }
 
   /**
@@ -54,12 +136,13 @@ public class SimpleCashRegister implements CashRegister {
    */
   @Override
   public Cash add(Cash cash) {
-    Cash prev, next;
+    State prev, next;
     do {
-      prev = this.cashRef.get();
-      next = prev.add(cash);
-    } while (!this.cashRef.compareAndSet(prev, next));
-    return next;
+      prev = this.stateRef.get();
+      next = new State(prev.cash.add(cash), prev.version + 1);
+    } while (!this.stateRef.compareAndSet(prev, next));
+    publish(RegisterOperation.ADD, prev, next);
+    return next.cash;
   }
 
   /**
@@ -67,12 +150,13 @@ public class SimpleCashRegister implements CashRegister {
    */
   @Override
   public Cash remove(Cash cash) throws NoSufficientFundsException {
-    Cash prev, next;
+    State prev, next;
     do {
-      prev = this.cashRef.get();
-      next = prev.subtract(cash);
-    } while (!this.cashRef.compareAndSet(prev, next));
-    return next;
+      prev = this.stateRef.get();
+      next = new State(prev.cash.subtract(cash), prev.version + 1);
+    } while (!this.stateRef.compareAndSet(prev, next));
+    publish(RegisterOperation.REMOVE, prev, next);
+    return next.cash;
   }
 
   /**
@@ -80,17 +164,76 @@ public class SimpleCashRegister implements CashRegister {
    */
   @Override
   public Cash change(Integer amount) {
-    Cash prev, next, change;
+    return change(amount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Records compare-and-set retries and the time spent committing the change.
+   */
+  @Override
+  public Cash change(final Integer amount, final ChangeTrace trace) {
+    State prev, next;
+    Cash change;
+    long commitStart = 0L;
+    boolean retry = false;
     do {
-      prev = this.cashRef.get();
+      if (retry && (trace != null)) {
+        trace.addCasRetry();
+      }
+      retry = true;
+      prev = this.stateRef.get();
      
-      final Solution solution = this.changeProducer.computeChange(prev, amount); 
+      final Solution solution = this.changeProducer.computeChange(prev.cash, amount, trace); 
       if (solution == null) {
         return null;
       }
-      next = solution.getRemainingCash();
+      next = new State(solution.getRemainingCash(), prev.version + 1);
       change = solution.getChange();
-    } while (!this.cashRef.compareAndSet(prev, next));
+      commitStart = (trace == null) ? 0L : System.nanoTime();
+    } while (!this.stateRef.compareAndSet(prev, next));
+    publish(RegisterOperation.CHANGE, prev, next);
+    if (trace != null) {
+      trace.addPhaseNanos("commit", System.nanoTime() - commitStart);
+    }
     return change;
   }
+
+  /**
+   * Publishes the state change committed if state changes are published.
+   * 
+   * @param operation - operation.
+   * @param prev - state of the register before the operation.
+   * @param next - state of the register after the operation.
+   */
+  private void publish(final RegisterOperation operation, final State prev, final State next) {
+    if (this.events != null) {
+      this.events.publish(this.firstSequence + prev.version, operation, prev.cash, next.cash);
+    }
+  }
+
+  /**
+   * Contents of the register together with their version.
+   * 
+   * @author vladimir
+   *
+   */
+  private static final class State {
+    /** Contents. */
+    private final Cash cash;
+    /** Version of the contents. */
+    private final long version;
+
+    /**
+     * Constructor.
+     * 
+     * @param cash - contents.
+     * @param version - version of the contents.
+     */
+    State(final Cash cash, final long version) {
+      this.cash = cash;
+      this.version = version;
+    }
+  }
 }
\ No newline at end of file
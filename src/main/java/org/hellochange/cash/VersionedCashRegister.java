@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+/**
+ * Cash register which versions its state, so readers can cheaply check whether anything has changed 
+ * since the contents they have read last time.
+ * <p>
+ * The version changes with every change of the state. Contents of a snapshot include at least all the changes 
+ * up to its version: a change may be seen in the contents before the version catches up with it, which only makes 
+ * the reader read the same contents once more, but a change is never missed.
+ * <p>
+ * Implementations document whether their versions grow monotonically, so that the versions of two snapshots tell 
+ * which one is newer ({@link SimpleCashRegister}, {@link PackedCashRegister}), or only detect changes and have to be 
+ * compared for equality, as {@link #hasChangedSince(long)} does ({@link ShardedCashRegister}, whose version may wrap).
+ * 
+ * @author vladimir
+ *
+ */
+public interface VersionedCashRegister extends CashRegister {
+  /**
+   * Gets current version of the register.
+   * 
+   * @return version of the register.
+   */
+  long getVersion();
+
+  /**
+   * Gets contents of the register together with its version without blocking the writers.
+   * 
+   * @return snapshot of the register.
+   */
+  default CashSnapshot getSnapshot() {
+    // version is read first, so the contents include all the changes up to it
+    final long version = getVersion();
+    return new CashSnapshot(getContents(), version);
+  }
+
+  /**
+   * Checks whether the state of the register has changed since the version passed in.
+   * 
+   * @param version - version of the last snapshot read.
+   * @return true if the state has changed since then.
+   */
+  default boolean hasChangedSince(final long version) {
+    return getVersion() != version;
+  }
+}
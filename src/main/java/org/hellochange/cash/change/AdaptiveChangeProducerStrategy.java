@@ -0,0 +1,253 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+
+/**
+ * Strategy which picks one of several exact strategies for every request by the latencies measured online.
+ * <p>
+ * Requests are classified by the magnitude of the change amount and by the shape of the drawer - how low the scarcest 
+ * denomination is. For every class the strategy keeps moving average of the latency of every candidate and passes the request 
+ * to the fastest one, trying another candidate once in a while to keep the averages up to date. The averages are dropped 
+ * once per recalibration period, so the choice follows the changes of the traffic and of the JIT-compiled code.
+ * <p>
+ * All the candidates must minimize the same cost function, so the choice only affects the latency and never the cost of the change.
+ * 
+ * @author vladimir
+ */
+public class AdaptiveChangeProducerStrategy implements ChangeProducerStrategy {
+  /** Default period of the recalibration in seconds. */
+  public static final long DEFAULT_RECALIBRATION_SECONDS = 60;
+  /** Default amount of requests per exploration of a candidate other than the fastest one. */
+  public static final int DEFAULT_EXPLORATION_PERIOD = 64;
+
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** Amount of classes of the change amount: by the position of its highest bit. */
+  private static final int AMOUNT_CLASSES = Integer.SIZE;
+  /** Bounds of the classes of the drawer shape by the amount of bills of the scarcest denomination. */
+  private static final int[] SHAPE_BOUNDS = { 1, 4, 16, 64 };
+  /** Amount of classes of the drawer shape. */
+  private static final int SHAPE_CLASSES = SHAPE_BOUNDS.length + 1;
+  /** Weight of the latest latency in the moving average, as the power of two it divides the difference by. */
+  private static final int EWMA_SHIFT = 3;
+
+  /** Candidate strategies. */
+  private final ChangeProducerStrategy[] candidates;
+  /** Amount of requests per exploration. */
+  private final int explorationPeriod;
+  /** Period of the recalibration in nanoseconds. */
+  private final long recalibrationNanos;
+  /** Moving averages of latencies in nanoseconds of the candidate c for the request class r at index r * candidates.length + c, zero if not measured. */
+  private final AtomicLongArray latencies;
+  /** Time of the next recalibration. */
+  private final AtomicLong nextRecalibration;
+
+  /**
+   * Default constructor for the strategy which minimizes amount of bills choosing between {@link TableChangeProducerStrategy} 
+   * and {@link DpChangeProducerStrategy}.
+   */
+  public AdaptiveChangeProducerStrategy() {
+    this(DEFAULT_RECALIBRATION_SECONDS, TimeUnit.SECONDS, DEFAULT_EXPLORATION_PERIOD, 
+        new TableChangeProducerStrategy(), new DpChangeProducerStrategy());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param recalibrationPeriod - period of the recalibration.
+   * @param unit - time unit of the recalibration period.
+   * @param explorationPeriod - amount of requests per exploration of a candidate other than the fastest one.
+   * @param candidates - candidate strategies minimizing the same cost function; requests for several solutions are passed to the first one.
+   */
+  public AdaptiveChangeProducerStrategy(final long recalibrationPeriod, final TimeUnit unit, final int explorationPeriod, 
+      final ChangeProducerStrategy... candidates) {
+    if (recalibrationPeriod <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for recalibrationPeriod parameter: %1$d", recalibrationPeriod));
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: unit");
+    }
+    if (explorationPeriod <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for explorationPeriod parameter: %1$d", explorationPeriod));
+    }
+    if ((candidates == null) || (candidates.length == 0)) {
+      throw new IllegalArgumentException("Empty array of candidate strategies has been passed in.");
+    }
+    for (final ChangeProducerStrategy candidate : candidates) {
+      if (candidate == null) {
+        throw new IllegalArgumentException("Null has been passed in as candidate strategy.");
+      }
+    }
+
+    this.candidates = candidates.clone();
+    this.explorationPeriod = explorationPeriod;
+    this.recalibrationNanos = unit.toNanos(recalibrationPeriod);
+    this.latencies = new AtomicLongArray(AMOUNT_CLASSES * SHAPE_CLASSES * candidates.length);
+    this.nextRecalibration = new AtomicLong(System.nanoTime() + this.recalibrationNanos);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount) {
+    return computeChange(availableCash, changeAmount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Records the request class and the candidate selected, the candidate traces the computation itself.
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount, final ChangeTrace trace) {
+    if (availableCash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: availableCash");
+    }
+    if (changeAmount < 0) {
+      throw new IllegalArgumentException(String.format("Negative value has been passed in for changeAmount parameter: %1$d", changeAmount));
+    }
+
+    final long start = System.nanoTime();
+    recalibrateIfDue(start);
+
+    final int requestClass = getRequestClass(availableCash, changeAmount);
+    final int candidate = select(requestClass);
+    if (trace != null) {
+      trace.addPathStep(String.format("adaptive[class %1$d, candidate %2$d]", requestClass, candidate));
+    }
+    final Solution solution = this.candidates[candidate].computeChange(availableCash, changeAmount, trace);
+    record(requestClass, candidate, System.nanoTime() - start);
+    return solution;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Passed to the first candidate if more than one solution is requested.
+   */
+  @Override
+  public List<Solution> computeChanges(final Cash availableCash, final int changeAmount, final int k) {
+    if (k == 1) {
+      return ChangeProducerStrategy.super.computeChanges(availableCash, changeAmount, k);
+    }
+    return this.candidates[0].computeChanges(availableCash, changeAmount, k);
+  }
+
+  /**
+   * Gets the candidate the request would be passed to unless it is explored: the fastest one measured.
+   * 
+   * @param availableCash - cash available.
+   * @param changeAmount - change amount.
+   * @return candidate strategy.
+   */
+  public ChangeProducerStrategy getPreferredCandidate(final Cash availableCash, final int changeAmount) {
+    return this.candidates[getFastest(getRequestClass(availableCash, changeAmount))];
+  }
+
+  /**
+   * Selects the candidate for the request: the one not measured yet if any, a random one once per exploration period, 
+   * otherwise the fastest one.
+   * 
+   * @param requestClass - request class.
+   * @return candidate index.
+   */
+  private int select(final int requestClass) {
+    if (this.candidates.length == 1) {
+      return 0;
+    }
+
+    final int offset = requestClass * this.candidates.length;
+    for (int c = 0; c < this.candidates.length; c++) {
+      if (this.latencies.get(offset + c) == 0) {
+        return c;
+      }
+    }
+
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (random.nextInt(this.explorationPeriod) == 0) {
+      return random.nextInt(this.candidates.length);
+    }
+    return getFastest(requestClass);
+  }
+
+  /**
+   * Gets the fastest candidate measured for the request class.
+   * 
+   * @param requestClass - request class.
+   * @return candidate index.
+   */
+  private int getFastest(final int requestClass) {
+    final int offset = requestClass * this.candidates.length;
+    int fastest = 0;
+    for (int c = 1; c < this.candidates.length; c++) {
+      final long latency = this.latencies.get(offset + c);
+      final long fastestLatency = this.latencies.get(offset + fastest);
+      if ((latency != 0) && ((fastestLatency == 0) || (latency < fastestLatency))) {
+        fastest = c;
+      }
+    }
+    return fastest;
+  }
+
+  /**
+   * Adds the latency measured to the moving average of the candidate. Concurrent updates may overwrite each other, 
+   * which only loses a sample.
+   * 
+   * @param requestClass - request class.
+   * @param candidate - candidate index.
+   * @param latency - latency in nanoseconds.
+   */
+  private void record(final int requestClass, final int candidate, final long latency) {
+    final int index = requestClass * this.candidates.length + candidate;
+    final long sample = Math.max(latency, 1);
+    final long average = this.latencies.get(index);
+    this.latencies.lazySet(index, (average == 0) ? sample : Math.max(average + ((sample - average) >> EWMA_SHIFT), 1));
+  }
+
+  /**
+   * Drops all the averages if the recalibration is due.
+   * 
+   * @param now - current time.
+   */
+  private void recalibrateIfDue(final long now) {
+    final long next = this.nextRecalibration.get();
+    if ((now - next < 0) || !this.nextRecalibration.compareAndSet(next, now + this.recalibrationNanos)) {
+      return;
+    }
+    for (int i = 0; i < this.latencies.length(); i++) {
+      this.latencies.lazySet(i, 0);
+    }
+  }
+
+  /**
+   * Classifies the request by the magnitude of the change amount and the amount of bills of the scarcest denomination.
+   * 
+   * @param availableCash - cash available.
+   * @param changeAmount - change amount.
+   * @return request class.
+   */
+  private static int getRequestClass(final Cash availableCash, final int changeAmount) {
+    int scarcest = Integer.MAX_VALUE;
+    for (final BillDenomination billDenomination : DENOMINATIONS) {
+      scarcest = Math.min(scarcest, availableCash.getBillsAmount(billDenomination));
+    }
+    int shapeClass = 0;
+    while ((shapeClass < SHAPE_BOUNDS.length) && (scarcest >= SHAPE_BOUNDS[shapeClass])) {
+      shapeClass++;
+    }
+
+    final int amountClass = Integer.SIZE - Integer.numberOfLeadingZeros(changeAmount);
+    return Math.min(amountClass, AMOUNT_CLASSES - 1) * SHAPE_CLASSES + shapeClass;
+  }
+}
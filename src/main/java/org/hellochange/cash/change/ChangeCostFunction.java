@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Defines the cost of giving bills away as a change. The cost of a change is the sum of the costs of its bills, 
+ * every bill being priced by the amount of bills of its denomination left in the register after it is given away. 
+ * This keeps the cost additive so it can be minimized by the same dynamic programming as the amount of bills.
+ * 
+ * @author vladimir
+ *
+ */
+public interface ChangeCostFunction {
+  /**
+   * Gets the cost of giving away one more bill of the denomination passed in.
+   * 
+   * @param billDenomination - denomination of the bill given away.
+   * @param billsRemaining - amount of bills of this denomination remaining in the register after the bill is given away.
+   * @return non-negative cost of the bill.
+   */
+  int getBillCost(BillDenomination billDenomination, int billsRemaining);
+}
@@ -0,0 +1,102 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import java.util.Map;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Factory of commonly used change cost functions.
+ * 
+ * @author vladimir
+ *
+ */
+public final class ChangeCostFunctions {
+  /** 
+   * Every bill costs the same, so the change with the least amount of bills is the cheapest one. 
+   * Not a lambda, so the default strategy does not bootstrap lambdas on startup.
+   */
+  public static final ChangeCostFunction FEWEST_BILLS = new ChangeCostFunction() {
+    @Override
+    public int getBillCost(final BillDenomination billDenomination, final int billsRemaining) {
+      return 1;
+    }
+  };
+
+  /**
+   * Hidden constructor.
+   */
+  private ChangeCostFunctions() {
+    // nothing to do here
+  }
+
+  /**
+   * Creates cost function where every bill costs the weight of its denomination.
+   * 
+   * @param weights - weights of the denominations. Denominations missing have weight of 1.
+   * @return cost function.
+   */
+  public static ChangeCostFunction weighted(final Map<BillDenomination, Integer> weights) {
+    final int[] weightsByDenomination = toArray(weights, 1, "weights");
+    return (billDenomination, billsRemaining) -> weightsByDenomination[billDenomination.ordinal()];
+  }
+
+  /**
+   * Creates cost function which penalizes every bill that drops amount of bills of its denomination below the threshold.
+   * 
+   * @param thresholds - thresholds of the denominations. Denominations missing are never penalized.
+   * @param penalty - penalty added to the cost of the bill taken below the threshold.
+   * @return cost function.
+   */
+  public static ChangeCostFunction scarcityPenalty(final Map<BillDenomination, Integer> thresholds, final int penalty) {
+    if (penalty < 0) {
+      throw new IllegalArgumentException(String.format("Negative value has been passed in for penalty parameter: %1$d", penalty));
+    }
+
+    final int[] thresholdsByDenomination = toArray(thresholds, 0, "thresholds");
+    return (billDenomination, billsRemaining) -> 
+        (billsRemaining < thresholdsByDenomination[billDenomination.ordinal()]) ? 1 + penalty : 1;
+  }
+
+  /**
+   * Creates cost function which keeps the float balanced: the further amount of bills of the denomination goes below its 
+   * target amount, the more every next bill of it costs.
+   * 
+   * @param targetAmounts - target amounts of bills of the denominations. Denominations missing have target amount of 0.
+   * @return cost function.
+   */
+  public static ChangeCostFunction balancedFloat(final Map<BillDenomination, Integer> targetAmounts) {
+    final int[] targetsByDenomination = toArray(targetAmounts, 0, "targetAmounts");
+    return (billDenomination, billsRemaining) -> 
+        1 + Math.max(0, targetsByDenomination[billDenomination.ordinal()] - billsRemaining);
+  }
+
+  /**
+   * Converts non-negative values by denomination to the array indexed by denomination ordinal.
+   * 
+   * @param values - values by denomination.
+   * @param defaultValue - value to use for denominations missing.
+   * @param parameterName - name of the parameter for error messages.
+   * @return array of values.
+   */
+  private static int[] toArray(final Map<BillDenomination, Integer> values, final int defaultValue, final String parameterName) {
+    if (values == null) {
+      throw new IllegalArgumentException(String.format("Null has been passed in as required parameter: %1$s", parameterName));
+    }
+
+    final BillDenomination[] denominations = BillDenomination.values();
+    final int[] result = new int[denominations.length];
+    for (BillDenomination nextDenomination : denominations) {
+      final Integer value = values.get(nextDenomination);
+      final int valueToUse = value != null ? value : defaultValue;
+      if (valueToUse < 0) {
+        throw new IllegalArgumentException(String.format(
+            "Negative value [%1$d] has been passed in as %2$s for denomination %3$s", valueToUse, parameterName, nextDenomination));
+      }
+      result[nextDenomination.ordinal()] = valueToUse;
+    }
+    return result;
+  }
+}
@@ -3,6 +3,9 @@
  */
 package org.hellochange.cash.change;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.hellochange.cash.Cash;
 
 /**
@@ -14,11 +17,54 @@ import org.hellochange.cash.Cash;
 public interface ChangeProducerStrategy {
   /**
    * For the register contents and change amount passed in computes the cash required to provide this change amount 
-   * with minimal amount of bills possible and returns it as a solution. If it is not possible to allocate cash for it - returns null.
+   * at minimal cost possible (by default - with minimal amount of bills possible) and returns it as a solution. If it is not possible to allocate cash for it - returns null.
    * 
    * @param cashAvailable - cash available to produce the change amount requested.
    * @param changeAmount - change amount.
    * @return solution computed for the change or null if it is not possible to allocate cash for change.
    */
   Solution computeChange(Cash cashAvailable, int changeAmount);
+
+  /**
+   * Computes the change as {@link #computeChange(Cash, int)} does and explains how it has been computed.
+   * <p>
+   * Default implementation records the strategy and the time it has taken. Implementations record nothing 
+   * and allocate nothing extra if the trace is null.
+   * 
+   * @param cashAvailable - cash available to produce the change amount requested.
+   * @param changeAmount - change amount.
+   * @param trace - trace to record the computation to, null if it is not traced.
+   * @return solution computed for the change or null if it is not possible to allocate cash for change.
+   */
+  default Solution computeChange(final Cash cashAvailable, final int changeAmount, final ChangeTrace trace) {
+    if (trace == null) {
+      return computeChange(cashAvailable, changeAmount);
+    }
+
+    trace.addPathStep(getClass().getSimpleName());
+    final long start = System.nanoTime();
+    final Solution solution = computeChange(cashAvailable, changeAmount);
+    trace.addPhaseNanos("solve", System.nanoTime() - start);
+    return solution;
+  }
+
+  /**
+   * For the register contents and change amount passed in computes up to k distinct cash combinations which provide 
+   * this change amount and returns them as solutions starting with the cheapest one.
+   * <p>
+   * Default implementation returns the only solution computed by {@link #computeChange(Cash, int)}.
+   * 
+   * @param cashAvailable - cash available to produce the change amount requested.
+   * @param changeAmount - change amount.
+   * @param k - maximum amount of solutions to return.
+   * @return solutions computed for the change ordered by their priority, empty if it is not possible to allocate cash for change.
+   */
+  default List<Solution> computeChanges(final Cash cashAvailable, final int changeAmount, final int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for k parameter: %1$d", k));
+    }
+
+    final Solution solution = computeChange(cashAvailable, changeAmount);
+    return (solution == null) ? Collections.emptyList() : Collections.singletonList(solution);
+  }
 }
\ No newline at end of file
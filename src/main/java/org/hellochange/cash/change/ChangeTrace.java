@@ -0,0 +1,143 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Explains how a change has been computed: solvers which ran, amount of sub-problems explored, denominations which ran out, 
+ * time spent in every phase and compare-and-set retries of the register.
+ * <p>
+ * Tracing is opt-in: strategies and registers are passed a trace only when the caller wants the explanation, and do not 
+ * record anything nor allocate without it. Not thread-safe: a trace belongs to a single request.
+ * 
+ * @author vladimir
+ *
+ */
+public final class ChangeTrace {
+  /** Solvers which ran, in order. */
+  private final List<String> path = new ArrayList<>();
+  /** Amount of sub-problem solutions explored. */
+  private long cellsExplored;
+  /** Denominations which ran out while solving. */
+  private final Set<BillDenomination> depletedDenominations = EnumSet.noneOf(BillDenomination.class);
+  /** Time spent by phase in nanoseconds, in order of the phases. */
+  private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+  /** Amount of compare-and-set retries of the register. */
+  private int casRetries;
+
+  /**
+   * Records the solver which ran.
+   * 
+   * @param solver - solver name.
+   */
+  public void addPathStep(final String solver) {
+    this.path.add(solver);
+  }
+
+  /**
+   * Gets solvers which ran, in order.
+   * 
+   * @return solver names.
+   */
+  public List<String> getPath() {
+    return Collections.unmodifiableList(this.path);
+  }
+
+  /**
+   * Records amount of sub-problem solutions explored.
+   * 
+   * @param cells - amount of solutions explored.
+   */
+  public void addCellsExplored(final long cells) {
+    this.cellsExplored += cells;
+  }
+
+  /**
+   * Gets amount of sub-problem solutions explored.
+   * 
+   * @return amount of solutions explored.
+   */
+  public long getCellsExplored() {
+    return this.cellsExplored;
+  }
+
+  /**
+   * Records the denomination which ran out while solving.
+   * 
+   * @param billDenomination - bills denomination.
+   */
+  public void addDepletedDenomination(final BillDenomination billDenomination) {
+    this.depletedDenominations.add(billDenomination);
+  }
+
+  /**
+   * Gets denominations which ran out while solving: some sub-problem could not use one more bill of them.
+   * 
+   * @return denominations.
+   */
+  public Set<BillDenomination> getDepletedDenominations() {
+    return Collections.unmodifiableSet(this.depletedDenominations);
+  }
+
+  /**
+   * Adds time spent in the phase.
+   * 
+   * @param phase - phase name.
+   * @param nanos - time spent in nanoseconds.
+   */
+  public void addPhaseNanos(final String phase, final long nanos) {
+    final Long spent = this.phaseNanos.get(phase);
+    this.phaseNanos.put(phase, (spent == null) ? nanos : spent + nanos);
+  }
+
+  /**
+   * Gets time spent by phase in nanoseconds.
+   * 
+   * @return time spent by phase, in order of the phases.
+   */
+  public Map<String, Long> getPhaseNanos() {
+    return Collections.unmodifiableMap(this.phaseNanos);
+  }
+
+  /**
+   * Records compare-and-set retry of the register.
+   */
+  public void addCasRetry() {
+    this.casRetries++;
+  }
+
+  /**
+   * Gets amount of compare-and-set retries of the register.
+   * 
+   * @return amount of retries.
+   */
+  public int getCasRetries() {
+    return this.casRetries;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    final StringBuilder output = new StringBuilder();
+    output.append("path: ").append(String.join(" -> ", this.path));
+    output.append("; cells: ").append(this.cellsExplored);
+    output.append("; depleted: ").append(this.depletedDenominations);
+    output.append("; cas retries: ").append(this.casRetries);
+    for (final Map.Entry<String, Long> phase : this.phaseNanos.entrySet()) {
+      output.append(String.format("; %1$s: %2$.1f us", phase.getKey(), phase.getValue() / 1000.0));
+    }
+    return output.toString();
+  }
+}
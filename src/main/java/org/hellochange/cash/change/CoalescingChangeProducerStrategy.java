@@ -0,0 +1,167 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hellochange.cash.Cash;
+
+/**
+ * Strategy which coalesces identical concurrent requests: requests for the same change amount from the same register state 
+ * share a single computation of the strategy it decorates.
+ * <p>
+ * The first request computes the change and the requests which arrive while it is in flight wait for its solution. 
+ * Register state is immutable {@link Cash}, so the state itself identifies its version. 
+ * All the requests get the same solution for the same state: one of them wins the commit of the register 
+ * and the others retry against the new state, where they are coalesced again, so the winners are applied one by one.
+ * <p>
+ * Traced requests are not coalesced, so the trace describes the computation of the request itself.
+ * 
+ * @author vladimir
+ *
+ */
+public class CoalescingChangeProducerStrategy implements ChangeProducerStrategy {
+  /** Strategy which computes the change. */
+  private final ChangeProducerStrategy delegate;
+  /** Computations in flight by request. */
+  private final ConcurrentHashMap<Request, CompletableFuture<Solution>> inFlight = new ConcurrentHashMap<>();
+  /** Amount of requests which have waited for the computation of another request. */
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate - strategy which computes the change.
+   */
+  public CoalescingChangeProducerStrategy(final ChangeProducerStrategy delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: delegate");
+    }
+
+    this.delegate = delegate;
+  }
+
+  /**
+   * Gets amount of requests which have waited for the computation of another request.
+   * 
+   * @return amount of requests coalesced.
+   */
+  public long getCoalescedCount() {
+    return this.coalesced.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount) {
+    if (availableCash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: availableCash");
+    }
+
+    final Request request = new Request(availableCash, changeAmount);
+    final CompletableFuture<Solution> computation = new CompletableFuture<>();
+    final CompletableFuture<Solution> existing = this.inFlight.putIfAbsent(request, computation);
+    if (existing != null) {
+      this.coalesced.incrementAndGet();
+      try {
+        return existing.join();
+      } catch (CompletionException cEx) {
+        if (cEx.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) cEx.getCause();
+        }
+        throw cEx;
+      }
+    }
+
+    try {
+      final Solution solution = this.delegate.computeChange(availableCash, changeAmount);
+      computation.complete(solution);
+      return solution;
+    } catch (RuntimeException | Error ex) {
+      computation.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      this.inFlight.remove(request, computation);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Traced requests are passed to the decorated strategy without coalescing.
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount, final ChangeTrace trace) {
+    if (trace == null) {
+      return computeChange(availableCash, changeAmount);
+    }
+
+    trace.addPathStep("coalescing bypass");
+    return this.delegate.computeChange(availableCash, changeAmount, trace);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Passed to the decorated strategy without coalescing.
+   */
+  @Override
+  public List<Solution> computeChanges(final Cash availableCash, final int changeAmount, final int k) {
+    return this.delegate.computeChanges(availableCash, changeAmount, k);
+  }
+
+  /**
+   * Request of the change: register state and change amount.
+   * 
+   * @author vladimir
+   *
+   */
+  private static final class Request {
+    /** Register state. */
+    private final Cash cash;
+    /** Change amount. */
+    private final int amount;
+
+    /**
+     * Constructor.
+     * 
+     * @param cash - register state.
+     * @param amount - change amount.
+     */
+    Request(final Cash cash, final int amount) {
+      this.cash = cash;
+      this.amount = amount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      // hash code of the cash is cached
+      return this.cash.hashCode() * 31 + this.amount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Request)) {
+        return false;
+      }
+      final Request another = (Request) obj;
+      // interned states are the same instances, so the comparison of the contents is rarely needed
+      return (this.amount == another.amount) && ((this.cash == another.cash) || this.cash.equals(another.cash));
+    }
+  }
+}
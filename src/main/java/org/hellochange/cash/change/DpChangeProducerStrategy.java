@@ -3,7 +3,10 @@
  */
 package org.hellochange.cash.change;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.hellochange.cash.BillDenomination;
@@ -13,93 +16,279 @@ import org.hellochange.cash.NoSufficientFundsException;
 /**
  * Dynamic programming bottom up approach for combining a change cash for the change amount requested. 
  * I'm not sure if greedy algorithm will work for limited number of bills - therefore I use fully-fledged dynamic programming approach.
+ * <p>
+ * Every sub-problem keeps its cheapest solutions as the cost and the amount of bills of every denomination used, 
+ * in primitive arrays, so the cost of the request does not depend on the cost function used.
  * 
  * @author vladimir
  */
 public class DpChangeProducerStrategy implements ChangeProducerStrategy {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** How many times more candidate solutions than requested every sub-problem keeps when more than one solution is requested. */
+  private static final int CANDIDATES_FACTOR = 2;
+  /** Maximum amount of candidate solutions every sub-problem keeps, whatever amount of solutions is requested. */
+  private static final int MAX_CANDIDATES = 64;
+  /** Maximum amount of bill counters in the table of candidate solutions, which takes 4 bytes per counter. */
+  private static final int MAX_TABLE_SIZE = 1 << 24;
+
+  /** Cost function to minimize. */
+  private final ChangeCostFunction costFunction;
+
+  /**
+   * Default constructor for the strategy which minimizes amount of bills in the change.
+   */
+  public DpChangeProducerStrategy() {
+    this(ChangeCostFunctions.FEWEST_BILLS);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param costFunction - cost function to minimize.
+   */
+  public DpChangeProducerStrategy(final ChangeCostFunction costFunction) {
+    if (costFunction == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: costFunction");
+    }
+
+    this.costFunction = costFunction;
+  }
 
   /**
    * {@inheritDoc}
    */
   @Override
   public Solution computeChange(final Cash availableCash, final int changeAmount) {
+    return computeChange(availableCash, changeAmount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Records the amount of sub-problem solutions explored, the denominations which ran out and the time spent 
+   * in setup, fill and extract phases.
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount, final ChangeTrace trace) {
+    final List<Solution> solutions = solve(availableCash, changeAmount, 1, trace);
+    return solutions.isEmpty() ? null : solutions.get(0);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Every sub-problem keeps its {@value #CANDIDATES_FACTOR}k cheapest distinct candidate solutions, so all of them are computed 
+   * in a single pass at the cost which is linear in k. This is best-effort: a candidate dropped by a sub-problem may be needed 
+   * by a larger one, when the candidates kept run out of bills or the bill costs depend on the bills left, so fewer than k changes 
+   * or not exactly the k cheapest ones may be returned. The changes returned are always distinct, valid and ordered by their costs.
+   * <p>
+   * Sub-problems keep at most {@value #MAX_CANDIDATES} candidates, so no more changes than that are returned for larger k. 
+   * Change amounts which would need more than {@value #MAX_TABLE_SIZE} bill counters in the table of candidates are rejected 
+   * with {@link IllegalArgumentException}.
+   */
+  @Override
+  public List<Solution> computeChanges(final Cash availableCash, final int changeAmount, final int k) {
+    return solve(availableCash, changeAmount, k, null);
+  }
+
+  /**
+   * Computes up to k cheapest distinct changes.
+   * 
+   * @param availableCash - cash available to produce the change amount requested.
+   * @param changeAmount - change amount.
+   * @param k - maximum amount of solutions to compute.
+   * @param trace - trace to record the computation to, null if it is not traced.
+   * @return solutions ordered by their costs, empty list if it is not possible to allocate cash for change.
+   * @throws IllegalArgumentException if the table of candidate solutions for the change amount is too large.
+   */
+  private List<Solution> solve(final Cash availableCash, final int changeAmount, final int k, final ChangeTrace trace) {
     if (availableCash == null) {
       throw new IllegalArgumentException("Null has been passed in as required parameter: availableCash");
     }
     if (changeAmount < 0) {
       throw new IllegalArgumentException(String.format("Negative value has been passed in for changeAmount parameter: %1$d", changeAmount));
     }
+    if (k <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for k parameter: %1$d", k));
+    }
+    if (trace != null) {
+      trace.addPathStep("dp");
+    }
     if (changeAmount == 0) {
-      return new Solution(availableCash);
+      return Collections.singletonList(new Solution(availableCash));
     }
 
     // check some margin scenarios first
     if (changeAmount > availableCash.getMoneyAmount()) {
-      return null;
+      return Collections.emptyList();
+    }
+
+    final long setupStart = (trace == null) ? 0L : System.nanoTime();
+
+    final int denominationsCount = DENOMINATIONS.length;
+    final int[] billsAvailable = new int[denominationsCount];
+    for (int d = 0; d < denominationsCount; d++) {
+      billsAvailable[d] = availableCash.getBillsAmount(DENOMINATIONS[d]);
     }
 
-    final Map<Integer, Solution> subProblemSolutions = new HashMap<>();
+    // every sub-problem has up to width solutions ordered by their costs, more than k to lose fewer of the k cheapest ones; 
+    // solution i of the sub-problem s is kept at index s * width + i of the costs and its bills - in the next denominationsCount elements 
+    // of the billsUsed array starting at index (s * width + i) * denominationsCount
+    final int width = (k == 1) ? 1 : Math.min(k, MAX_CANDIDATES / CANDIDATES_FACTOR) * CANDIDATES_FACTOR;
+    final int tableSize = getTableSize(changeAmount, width, denominationsCount);
+    final int[] solutionsCount = new int[changeAmount + 1];
+    final int[] costs = new int[tableSize / denominationsCount];
+    final int[] billsUsed = new int[tableSize];
+    // zero step solution
+    solutionsCount[0] = 1;
+    // statistics are collected only if the computation is traced, so the untraced fill does no bookkeeping
+    final boolean traced = (trace != null);
+    long cellsExplored = 0L;
+    int depletedMask = 0;
+    final long fillStart = (trace == null) ? 0L : System.nanoTime();
+
     for (int problemSize = 1; problemSize <= changeAmount; problemSize++) {
-      
-      Solution optimalSolution = null;
-      
-      for (BillDenomination nextDenomination : BillDenomination.values()) {
-        final int subProblemSize = problemSize - nextDenomination.getDenomination();
+      final int firstSolution = problemSize * width;
+
+      for (int d = 0; d < denominationsCount; d++) {
+        final int subProblemSize = problemSize - DENOMINATIONS[d].getDenomination();
 
         if (subProblemSize < 0) {
           continue;
         }
+        if (traced) {
+          cellsExplored += solutionsCount[subProblemSize];
+        }
 
-        if (subProblemSize == 0) {
-          final Solution newSolution = nextSolution(new Solution(availableCash), nextDenomination);
-          if (newSolution != null) {
-            optimalSolution = newSolution;
+        for (int i = 0; i < solutionsCount[subProblemSize]; i++) {
+          final int subSolution = subProblemSize * width + i;
+
+          // add a bill to sub problem solution provided that we have enough cash available
+          final int billsRemaining = billsAvailable[d] - billsUsed[subSolution * denominationsCount + d] - 1;
+          if (billsRemaining < 0) {
+            if (traced) {
+              depletedMask |= 1 << d;
+            }
+            continue;
           }
-          continue;
-        }
 
-        final Solution subProblemSolution = subProblemSolutions.get(subProblemSize);
-        if (subProblemSolution == null) {
-          continue;
-        }
+          final int newCost = costs[subSolution] + this.costFunction.getBillCost(DENOMINATIONS[d], billsRemaining);
 
-        // add a bill to sub problem solution
-        final Solution newSolution = nextSolution(subProblemSolution, nextDenomination);
-        if (newSolution == null) {
-          continue;
+          // find the position of the new solution and make sure it is not a duplicate of one already found
+          int position = solutionsCount[problemSize];
+          boolean duplicate = false;
+          for (int j = solutionsCount[problemSize] - 1; j >= 0; j--) {
+            if (isSameChange(billsUsed, subSolution, d, firstSolution + j)) {
+              duplicate = true;
+              break;
+            }
+            if (costs[firstSolution + j] > newCost) {
+              position = j;
+            }
+          }
+          if (duplicate || (position >= width)) {
+            continue;
+          }
+
+          // shift more expensive solutions, dropping the last one if there is no room for it anymore
+          final int shifted = Math.min(solutionsCount[problemSize], width - 1) - position;
+          System.arraycopy(costs, firstSolution + position, costs, firstSolution + position + 1, shifted);
+          System.arraycopy(billsUsed, (firstSolution + position) * denominationsCount, 
+              billsUsed, (firstSolution + position + 1) * denominationsCount, shifted * denominationsCount);
+
+          costs[firstSolution + position] = newCost;
+          System.arraycopy(billsUsed, subSolution * denominationsCount, billsUsed, (firstSolution + position) * denominationsCount, denominationsCount);
+          billsUsed[(firstSolution + position) * denominationsCount + d]++;
+          solutionsCount[problemSize] = Math.min(solutionsCount[problemSize] + 1, width);
         }
-        
-        if ((optimalSolution == null) || (optimalSolution.getPriority() > newSolution.getPriority())) {
-          optimalSolution = newSolution;
+      }
+    }
+
+    final long extractStart = (trace == null) ? 0L : System.nanoTime();
+    final int solutionsFound = Math.min(solutionsCount[changeAmount], k);
+    final List<Solution> solutions = new ArrayList<>(solutionsFound);
+    for (int i = 0; i < solutionsFound; i++) {
+      final int solution = changeAmount * width + i;
+      solutions.add(toSolution(availableCash, billsUsed, solution * denominationsCount, costs[solution]));
+    }
+
+    if (traced) {
+      trace.addPhaseNanos("setup", fillStart - setupStart);
+      trace.addPhaseNanos("fill", extractStart - fillStart);
+      trace.addPhaseNanos("extract", System.nanoTime() - extractStart);
+      trace.addCellsExplored(cellsExplored);
+      for (int d = 0; d < denominationsCount; d++) {
+        if ((depletedMask & (1 << d)) != 0) {
+          trace.addDepletedDenomination(DENOMINATIONS[d]);
         }
       }
-      
-      if(optimalSolution != null) {
-        subProblemSolutions.put(problemSize, optimalSolution);
+    }
+    return solutions;
+  }
+
+  /**
+   * Gets amount of bill counters in the table of candidate solutions.
+   * 
+   * @param changeAmount - change amount.
+   * @param width - amount of candidate solutions per sub-problem.
+   * @param denominationsCount - amount of denominations.
+   * @return amount of bill counters.
+   * @throws IllegalArgumentException if the table would have more than {@value #MAX_TABLE_SIZE} bill counters.
+   */
+  private static int getTableSize(final int changeAmount, final int width, final int denominationsCount) {
+    try {
+      final int tableSize = Math.multiplyExact(Math.multiplyExact(Math.addExact(changeAmount, 1), width), denominationsCount);
+      if (tableSize <= MAX_TABLE_SIZE) {
+        return tableSize;
       }
+    } catch (ArithmeticException aEx) {
+      // too large as well
     }
+    throw new IllegalArgumentException(String.format(
+        "Too large change amount has been passed in for %2$d candidate solutions per sub-problem: %1$d", changeAmount, width));
+  }
 
-    return subProblemSolutions.get(changeAmount);
+  /**
+   * Checks whether the sub-problem solution with one more bill added is the same change as another solution.
+   * 
+   * @param billsUsed - array which contains amounts of bills used by the solutions.
+   * @param subSolution - index of the sub-problem solution.
+   * @param denomination - index of the denomination of the bill added.
+   * @param solution - index of another solution.
+   * @return true if changes are the same.
+   */
+  private static boolean isSameChange(final int[] billsUsed, final int subSolution, final int denomination, final int solution) {
+    final int denominationsCount = DENOMINATIONS.length;
+    for (int d = 0; d < denominationsCount; d++) {
+      final int subSolutionBills = billsUsed[subSolution * denominationsCount + d] + ((d == denomination) ? 1 : 0);
+      if (subSolutionBills != billsUsed[solution * denominationsCount + d]) {
+        return false;
+      }
+    }
+    return true;
   }
-  
+
   /**
-   * Tries to create the next solution for the bill denomination and sub problem solution passed in provided that we have enough cash available. 
-   * If it is not possible due to a cash shortage - returns null.
+   * Creates solution from the amounts of bills used by a change.
    * 
-   * @param subSolution - sub-problem solution to derive next solution from.
-   * @param denomination - bill denomination to use to derive the new solution.
-   * @return next solution.
+   * @param availableCash - cash available to produce the change.
+   * @param billsUsed - array which contains amounts of bills used by the change.
+   * @param offset - offset of the change in the array.
+   * @param cost - cost of the change.
+   * @return solution.
    */
-  private Solution nextSolution(Solution subSolution, final BillDenomination denomination) {
+  private static Solution toSolution(final Cash availableCash, final int[] billsUsed, final int offset, final int cost) {
+    final Map<BillDenomination, Integer> changeContents = new HashMap<>();
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      changeContents.put(DENOMINATIONS[d], billsUsed[offset + d]);
+    }
+
+    final Cash change = Cash.newInstance(changeContents);
     try {
-      final Cash cashAvail = subSolution.getRemainingCash();
-      final Cash cashRemaining = cashAvail.subtractBills(denomination, 1);
-      
-      final Cash change = subSolution.getChange().addBills(denomination, 1);
-      
-      return new Solution(change, cashRemaining);
+      return new Solution(change, availableCash.subtract(change), cost);
     } catch (NoSufficientFundsException nsfEx) {
-      return null;
+      throw new IllegalStateException("Change computed uses more bills than available.", nsfEx);
     }
   }
-}
\ No newline at end of file
+}
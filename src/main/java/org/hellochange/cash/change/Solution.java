@@ -13,16 +13,30 @@ public class Solution {
   private final Cash change;
   /** Cash remaining after change. */
   private final Cash remainingCash;
+  /** Cost of the change. */
+  private final int cost;
   
   /**
-   * Constructor.
+   * Constructor for the solution which costs the amount of bills in the change.
    * 
    * @param change - change cash object computed.
    * @param remainingCash - remaining cash.
    */
   public Solution(final Cash change, final Cash remainingCash) {
+    this(change, remainingCash, change.getBillsAmount());
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param change - change cash object computed.
+   * @param remainingCash - remaining cash.
+   * @param cost - cost of the change as defined by {@link ChangeCostFunction} used to compute it.
+   */
+  public Solution(final Cash change, final Cash remainingCash, final int cost) {
     this.change = change;
     this.remainingCash = remainingCash;
+    this.cost = cost;
   }
   
   /**
@@ -31,17 +45,16 @@ public class Solution {
    * @param remainingCash - remaining cash.
    */
   public Solution(final Cash remainingCash) {
-    this.change = Cash.EMPTY;
-    this.remainingCash = remainingCash;
+    this(Cash.EMPTY, remainingCash, 0);
   }   
   
   /**
-   * Gets the priority of the solution.
+   * Gets the priority of the solution: the lower it is, the better the solution is.
    * 
    * @return the priority of the solution. 
    */
   public int getPriority() {
-    return this.change.getBillsAmount();
+    return this.cost;
   }
 
   /**
@@ -0,0 +1,134 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.NoSufficientFundsException;
+
+/**
+ * Strategy which minimizes amount of bills in the change by looking it up in the table precomputed for the unlimited amount of bills 
+ * and falls back to the bounded solver if the register does not have enough bills for the change found.
+ * <p>
+ * The change found in the table is the cheapest one among all the changes possible with unlimited bills, so it is the cheapest one 
+ * for the register as well if the register has all of its bills: a well stocked drawer gets the answer in constant time. 
+ * Any other request, including requests for several alternative changes, is passed to the fallback strategy.
+ * 
+ * @author vladimir
+ */
+public class TableChangeProducerStrategy implements ChangeProducerStrategy {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Strategy to fall back to. */
+  private final ChangeProducerStrategy fallback;
+
+  /**
+   * Default constructor for the strategy which falls back to {@link DpChangeProducerStrategy}.
+   */
+  public TableChangeProducerStrategy() {
+    this(new DpChangeProducerStrategy());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param fallback - strategy to fall back to, must minimize amount of bills in the change as well.
+   */
+  public TableChangeProducerStrategy(final ChangeProducerStrategy fallback) {
+    if (fallback == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: fallback");
+    }
+
+    this.fallback = fallback;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount) {
+    return computeChange(availableCash, changeAmount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Records whether the table has been hit and the time of the lookup, a miss is traced by the fallback strategy.
+   */
+  @Override
+  public Solution computeChange(final Cash availableCash, final int changeAmount, final ChangeTrace trace) {
+    if (availableCash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: availableCash");
+    }
+    if (changeAmount < 0) {
+      throw new IllegalArgumentException(String.format("Negative value has been passed in for changeAmount parameter: %1$d", changeAmount));
+    }
+    if ((changeAmount == 0) || (changeAmount > availableCash.getMoneyAmount())) {
+      return fallBack(availableCash, changeAmount, trace);
+    }
+    final long lookupStart = (trace == null) ? 0L : System.nanoTime();
+
+    // check the register has all the bills of the change found in the table, which is computed on the first request
+    final UnboundedChangeTable table = UnboundedChangeTable.INSTANCE;
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      final int billsAmount = table.getBillsAmount(changeAmount, d);
+      if ((billsAmount < 0) || (billsAmount > availableCash.getBillsAmount(DENOMINATIONS[d]))) {
+        if ((trace != null) && (billsAmount > 0)) {
+          trace.addDepletedDenomination(DENOMINATIONS[d]);
+        }
+        return fallBack(availableCash, changeAmount, trace);
+      }
+    }
+
+    final Map<BillDenomination, Integer> changeContents = new HashMap<>();
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      changeContents.put(DENOMINATIONS[d], table.getBillsAmount(changeAmount, d));
+    }
+
+    final Cash change = Cash.newInstance(changeContents);
+    try {
+      final Solution solution = new Solution(change, availableCash.subtract(change));
+      if (trace != null) {
+        trace.addPathStep("table");
+        trace.addPhaseNanos("lookup", System.nanoTime() - lookupStart);
+      }
+      return solution;
+    } catch (NoSufficientFundsException nsfEx) {
+      throw new IllegalStateException("Change computed uses more bills than available.", nsfEx);
+    }
+  }
+
+  /**
+   * Passes the request to the fallback strategy.
+   * 
+   * @param availableCash - cash available to produce the change amount requested.
+   * @param changeAmount - change amount.
+   * @param trace - trace to record the computation to, null if it is not traced.
+   * @return solution computed by the fallback strategy.
+   */
+  private Solution fallBack(final Cash availableCash, final int changeAmount, final ChangeTrace trace) {
+    if (trace != null) {
+      trace.addPathStep("table miss");
+    }
+    return this.fallback.computeChange(availableCash, changeAmount, trace);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Passed to the fallback strategy if more than one solution is requested.
+   */
+  @Override
+  public List<Solution> computeChanges(final Cash availableCash, final int changeAmount, final int k) {
+    if (k == 1) {
+      return ChangeProducerStrategy.super.computeChanges(availableCash, changeAmount, k);
+    }
+    return this.fallback.computeChanges(availableCash, changeAmount, k);
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * 
+ */
+package org.hellochange.cash.change;
+
+import java.util.Arrays;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Fewest bills changes for the unlimited amount of bills of every denomination, precomputed once for the denominations supported.
+ * <p>
+ * If a change has at least L bills smaller than the largest denomination L, some of them sum up to a multiple of L 
+ * and can be replaced with fewer bills of L. So the cheapest change of any amount above (L - 1) times the second largest 
+ * denomination contains a bill of L, and the change of amount a is the change of amount a - L plus a bill of L. 
+ * The table covers the amounts up to that bound plus one period L, and larger amounts are reduced into the last period.
+ * 
+ * @author vladimir
+ *
+ */
+final class UnboundedChangeTable {
+  /** Table for the denominations supported. */
+  static final UnboundedChangeTable INSTANCE = new UnboundedChangeTable(BillDenomination.values());
+
+  /** Supported bill denominations. */
+  private final BillDenomination[] denominations;
+  /** Index of the largest denomination. */
+  private final int largestIndex;
+  /** Largest denomination. */
+  private final int largest;
+  /** Amount of the changes in the table. */
+  private final int size;
+  /** Amounts of bills of every denomination of the change of amount a starting at index a * denominations.length, negative if there is no change. */
+  private final int[] billsUsed;
+
+  /**
+   * Constructor which precomputes the table.
+   * 
+   * @param denominations - supported bill denominations.
+   */
+  UnboundedChangeTable(final BillDenomination[] denominations) {
+    this.denominations = denominations;
+
+    int largestIndex = 0;
+    for (int d = 1; d < denominations.length; d++) {
+      if (denominations[d].getDenomination() > denominations[largestIndex].getDenomination()) {
+        largestIndex = d;
+      }
+    }
+    int secondLargest = 0;
+    for (int d = 0; d < denominations.length; d++) {
+      if (d != largestIndex) {
+        secondLargest = Math.max(secondLargest, denominations[d].getDenomination());
+      }
+    }
+
+    this.largestIndex = largestIndex;
+    this.largest = denominations[largestIndex].getDenomination();
+    this.size = (this.largest - 1) * secondLargest + this.largest;
+    this.billsUsed = compute(denominations, this.size);
+  }
+
+  /**
+   * Gets the amount of bills of the denomination in the cheapest change of the amount passed in.
+   * 
+   * @param changeAmount - change amount.
+   * @param denominationIndex - denomination ordinal.
+   * @return amount of bills, negative if the amount cannot be composed of the denominations supported.
+   */
+  int getBillsAmount(final int changeAmount, final int denominationIndex) {
+    final int periods = getPeriods(changeAmount);
+    final int billsAmount = this.billsUsed[(changeAmount - periods * this.largest) * this.denominations.length + denominationIndex];
+    return ((billsAmount >= 0) && (denominationIndex == this.largestIndex)) ? billsAmount + periods : billsAmount;
+  }
+
+  /**
+   * Gets the amount of the periods the change amount has to be reduced by to fit in the table.
+   * 
+   * @param changeAmount - change amount.
+   * @return amount of the periods.
+   */
+  private int getPeriods(final int changeAmount) {
+    return (changeAmount < this.size) ? 0 : (changeAmount - this.size) / this.largest + 1;
+  }
+
+  /**
+   * Computes the cheapest changes of all the amounts below the size passed in with the unlimited amount of bills, 
+   * in the same order as {@link DpChangeProducerStrategy}, so ties are resolved the same way.
+   * 
+   * @param denominations - supported bill denominations.
+   * @param size - amount of the changes to compute.
+   * @return amounts of bills of every change.
+   */
+  private static int[] compute(final BillDenomination[] denominations, final int size) {
+    final int denominationsCount = denominations.length;
+    final int[] billsCount = new int[size];
+    final int[] billsUsed = new int[size * denominationsCount];
+    for (int amount = 1; amount < size; amount++) {
+      billsCount[amount] = -1;
+      int best = -1;
+      for (int d = 0; d < denominationsCount; d++) {
+        final int subAmount = amount - denominations[d].getDenomination();
+        if ((subAmount >= 0) && (billsCount[subAmount] >= 0) && ((billsCount[amount] < 0) || (billsCount[subAmount] + 1 < billsCount[amount]))) {
+          billsCount[amount] = billsCount[subAmount] + 1;
+          best = d;
+        }
+      }
+
+      if (best < 0) {
+        Arrays.fill(billsUsed, amount * denominationsCount, (amount + 1) * denominationsCount, -1);
+        continue;
+      }
+      final int subAmount = amount - denominations[best].getDenomination();
+      System.arraycopy(billsUsed, subAmount * denominationsCount, billsUsed, amount * denominationsCount, denominationsCount);
+      billsUsed[amount * denominationsCount + best]++;
+    }
+    return billsUsed;
+  }
+}
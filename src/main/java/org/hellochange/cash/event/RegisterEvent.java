@@ -0,0 +1,120 @@
+/**
+ * 
+ */
+package org.hellochange.cash.event;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Change of the cash register state. Instances are owned and reused by {@link RegisterEventConsumer}: 
+ * handlers must copy whatever they need before they return.
+ * 
+ * @author vladimir
+ *
+ */
+public final class RegisterEvent {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Sequence number of the event. */
+  private long sequence;
+  /** Operation. */
+  private RegisterOperation operation;
+  /** Change of amount of bills by denomination ordinal. */
+  private final int[] deltas = new int[DENOMINATIONS.length];
+  /** Resulting total amount of money in the register. */
+  private int moneyAmount;
+  /** Resulting total amount of bills in the register. */
+  private int billsAmount;
+
+  /**
+   * Constructor.
+   */
+  RegisterEvent() {
+    // nothing to do here
+  }
+
+  /**
+   * Gets sequence number of the event.
+   * 
+   * @return sequence number of the event.
+   */
+  public long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets operation.
+   * 
+   * @return operation.
+   */
+  public RegisterOperation getOperation() {
+    return this.operation;
+  }
+
+  /**
+   * Gets change of amount of bills of the denomination passed in: positive if bills have been added, negative if removed.
+   * 
+   * @param billDenomination - bills denomination.
+   * @return change of amount of bills.
+   */
+  public int getDelta(final BillDenomination billDenomination) {
+    return this.deltas[billDenomination.ordinal()];
+  }
+
+  /**
+   * Gets resulting total amount of money in the register.
+   * 
+   * @return resulting total amount of money in the register.
+   */
+  public int getMoneyAmount() {
+    return this.moneyAmount;
+  }
+
+  /**
+   * Gets resulting total amount of bills in the register.
+   * 
+   * @return resulting total amount of bills in the register.
+   */
+  public int getBillsAmount() {
+    return this.billsAmount;
+  }
+
+  /**
+   * Sets all the fields of the event.
+   * 
+   * @param sequence - sequence number of the event.
+   * @param operation - operation.
+   * @param moneyAmount - resulting total amount of money.
+   * @param billsAmount - resulting total amount of bills.
+   */
+  void set(final long sequence, final RegisterOperation operation, final int moneyAmount, final int billsAmount) {
+    this.sequence = sequence;
+    this.operation = operation;
+    this.moneyAmount = moneyAmount;
+    this.billsAmount = billsAmount;
+  }
+
+  /**
+   * Sets change of amount of bills of the denomination passed in.
+   * 
+   * @param denominationIndex - denomination ordinal.
+   * @param delta - change of amount of bills.
+   */
+  void setDelta(final int denominationIndex, final int delta) {
+    this.deltas[denominationIndex] = delta;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    final StringBuilder output = new StringBuilder();
+    output.append('#').append(this.sequence).append(' ').append(this.operation).append(" $").append(this.moneyAmount);
+    for (int i = DENOMINATIONS.length - 1; i >= 0; i--) {
+      output.append(' ').append(this.deltas[i]);
+    }
+    return output.toString();
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * 
+ */
+package org.hellochange.cash.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads events from {@link RegisterEventRing} in batches. Not thread-safe: every consumer is meant to be polled by a single thread.
+ * 
+ * @author vladimir
+ *
+ */
+public final class RegisterEventConsumer {
+  /** Ring to read from. */
+  private final RegisterEventRing ring;
+  /** Next sequence number to read, seen by producers if the consumer is gating. */
+  private final AtomicLong sequenceRef;
+  /** Event to deliver. */
+  private RegisterEvent event;
+  /** Event to read ahead into. */
+  private RegisterEvent nextEvent;
+  /** Next sequence number to read ahead. */
+  private long nextSequence;
+  /** Amount of events overwritten before they have been read. */
+  private long lostEvents;
+
+  /**
+   * Constructor.
+   * 
+   * @param ring - ring to read from.
+   * @param sequenceRef - next sequence number to read.
+   */
+  RegisterEventConsumer(final RegisterEventRing ring, final AtomicLong sequenceRef) {
+    this.ring = ring;
+    this.sequenceRef = sequenceRef;
+    this.event = new RegisterEvent();
+    this.nextEvent = new RegisterEvent();
+  }
+
+  /**
+   * Gets the next sequence number to read.
+   * 
+   * @return the next sequence number to read.
+   */
+  public long getSequence() {
+    return this.sequenceRef.get();
+  }
+
+  /**
+   * Gets amount of events overwritten before they have been read. Always zero for gating consumers.
+   * 
+   * @return amount of events lost.
+   */
+  public long getLostEvents() {
+    return this.lostEvents;
+  }
+
+  /**
+   * Reads the events published and passes them to the handler.
+   * 
+   * @param handler - event handler.
+   * @param maxBatch - maximum amount of events to read.
+   * @return amount of events read.
+   */
+  public int poll(final RegisterEventHandler handler, final int maxBatch) {
+    if (handler == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: handler");
+    }
+    if (maxBatch <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for maxBatch parameter: %1$d", maxBatch));
+    }
+
+    this.nextSequence = this.sequenceRef.get();
+    if (!readAhead(this.event)) {
+      this.sequenceRef.lazySet(this.nextSequence);
+      return 0;
+    }
+
+    int polled = 0;
+    while (true) {
+      polled++;
+      // read one more event ahead to know whether the current one is the last of the batch
+      final boolean more = (polled < maxBatch) && readAhead(this.nextEvent);
+      handler.onEvent(this.event, !more);
+      if (!more) {
+        break;
+      }
+
+      final RegisterEvent handled = this.event;
+      this.event = this.nextEvent;
+      this.nextEvent = handled;
+    }
+
+    this.sequenceRef.lazySet(this.nextSequence);
+    return polled;
+  }
+
+  /**
+   * Gets reference to the next sequence number to read.
+   * 
+   * @return reference to the next sequence number to read.
+   */
+  AtomicLong getSequenceRef() {
+    return this.sequenceRef;
+  }
+
+  /**
+   * Reads the next event published, skipping events overwritten.
+   * 
+   * @param target - event to read into.
+   * @return true if event has been read, false if there are no more events published.
+   */
+  private boolean readAhead(final RegisterEvent target) {
+    while (true) {
+      final int status = this.ring.read(this.nextSequence, target);
+      if (status > 0) {
+        this.nextSequence++;
+        return true;
+      }
+      if (status == 0) {
+        return false;
+      }
+
+      // events overwritten: continue with the oldest event which may still be in the ring
+      final long oldestSequence = Math.max(this.nextSequence + 1, this.ring.getCursor() - this.ring.getCapacity());
+      this.lostEvents += oldestSequence - this.nextSequence;
+      this.nextSequence = oldestSequence;
+    }
+  }
+}
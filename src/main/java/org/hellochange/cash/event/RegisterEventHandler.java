@@ -0,0 +1,21 @@
+/**
+ * 
+ */
+package org.hellochange.cash.event;
+
+/**
+ * Handles register events polled by {@link RegisterEventConsumer}.
+ * 
+ * @author vladimir
+ *
+ */
+@FunctionalInterface
+public interface RegisterEventHandler {
+  /**
+   * Handles the event.
+   * 
+   * @param event - event; reused once the method returns.
+   * @param endOfBatch - whether this is the last event of the batch polled.
+   */
+  void onEvent(RegisterEvent event, boolean endOfBatch);
+}
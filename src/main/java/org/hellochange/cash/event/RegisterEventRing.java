@@ -0,0 +1,226 @@
+/**
+ * 
+ */
+package org.hellochange.cash.event;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+
+/**
+ * Ring buffer of preallocated register events in the spirit of the Disruptor. Events are published by the register 
+ * threads without locks or allocation and read in batches by any amount of consumers.
+ * <p>
+ * Every slot is a seqlock: it is marked as being written for the sequence number of the event, its fields are written 
+ * and then it is stamped with the sequence number, so consumers detect events overwritten while being read. By default producers never wait for 
+ * consumers and slow consumers lose events; gating consumers make producers wait for them instead when the ring is full.
+ * <p>
+ * The ring has a single producer register which claims the sequence numbers of its events in the order of its commits 
+ * (see {@link org.hellochange.cash.SimpleCashRegister}) and may publish them out of that order; consumers read them 
+ * in the order of the sequence numbers, waiting for the events not published yet. So events come in the order of the commits 
+ * and the resulting totals of the events never go back.
+ * <p>
+ * A producer waits, yielding the processor, while the slot of its event has not been read by some gating consumer yet.
+ * 
+ * @author vladimir
+ *
+ */
+public class RegisterEventRing {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Offset of the sequence number in the slot. */
+  private static final int SEQUENCE = 0;
+  /** Offset of the operation in the slot. */
+  private static final int OPERATION = 1;
+  /** Offset of the resulting total amount of money in the slot. */
+  private static final int MONEY_AMOUNT = 2;
+  /** Offset of the resulting total amount of bills in the slot. */
+  private static final int BILLS_AMOUNT = 3;
+  /** Offset of the deltas in the slot. */
+  private static final int DELTAS = 4;
+  /** Width of the slot: padded to two cache lines so slots written by different producers never share one. */
+  private static final int SLOT_WIDTH = 16;
+
+  /** Sequence number of the slot which has never been written. */
+  private static final long UNUSED = -1L;
+
+  /** Operations. */
+  private static final RegisterOperation[] OPERATIONS = RegisterOperation.values();
+
+  /** Amount of slots. */
+  private final int capacity;
+  /** Mask to compute slot index of a sequence number. */
+  private final int mask;
+  /** Slots. */
+  private final AtomicLongArray slots;
+  /** Sequence number following the greatest one published. */
+  private final AtomicLong cursor;
+  /** Next sequence numbers to read by gating consumers. */
+  private volatile AtomicLong[] gatingSequences;
+
+  /**
+   * Constructor.
+   * 
+   * @param capacity - amount of slots, power of two.
+   */
+  public RegisterEventRing(final int capacity) {
+    if ((capacity <= 0) || (Integer.bitCount(capacity) != 1)) {
+      throw new IllegalArgumentException(String.format("Capacity must be positive power of two, but was: %1$d", capacity));
+    }
+    if (DELTAS + DENOMINATIONS.length > SLOT_WIDTH) {
+      throw new IllegalStateException("Too many denominations to fit the slot.");
+    }
+
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.slots = new AtomicLongArray(capacity * SLOT_WIDTH);
+    for (int i = 0; i < capacity; i++) {
+      this.slots.set(i * SLOT_WIDTH + SEQUENCE, UNUSED);
+    }
+    this.cursor = new AtomicLong();
+    this.gatingSequences = new AtomicLong[0];
+  }
+
+  /**
+   * Gets amount of slots.
+   * 
+   * @return amount of slots.
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Gets the sequence number following the greatest one published, the one the next event will be published with 
+   * unless some events are being published.
+   * 
+   * @return the sequence number of the next event.
+   */
+  public long getCursor() {
+    return this.cursor.get();
+  }
+
+  /**
+   * Creates consumer which reads events published from now on.
+   * 
+   * @param gating - whether producers have to wait for the consumer instead of overwriting events it has not read yet.
+   * @return consumer.
+   */
+  public synchronized RegisterEventConsumer newConsumer(final boolean gating) {
+    final AtomicLong sequence = new AtomicLong(this.cursor.get());
+    if (gating) {
+      final AtomicLong[] sequences = Arrays.copyOf(this.gatingSequences, this.gatingSequences.length + 1);
+      sequences[sequences.length - 1] = sequence;
+      this.gatingSequences = sequences;
+      // events claimed before the consumer has been registered could have skipped the gating
+      sequence.set(this.cursor.get());
+    }
+    return new RegisterEventConsumer(this, sequence);
+  }
+
+  /**
+   * Removes the gating consumer, so producers do not wait for it anymore.
+   * 
+   * @param consumer - consumer to remove.
+   */
+  public synchronized void removeConsumer(final RegisterEventConsumer consumer) {
+    final AtomicLong[] sequences = this.gatingSequences;
+    for (int i = 0; i < sequences.length; i++) {
+      if (sequences[i] == consumer.getSequenceRef()) {
+        final AtomicLong[] newSequences = new AtomicLong[sequences.length - 1];
+        System.arraycopy(sequences, 0, newSequences, 0, i);
+        System.arraycopy(sequences, i + 1, newSequences, i, sequences.length - i - 1);
+        this.gatingSequences = newSequences;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Publishes the event for the state change committed.
+   * 
+   * @param sequence - sequence number of the event claimed by the producer in the order of its commits. 
+   * Every sequence number starting from {@link #getCursor()} at the time the producer has been created has to be published exactly once.
+   * @param operation - operation.
+   * @param prev - state of the register before the operation.
+   * @param next - state of the register after the operation.
+   */
+  public void publish(final long sequence, final RegisterOperation operation, final Cash prev, final Cash next) {
+    long cursorValue;
+    while ((cursorValue = this.cursor.get()) <= sequence) {
+      if (this.cursor.compareAndSet(cursorValue, sequence + 1)) {
+        break;
+      }
+    }
+    awaitCapacity(sequence);
+
+    final int slot = (int) (sequence & this.mask) * SLOT_WIDTH;
+    this.slots.set(slot + SEQUENCE, writingMark(sequence));
+    this.slots.lazySet(slot + OPERATION, operation.ordinal());
+    this.slots.lazySet(slot + MONEY_AMOUNT, next.getMoneyAmount());
+    this.slots.lazySet(slot + BILLS_AMOUNT, next.getBillsAmount());
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      this.slots.lazySet(slot + DELTAS + i, next.getBillsAmount(DENOMINATIONS[i]) - prev.getBillsAmount(DENOMINATIONS[i]));
+    }
+    this.slots.lazySet(slot + SEQUENCE, sequence);
+  }
+
+  /**
+   * Reads event from the ring.
+   * 
+   * @param sequence - sequence number of the event.
+   * @param event - event to read into.
+   * @return 1 if event has been read, 0 if it has not been published yet, -1 if it has already been overwritten.
+   */
+  int read(final long sequence, final RegisterEvent event) {
+    final int slot = (int) (sequence & this.mask) * SLOT_WIDTH;
+    final long stamp = this.slots.get(slot + SEQUENCE);
+    if (stamp != sequence) {
+      // slot is either being written or stamped for an older or a newer event
+      final long slotSequence = (stamp < UNUSED) ? writingMark(stamp) : stamp;
+      return (slotSequence > sequence) ? -1 : 0;
+    }
+
+    event.set(sequence, OPERATIONS[(int) this.slots.get(slot + OPERATION)], 
+        (int) this.slots.get(slot + MONEY_AMOUNT), (int) this.slots.get(slot + BILLS_AMOUNT));
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      event.setDelta(i, (int) this.slots.get(slot + DELTAS + i));
+    }
+
+    return (this.slots.get(slot + SEQUENCE) == sequence) ? 1 : -1;
+  }
+
+  /**
+   * Converts sequence number to the mark of the slot being written for it and vice versa. 
+   * Marks are negative and never equal to {@link #UNUSED}.
+   * 
+   * @param value - sequence number or mark.
+   * @return mark or sequence number.
+   */
+  private static long writingMark(final long value) {
+    return -value - 2;
+  }
+
+  /**
+   * Waits until the slot of the sequence number passed in is read by all the gating consumers.
+   * 
+   * @param sequence - sequence number.
+   */
+  private void awaitCapacity(final long sequence) {
+    while (true) {
+      final AtomicLong[] sequences = this.gatingSequences;
+      long minSequence = Long.MAX_VALUE;
+      for (AtomicLong nextSequence : sequences) {
+        minSequence = Math.min(minSequence, nextSequence.get());
+      }
+      if (sequence - minSequence < this.capacity) {
+        return;
+      }
+      Thread.yield();
+    }
+  }
+}
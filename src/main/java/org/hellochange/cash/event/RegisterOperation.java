@@ -0,0 +1,19 @@
+/**
+ * 
+ */
+package org.hellochange.cash.event;
+
+/**
+ * Operations which change the state of the cash register.
+ * 
+ * @author vladimir
+ *
+ */
+public enum RegisterOperation {
+  /** Cash has been added to the register. */
+  ADD, 
+  /** Cash has been removed from the register. */
+  REMOVE, 
+  /** Change has been extracted from the register. */
+  CHANGE
+}
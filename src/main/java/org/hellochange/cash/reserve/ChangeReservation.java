@@ -0,0 +1,96 @@
+/**
+ * 
+ */
+package org.hellochange.cash.reserve;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hellochange.cash.Cash;
+
+/**
+ * Token of the change held by {@link ReservableCashRegister} until it is either committed or released.
+ * 
+ * @author vladimir
+ *
+ */
+public final class ChangeReservation {
+  /** Register the change is reserved in. */
+  private final ReservableCashRegister cashRegister;
+  /** Change reserved. */
+  private final Cash change;
+  /** State of the reservation. */
+  private final AtomicReference<ReservationState> state;
+
+  /**
+   * Constructor.
+   * 
+   * @param cashRegister - register the change is reserved in.
+   * @param change - change reserved.
+   */
+  ChangeReservation(final ReservableCashRegister cashRegister, final Cash change) {
+    this.cashRegister = cashRegister;
+    this.change = change;
+    this.state = new AtomicReference<>(ReservationState.PENDING);
+  }
+
+  /**
+   * Gets change reserved.
+   * 
+   * @return change reserved.
+   */
+  public Cash getChange() {
+    return this.change;
+  }
+
+  /**
+   * Gets state of the reservation.
+   * 
+   * @return state of the reservation.
+   */
+  public ReservationState getState() {
+    return this.state.get();
+  }
+
+  /**
+   * Gives the change reserved away.
+   * 
+   * @return true if change has been committed, false if reservation is not pending anymore.
+   */
+  public boolean commit() {
+    if (!this.state.compareAndSet(ReservationState.PENDING, ReservationState.COMMITTED)) {
+      return false;
+    }
+    this.cashRegister.onCommit(this);
+    return true;
+  }
+
+  /**
+   * Returns the change reserved to the register.
+   * 
+   * @return true if change has been released, false if reservation is not pending anymore.
+   */
+  public boolean release() {
+    return finish(ReservationState.RELEASED);
+  }
+
+  /**
+   * Returns the change reserved to the register if reservation is still pending.
+   */
+  void expire() {
+    finish(ReservationState.EXPIRED);
+  }
+
+  /**
+   * Returns the change reserved to the register.
+   * 
+   * @param finalState - final state of the reservation.
+   * @return true if change has been returned, false if reservation is not pending anymore.
+   */
+  private boolean finish(final ReservationState finalState) {
+    if (!this.state.compareAndSet(ReservationState.PENDING, finalState)) {
+      return false;
+    }
+    this.cashRegister.onRelease(this);
+    return true;
+  }
+}
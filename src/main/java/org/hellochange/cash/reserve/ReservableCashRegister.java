@@ -0,0 +1,162 @@
+/**
+ * 
+ */
+package org.hellochange.cash.reserve;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+
+/**
+ * Cash register which supports two-phase change: change is reserved first and then either committed or released. 
+ * <p>
+ * Reserved bills are taken out of the float of the underlying register right away, so other requests go ahead 
+ * on the unreserved float without waiting for the reservation to finish. Pending reservations are accounted 
+ * in a separate lock-free cash reference and expire through the timer wheel if not finished in time.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReservableCashRegister implements CashRegister {
+  /** Underlying register which holds the unreserved float. */
+  private final CashRegister cashRegister;
+  /** Timer wheel reservations expire through. */
+  private final TimerWheel timerWheel;
+  /** Time pending reservations expire after, in nanoseconds. */
+  private final long reservationTimeoutNanos;
+  /** Cash held by pending reservations. */
+  private final AtomicReference<Cash> reservedRef;
+
+  /**
+   * Constructor.
+   * 
+   * @param cashRegister - underlying register which holds the unreserved float.
+   * @param timerWheel - timer wheel reservations expire through.
+   * @param reservationTimeout - time pending reservations expire after.
+   * @param unit - time unit of the reservation timeout.
+   */
+  public ReservableCashRegister(final CashRegister cashRegister, final TimerWheel timerWheel, final long reservationTimeout, final TimeUnit unit) {
+    if (cashRegister == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cashRegister");
+    }
+    if (timerWheel == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: timerWheel");
+    }
+    if (reservationTimeout <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for reservationTimeout parameter: %1$d", reservationTimeout));
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: unit");
+    }
+
+    this.cashRegister = cashRegister;
+    this.timerWheel = timerWheel;
+    this.reservationTimeoutNanos = unit.toNanos(reservationTimeout);
+    this.reservedRef = new AtomicReference<>(Cash.EMPTY);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Cash held by pending reservations is not included.
+   */
+  @Override
+  public Cash getContents() {
+    return this.cashRegister.getContents();
+  }
+
+  /**
+   * Gets cash held by pending reservations.
+   * 
+   * @return cash held by pending reservations.
+   */
+  public Cash getReserved() {
+    return this.reservedRef.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash add(final Cash cash) {
+    return this.cashRegister.add(cash);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash remove(final Cash cash) throws NoSufficientFundsException {
+    return this.cashRegister.remove(cash);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash change(final Integer amount) {
+    return this.cashRegister.change(amount);
+  }
+
+  /**
+   * For the change amount passed in computes and reserves corresponding cash if available.
+   * 
+   * @param amount - change amount.
+   * @return reservation of the change or null if change is not available.
+   */
+  public ChangeReservation reserveChange(final Integer amount) {
+    final Cash change = this.cashRegister.change(amount);
+    if (change == null) {
+      return null;
+    }
+
+    final ChangeReservation reservation = new ChangeReservation(this, change);
+    Cash prev, next;
+    do {
+      prev = this.reservedRef.get();
+      next = prev.add(change);
+    } while (!this.reservedRef.compareAndSet(prev, next));
+
+    this.timerWheel.schedule(reservation::expire, this.reservationTimeoutNanos, TimeUnit.NANOSECONDS);
+    return reservation;
+  }
+
+  /**
+   * Accounts the reservation committed.
+   * 
+   * @param reservation - reservation committed.
+   */
+  void onCommit(final ChangeReservation reservation) {
+    unreserve(reservation.getChange());
+  }
+
+  /**
+   * Returns the change of the reservation released to the float.
+   * 
+   * @param reservation - reservation released.
+   */
+  void onRelease(final ChangeReservation reservation) {
+    unreserve(reservation.getChange());
+    this.cashRegister.add(reservation.getChange());
+  }
+
+  /**
+   * Removes the change passed in from the cash held by pending reservations.
+   * 
+   * @param change - change to remove.
+   */
+  private void unreserve(final Cash change) {
+    Cash prev, next;
+    do {
+      prev = this.reservedRef.get();
+      try {
+        next = prev.subtract(change);
+      } catch (NoSufficientFundsException nsfEx) {
+        throw new IllegalStateException("Reservation has not been accounted as pending.", nsfEx);
+      }
+    } while (!this.reservedRef.compareAndSet(prev, next));
+  }
+}
@@ -0,0 +1,21 @@
+/**
+ * 
+ */
+package org.hellochange.cash.reserve;
+
+/**
+ * States of the change reservation.
+ * 
+ * @author vladimir
+ *
+ */
+public enum ReservationState {
+  /** Change is held and waits for commit or release. */
+  PENDING, 
+  /** Change has been given away. */
+  COMMITTED, 
+  /** Change has been returned to the register. */
+  RELEASED, 
+  /** Change has been returned to the register since it has not been committed in time. */
+  EXPIRED
+}
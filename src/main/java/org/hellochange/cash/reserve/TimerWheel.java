@@ -0,0 +1,180 @@
+/**
+ * 
+ */
+package org.hellochange.cash.reserve;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timer wheel: timeouts are put into the bucket of the tick they expire at, so scheduling is O(1) 
+ * and advancing the wheel only visits the timeouts of the buckets ticked. Timeouts are fired no earlier than their deadline 
+ * and no later than two ticks after it, provided that the wheel is advanced every tick.
+ * <p>
+ * Timeouts may be scheduled from any thread; the wheel is advanced either by its own daemon thread once started 
+ * or explicitly by a single thread.
+ * 
+ * @author vladimir
+ *
+ */
+public class TimerWheel implements AutoCloseable {
+  /** Duration of a tick, in nanoseconds. */
+  private final long tickNanos;
+  /** Buckets of the wheel. */
+  private final Queue<Timeout>[] buckets;
+  /** Mask to compute bucket index of a tick. */
+  private final int mask;
+  /** Time the ticks are counted from. */
+  private final long originNanos;
+  /** Last tick processed or being processed. */
+  private volatile long lastTick;
+  /** Ticker thread once started. */
+  private ScheduledExecutorService ticker;
+
+  /**
+   * Constructor.
+   * 
+   * @param tickDuration - duration of a tick.
+   * @param unit - time unit of the tick duration.
+   * @param wheelSize - amount of buckets, rounded up to the power of two.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public TimerWheel(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for tickDuration parameter: %1$d", tickDuration));
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: unit");
+    }
+    if ((wheelSize <= 0) || (wheelSize > (1 << 30))) {
+      throw new IllegalArgumentException(String.format("Invalid value has been passed in for wheelSize parameter: %1$d", wheelSize));
+    }
+
+    final int bucketsAmount = Integer.highestOneBit(wheelSize - 1) << 1;
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.buckets = new Queue[Math.max(bucketsAmount, 1)];
+    for (int i = 0; i < this.buckets.length; i++) {
+      this.buckets[i] = new ConcurrentLinkedQueue<>();
+    }
+    this.mask = this.buckets.length - 1;
+    this.originNanos = System.nanoTime();
+  }
+
+  /**
+   * Schedules the task to run once the delay passes.
+   * 
+   * @param task - task to run.
+   * @param delay - delay.
+   * @param unit - time unit of the delay.
+   */
+  public void schedule(final Runnable task, final long delay, final TimeUnit unit) {
+    if (task == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: task");
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: unit");
+    }
+
+    final long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0));
+    final Timeout timeout = new Timeout(deadline, task);
+    long tick;
+    do {
+      // never put the timeout into the bucket which has been or is being processed
+      tick = Math.max(toTick(deadline), this.lastTick + 1);
+      this.buckets[(int) (tick & this.mask)].add(timeout);
+      // the wheel may have got to the bucket before the timeout has been added, then it is put into a later one as well: 
+      // whichever copy is reached first fires the timeout and the other one is dropped
+    } while (this.lastTick >= tick);
+  }
+
+  /**
+   * Advances the wheel up to the time passed in and runs the tasks expired.
+   * 
+   * @param nowNanos - current time as of {@link System#nanoTime()}.
+   */
+  public void advance(final long nowNanos) {
+    // only the ticks which have fully elapsed are processed, so all the timeouts of the current round in them are expired
+    final long currentTick = toTick(nowNanos) - 1;
+    // the whole wheel has to be visited once at most: later rounds are found in the same buckets
+    final long firstTick = Math.max(this.lastTick + 1, currentTick - this.mask);
+    for (long tick = firstTick; tick <= currentTick; tick++) {
+      // published before the bucket is drained, so timeouts scheduled from now on go to later buckets
+      this.lastTick = tick;
+      final Iterator<Timeout> timeouts = this.buckets[(int) (tick & this.mask)].iterator();
+      while (timeouts.hasNext()) {
+        final Timeout timeout = timeouts.next();
+        if (timeout.deadlineNanos - nowNanos <= 0) {
+          timeouts.remove();
+          if (timeout.fired.compareAndSet(false, true)) {
+            timeout.task.run();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts the daemon thread which advances the wheel every tick.
+   */
+  public synchronized void start() {
+    if (this.ticker != null) {
+      throw new IllegalStateException("Timer wheel has already been started.");
+    }
+
+    this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "timer-wheel");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.ticker.scheduleAtFixedRate(() -> advance(System.nanoTime()), this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stops the daemon thread if it has been started. Timeouts pending are not fired.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.ticker != null) {
+      this.ticker.shutdownNow();
+      this.ticker = null;
+    }
+  }
+
+  /**
+   * Converts time to the tick.
+   * 
+   * @param nanos - time as of {@link System#nanoTime()}.
+   * @return tick.
+   */
+  private long toTick(final long nanos) {
+    return (nanos - this.originNanos) / this.tickNanos;
+  }
+
+  /**
+   * Task scheduled.
+   */
+  private static final class Timeout {
+    /** Time the task expires at. */
+    private final long deadlineNanos;
+    /** Task to run. */
+    private final Runnable task;
+    /** Whether the task has been run, the timeout may be in two buckets. */
+    private final AtomicBoolean fired = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     * 
+     * @param deadlineNanos - time the task expires at.
+     * @param task - task to run.
+     */
+    private Timeout(final long deadlineNanos, final Runnable task) {
+      this.deadlineNanos = deadlineNanos;
+      this.task = task;
+    }
+  }
+}
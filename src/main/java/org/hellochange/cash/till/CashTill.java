@@ -0,0 +1,239 @@
+/**
+ * 
+ */
+package org.hellochange.cash.till;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.SimpleCashRegister;
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.ChangeTrace;
+import org.hellochange.cash.change.Solution;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
+
+/**
+ * Till of the hierarchical register: cashier works with its own local register and the till pulls bills 
+ * from the parent register, the safe, only when the local float cannot serve the request.
+ * <p>
+ * Bills are pulled in batches: the shortfall of the request together with the batch of spare bills of every denomination 
+ * the change needs is removed from the parent with a single compare-and-set of its state and then added to the local register, 
+ * so tills do not lock each other and touch the shared parent only on a miss. 
+ * Bills being transferred are in neither of the registers for a moment.
+ * 
+ * @author vladimir
+ *
+ */
+public class CashTill implements CashRegister {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** Default amount of spare bills of every denomination pulled along with the shortfall. */
+  private static final int DEFAULT_TRANSFER_BATCH = 5;
+  /** Amount of attempts to pull the change from the parent before giving up. */
+  private static final int MAX_PULL_ATTEMPTS = 3;
+
+  /** Parent register the bills are pulled from. */
+  private final CashRegister parent;
+  /** Local register of the till. */
+  private final CashRegister local;
+  /** Strategy to compute the change the local register misses with. */
+  private final ChangeProducerStrategy changeProducer;
+  /** Amount of spare bills of every denomination pulled along with the shortfall. */
+  private final int transferBatch;
+  /** Amount of transfers from the parent register. */
+  private final AtomicLong parentTransfers = new AtomicLong();
+
+  /**
+   * Constructor which creates empty till.
+   * 
+   * @param parent - parent register the bills are pulled from.
+   */
+  public CashTill(final CashRegister parent) {
+    this(parent, Cash.EMPTY);
+  }
+
+  /**
+   * Constructor which creates till with the cash passed in.
+   * 
+   * @param parent - parent register the bills are pulled from.
+   * @param cash - initial cash of the till.
+   */
+  public CashTill(final CashRegister parent, final Cash cash) {
+    this(parent, cash, new TableChangeProducerStrategy(), DEFAULT_TRANSFER_BATCH);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param parent - parent register the bills are pulled from.
+   * @param cash - initial cash of the till.
+   * @param changeProducer - change producer strategy.
+   * @param transferBatch - amount of spare bills of every denomination pulled along with the shortfall.
+   */
+  public CashTill(final CashRegister parent, final Cash cash, final ChangeProducerStrategy changeProducer, final int transferBatch) {
+    if (parent == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: parent");
+    }
+    if (changeProducer == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeProducer");
+    }
+    if (transferBatch < 0) {
+      throw new IllegalArgumentException(String.format("Negative value has been passed in for transferBatch parameter: %1$d", transferBatch));
+    }
+
+    this.parent = parent;
+    this.local = new SimpleCashRegister(cash, changeProducer);
+    this.changeProducer = changeProducer;
+    this.transferBatch = transferBatch;
+  }
+
+  /**
+   * Gets parent register the bills are pulled from.
+   * 
+   * @return parent register.
+   */
+  public CashRegister getParent() {
+    return this.parent;
+  }
+
+  /**
+   * Gets amount of transfers from the parent register.
+   * 
+   * @return amount of transfers.
+   */
+  public long getParentTransfers() {
+    return this.parentTransfers.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Cash of the parent register is not included.
+   */
+  @Override
+  public Cash getContents() {
+    return this.local.getContents();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash add(final Cash cash) {
+    return this.local.add(cash);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Bills the till misses are pulled from the parent register, only if the parent has all of them: 
+   * neither of the registers is changed if the till and its parent together cannot cover the cash.
+   */
+  @Override
+  public Cash remove(final Cash cash) throws NoSufficientFundsException {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    try {
+      return this.local.remove(cash);
+    } catch (NoSufficientFundsException nsfEx) {
+      final Cash shortfall = getShortfall(cash, 0);
+      this.parent.remove(shortfall);
+      this.local.add(shortfall);
+      this.parentTransfers.incrementAndGet();
+      return this.local.remove(cash);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash change(final Integer amount) {
+    return change(amount, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the till cannot make the change, the change is computed for the cash of the till and its parent together 
+   * and the bills the till misses are pulled from the parent.
+   */
+  @Override
+  public Cash change(final Integer amount, final ChangeTrace trace) {
+    Cash change = this.local.change(amount, trace);
+    for (int attempt = 0; (change == null) && (attempt < MAX_PULL_ATTEMPTS); attempt++) {
+      if (trace != null) {
+        trace.addPathStep("till miss");
+      }
+      final Solution solution = this.changeProducer.computeChange(this.local.getContents().add(this.parent.getContents()), amount, trace);
+      if (solution == null) {
+        return null;
+      }
+
+      pull(getShortfall(solution.getChange(), this.transferBatch));
+      change = this.local.change(amount, trace);
+    }
+    return change;
+  }
+
+  /**
+   * Pulls bills from the parent register with a single remove. Pulls as many of the bills requested as the parent has.
+   * 
+   * @param wanted - bills to pull.
+   * @return bills pulled, which may be less than requested.
+   */
+  public Cash pull(final Cash wanted) {
+    if (wanted == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: wanted");
+    }
+
+    while (true) {
+      final Cash available = this.parent.getContents();
+      final Map<BillDenomination, Integer> transferContents = new EnumMap<>(BillDenomination.class);
+      for (final BillDenomination billDenomination : DENOMINATIONS) {
+        transferContents.put(billDenomination, 
+            Math.min(wanted.getBillsAmount(billDenomination), available.getBillsAmount(billDenomination)));
+      }
+
+      final Cash transfer = Cash.newInstance(transferContents);
+      if (transfer.getBillsAmount() == 0) {
+        return Cash.EMPTY;
+      }
+      try {
+        this.parent.remove(transfer);
+      } catch (NoSufficientFundsException nsfEx) {
+        // another till has pulled the bills in the meantime, retry with what is left
+        continue;
+      }
+      this.local.add(transfer);
+      this.parentTransfers.incrementAndGet();
+      return transfer;
+    }
+  }
+
+  /**
+   * Computes bills the till misses for the cash passed in.
+   * 
+   * @param cash - cash the till needs.
+   * @param spare - amount of spare bills of every denomination the cash has, to pull along with the shortfall.
+   * @return bills the till misses.
+   */
+  private Cash getShortfall(final Cash cash, final int spare) {
+    final Cash contents = this.local.getContents();
+    final Map<BillDenomination, Integer> shortfallContents = new EnumMap<>(BillDenomination.class);
+    for (final BillDenomination billDenomination : DENOMINATIONS) {
+      final int needed = cash.getBillsAmount(billDenomination);
+      if (needed > 0) {
+        shortfallContents.put(billDenomination, Math.max(needed - contents.getBillsAmount(billDenomination), 0) + spare);
+      }
+    }
+    return Cash.newInstance(shortfallContents);
+  }
+}
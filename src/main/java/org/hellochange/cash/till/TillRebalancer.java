@@ -0,0 +1,143 @@
+/**
+ * 
+ */
+package org.hellochange.cash.till;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+
+/**
+ * Tops up the tills from their parents ahead of demand: every denomination the till has fewer bills of than 
+ * the low watermark is pulled up to the target level in a single transfer.
+ * <p>
+ * Tills may be registered from any thread; the tills are rebalanced either by the daemon thread of the rebalancer 
+ * once started or by calling {@link #rebalance()} directly.
+ * 
+ * @author vladimir
+ *
+ */
+public class TillRebalancer implements AutoCloseable {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Tills to rebalance. */
+  private final List<CashTill> tills = new CopyOnWriteArrayList<>();
+  /** Amount of bills of a denomination which makes the till to be topped up. */
+  private final int lowWatermark;
+  /** Amount of bills of a denomination the till is topped up to. */
+  private final int targetLevel;
+  /** Period of rebalancing in nanoseconds. */
+  private final long periodNanos;
+  /** Executor which rebalances the tills, null if the rebalancer has not been started. */
+  private ScheduledExecutorService rebalancer;
+
+  /**
+   * Constructor.
+   * 
+   * @param lowWatermark - amount of bills of a denomination which makes the till to be topped up.
+   * @param targetLevel - amount of bills of a denomination the till is topped up to.
+   * @param period - period of rebalancing.
+   * @param unit - time unit of the period.
+   */
+  public TillRebalancer(final int lowWatermark, final int targetLevel, final long period, final TimeUnit unit) {
+    if (lowWatermark <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for lowWatermark parameter: %1$d", lowWatermark));
+    }
+    if (targetLevel < lowWatermark) {
+      throw new IllegalArgumentException(String.format("Target level is lower than the low watermark: %1$d", targetLevel));
+    }
+    if (period <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for period parameter: %1$d", period));
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: unit");
+    }
+
+    this.lowWatermark = lowWatermark;
+    this.targetLevel = targetLevel;
+    this.periodNanos = unit.toNanos(period);
+  }
+
+  /**
+   * Registers the till to rebalance.
+   * 
+   * @param till - till to rebalance.
+   */
+  public void register(final CashTill till) {
+    if (till == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: till");
+    }
+
+    this.tills.add(till);
+  }
+
+  /**
+   * Gets tills to rebalance.
+   * 
+   * @return tills.
+   */
+  public List<CashTill> getTills() {
+    return Collections.unmodifiableList(new ArrayList<>(this.tills));
+  }
+
+  /**
+   * Tops up every till registered.
+   * 
+   * @return amount of tills topped up.
+   */
+  public int rebalance() {
+    int toppedUp = 0;
+    for (final CashTill till : this.tills) {
+      final Cash contents = till.getContents();
+      final Map<BillDenomination, Integer> wantedContents = new EnumMap<>(BillDenomination.class);
+      for (final BillDenomination billDenomination : DENOMINATIONS) {
+        final int billsAmount = contents.getBillsAmount(billDenomination);
+        if (billsAmount < this.lowWatermark) {
+          wantedContents.put(billDenomination, this.targetLevel - billsAmount);
+        }
+      }
+
+      if (!wantedContents.isEmpty() && (till.pull(Cash.newInstance(wantedContents)).getBillsAmount() > 0)) {
+        toppedUp++;
+      }
+    }
+    return toppedUp;
+  }
+
+  /**
+   * Starts the daemon thread which rebalances the tills every period.
+   */
+  public synchronized void start() {
+    if (this.rebalancer != null) {
+      throw new IllegalStateException("Till rebalancer has already been started.");
+    }
+
+    this.rebalancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "till-rebalancer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.rebalancer.scheduleWithFixedDelay(this::rebalance, this.periodNanos, this.periodNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stops the daemon thread if it has been started.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.rebalancer != null) {
+      this.rebalancer.shutdownNow();
+      this.rebalancer = null;
+    }
+  }
+}
@@ -5,16 +5,23 @@ package org.hellochange.cli;
 
 import org.hellochange.cash.Cash;
 import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.change.ChangeTrace;
 import org.hellochange.cli.proc.ArgsValidationException;
+import org.hellochange.cli.proc.CliOutput;
 import org.hellochange.cli.proc.ParameterizedCliCommand;
 
 /**
  * Change command command that extracts requested amount of change from the register.
+ * <p>
+ * Invoked as <code>change --explain N</code> it also prints how the change has been computed.
  * 
  * @author vladimir
  *
  */
-public class GetChangeCommand extends ParameterizedCliCommand<Integer> {
+public class GetChangeCommand extends ParameterizedCliCommand<GetChangeCommand.ChangeArgs> {
+  /** Option which turns explaining of the change computation on. */
+  private static final String EXPLAIN_OPTION = "--explain";
+
   /**
    * Cash register this command works with.
    */
@@ -45,41 +52,72 @@ public class GetChangeCommand extends ParameterizedCliCommand<Integer> {
    * {@inheritDoc}
    */
   @Override
-  protected Integer extractAndValidateArgs(String[] args) throws ArgsValidationException {
-    if((args == null) || args.length != 1) {
+  protected ChangeArgs extractAndValidateArgs(String[] args) throws ArgsValidationException {
+    final boolean explain = (args != null) && (args.length == 2) && EXPLAIN_OPTION.equals(args[0]);
+    if((args == null) || (args.length != (explain ? 2 : 1))) {
       throw new ArgsValidationException(String.format(
-          "Command [%1$s] expects non-negative integer argument as change amount.", getName())); 
+          "Command [%1$s] expects non-negative integer argument as change amount, optionally preceded by [%2$s].", 
+          getName(), EXPLAIN_OPTION)); 
     }    
     
+    final String amountArg = args[args.length - 1];
     final Integer cashAmount;
     try {
-      cashAmount = Integer.parseInt(args[0]);
+      cashAmount = Integer.parseInt(amountArg);
     } catch (NumberFormatException nfEx) {
       throw new ArgsValidationException(String.format(
           "Command [%1$s] expects non-negative integer argument as change amount:" + " cannot parse [%2$s] to integer.", 
-          getName(), args[0])); 
+          getName(), amountArg)); 
     }
     
     if(cashAmount < 0) {
       throw new ArgsValidationException(String.format(
           "Command [%1$s] expects non-negative integer argument as change amount:" + " argument [%2$s] is negative.", 
-          getName(), args[0]));      
+          getName(), amountArg));      
     }
     
-    return cashAmount;
+    return new ChangeArgs(cashAmount, explain);
   }
 
   /**
    * {@inheritDoc}
    */  
   @Override
-  protected boolean execute(Integer cashAmount) {
-    final Cash changeCash = this.cashRegister.change(cashAmount);
+  protected boolean execute(ChangeArgs args, CliOutput output) {
+    final ChangeTrace trace = args.explain ? new ChangeTrace() : null;
+    final Cash changeCash = this.cashRegister.change(args.cashAmount, trace);
     if (changeCash == null) {
-      System.out.println("sorry");
+      output.println("sorry");
     } else {
-      System.out.println(changeCash.toString());
+      output.println(changeCash);
+    }
+    if (trace != null) {
+      output.println(trace.toString());
     }
     return true;
   }
+
+  /**
+   * Arguments of the change command.
+   * 
+   * @author vladimir
+   *
+   */
+  static final class ChangeArgs {
+    /** Change amount. */
+    private final Integer cashAmount;
+    /** Whether the change computation is explained. */
+    private final boolean explain;
+
+    /**
+     * Constructor.
+     * 
+     * @param cashAmount - change amount.
+     * @param explain - whether the change computation is explained.
+     */
+    ChangeArgs(final Integer cashAmount, final boolean explain) {
+      this.cashAmount = cashAmount;
+      this.explain = explain;
+    }
+  }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ package org.hellochange.cli;
 import org.hellochange.cash.Cash;
 import org.hellochange.cash.CashRegister;
 import org.hellochange.cli.proc.CliCashCommand;
+import org.hellochange.cli.proc.CliOutput;
 
 /**
  * Put command that adds cash to the cash register attached to it.
@@ -44,9 +45,9 @@ public class PutCashCommand extends CliCashCommand {
    * {@inheritDoc}
    */
   @Override
-  protected boolean execute(final Cash cash) {
+  protected boolean execute(final Cash cash, final CliOutput output) {
     final Cash registerCash = this.cashRegister.add(cash);
-    System.out.println(registerCash.toString());
+    output.println(registerCash);
     return true;
   }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@
 package org.hellochange.cli;
 
 import org.hellochange.cli.proc.CliCommand;
+import org.hellochange.cli.proc.CliOutput;
 
 /**
  * CLI command for program termination.
@@ -34,9 +35,9 @@ public final class QuitCommand implements CliCommand {
    * {@inheritDoc} 
    */
   @Override
-  public boolean execute(String[] args) {
+  public boolean execute(String[] args, CliOutput output) {
     // make sure program is terminated
-    System.out.println("Bye");
+    output.println("Bye");
     return false;
   }
 }
\ No newline at end of file
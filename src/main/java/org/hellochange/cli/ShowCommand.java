@@ -5,6 +5,7 @@ package org.hellochange.cli;
 
 import org.hellochange.cash.CashRegister;
 import org.hellochange.cli.proc.CliCommand;
+import org.hellochange.cli.proc.CliOutput;
 
 /**
  * Show command that prints out the contents of the cash register attached to it.
@@ -40,8 +41,8 @@ public class ShowCommand implements CliCommand {
   }
 
   @Override
-  public boolean execute(String[] args) {
-    System.out.println(this.cashRegister.getContents().toString());
+  public boolean execute(String[] args, CliOutput output) {
+    output.println(this.cashRegister.getContents());
     return true;
   }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.hellochange.cash.Cash;
 import org.hellochange.cash.CashRegister;
 import org.hellochange.cash.NoSufficientFundsException;
 import org.hellochange.cli.proc.CliCashCommand;
+import org.hellochange.cli.proc.CliOutput;
 
 /**
  * Put command that removes cash from the cash register attached to it.
@@ -45,14 +46,14 @@ public class TakeCashCommand extends CliCashCommand {
    * {@inheritDoc}
    */
   @Override
-  protected boolean execute(Cash cash) {
+  protected boolean execute(Cash cash, CliOutput output) {
     final Cash registerCash;
     try {
       registerCash = this.cashRegister.remove(cash);
-      System.out.println(registerCash.toString());
+      output.println(registerCash);
     } catch (NoSufficientFundsException nsfEx) {
-      System.out.println(String.format("Sorry: %1$s", nsfEx.getMessage()));
-      System.out.println(this.cashRegister.getContents().toString());
+      output.println(String.format("Sorry: %1$s", nsfEx.getMessage()));
+      output.println(this.cashRegister.getContents());
     }
 
     return true;
@@ -0,0 +1,226 @@
+/**
+ * 
+ */
+package org.hellochange.cli.proc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+
+/**
+ * Implementation of {@link CliOutput} which renders responses directly into the reusable byte buffer 
+ * and writes it to the output stream according to the flush policy. 
+ * Not thread-safe: it is meant to be used by the CLI processor thread only.
+ * 
+ * @author vladimir
+ *
+ */
+public class BufferedCliOutput implements CliOutput {
+  /** Default size of the buffer. */
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /** Maximum amount of characters in the decimal representation of an integer. */
+  private static final int MAX_INT_LENGTH = 11;
+
+  /** Line separator of the platform, as written by {@link System#out}. */
+  private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+  /** Output stream to write to. */
+  private final OutputStream out;
+  /** Flush policy. */
+  private final FlushPolicy flushPolicy;
+  /** Charset for non-ASCII text. */
+  private final Charset charset;
+  /** Buffer. */
+  private final byte[] buffer;
+  /** Amount of bytes pending in the buffer. */
+  private int position;
+
+  /**
+   * Constructor.
+   * 
+   * @param out - output stream to write to.
+   * @param flushPolicy - flush policy.
+   */
+  public BufferedCliOutput(final OutputStream out, final FlushPolicy flushPolicy) {
+    this(out, flushPolicy, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param out - output stream to write to.
+   * @param flushPolicy - flush policy.
+   * @param charset - charset for non-ASCII text.
+   * @param bufferSize - size of the buffer.
+   */
+  public BufferedCliOutput(final OutputStream out, final FlushPolicy flushPolicy, final Charset charset, final int bufferSize) {
+    if (out == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: out.");
+    }
+    if (flushPolicy == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: flushPolicy.");
+    }
+    if (charset == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: charset.");
+    }
+    if (bufferSize < MAX_INT_LENGTH) {
+      throw new IllegalArgumentException(String.format("Too small value has been passed in for bufferSize parameter: %1$d", bufferSize));
+    }
+
+    this.out = out;
+    this.flushPolicy = flushPolicy;
+    this.charset = charset;
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void println(final CharSequence text) {
+    write(text);
+    newLine();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void println(final Cash cash) {
+    writeByte('$');
+    writeInt(cash.getMoneyAmount());
+    for (int i = 0; i < BillDenomination.denominationsReversed.size(); i++) {
+      writeByte(' ');
+      writeInt(cash.getBillsAmount(BillDenomination.denominationsReversed.get(i)));
+    }
+    newLine();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void beforeInput() {
+    if (this.flushPolicy == FlushPolicy.BEFORE_INPUT) {
+      flush();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() {
+    flushBuffer();
+    try {
+      this.out.flush();
+    } catch (IOException ioEx) {
+      throw new UncheckedIOException(ioEx);
+    }
+  }
+
+  /**
+   * Writes line break and flushes the output if required by the policy.
+   */
+  private void newLine() {
+    writeBytes(LINE_SEPARATOR);
+    if (this.flushPolicy == FlushPolicy.EVERY_LINE) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes text.
+   * 
+   * @param text - text to write.
+   */
+  private void write(final CharSequence text) {
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      final char nextChar = text.charAt(i);
+      if (nextChar >= 0x80) {
+        // not worth hand-rolling: encode the rest of the text with the charset
+        writeBytes(text.subSequence(i, length).toString().getBytes(this.charset));
+        return;
+      }
+      writeByte(nextChar);
+    }
+  }
+
+  /**
+   * Writes decimal representation of the integer. Package-private for testing.
+   * 
+   * @param value - integer to write.
+   */
+  void writeInt(final int value) {
+    if (this.position + MAX_INT_LENGTH > this.buffer.length) {
+      flushBuffer();
+    }
+
+    if (value == Integer.MIN_VALUE) {
+      write(Integer.toString(value));
+      return;
+    }
+
+    int remaining = value;
+    if (remaining < 0) {
+      this.buffer[this.position++] = '-';
+      remaining = -remaining;
+    }
+
+    int digits = 1;
+    for (int bound = 10; (digits < 10) && (remaining >= bound); bound *= 10) {
+      digits++;
+    }
+
+    for (int i = this.position + digits - 1; i >= this.position; i--) {
+      this.buffer[i] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    }
+    this.position += digits;
+  }
+
+  /**
+   * Writes single byte.
+   * 
+   * @param value - byte to write.
+   */
+  private void writeByte(final int value) {
+    if (this.position == this.buffer.length) {
+      flushBuffer();
+    }
+    this.buffer[this.position++] = (byte) value;
+  }
+
+  /**
+   * Writes array of bytes.
+   * 
+   * @param bytes - bytes to write.
+   */
+  private void writeBytes(final byte[] bytes) {
+    for (byte nextByte : bytes) {
+      writeByte(nextByte);
+    }
+  }
+
+  /**
+   * Writes the bytes pending in the buffer to the output stream.
+   */
+  private void flushBuffer() {
+    if (this.position == 0) {
+      return;
+    }
+    try {
+      this.out.write(this.buffer, 0, this.position);
+    } catch (IOException ioEx) {
+      throw new UncheckedIOException(ioEx);
+    }
+    this.position = 0;
+  }
+}
@@ -17,7 +17,8 @@ public interface CliCommand {
    * Executes the command for the passed in I/O parameters.
    * 
    * @param arguments passed together with the command.
+   * @param output to print the command response to.
    * @return boolean flag which says whether the program has to continue execution.
    */
-  boolean execute(String[] args);  
+  boolean execute(String[] args, CliOutput output);  
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+/**
+ * 
+ */
+package org.hellochange.cli.proc;
+
+import org.hellochange.cash.Cash;
+
+/**
+ * Defines output sink CLI commands print their responses to.
+ * 
+ * @author vladimir
+ *
+ */
+public interface CliOutput {
+  /**
+   * Prints line of text.
+   * 
+   * @param text - text to print.
+   */
+  void println(CharSequence text);
+
+  /**
+   * Prints cash object as a line of its total amount of money followed by amounts of bills 
+   * starting with the largest denomination.
+   * 
+   * @param cash - cash to print.
+   */
+  void println(Cash cash);
+
+  /**
+   * Notifies the output that CLI processor is about to wait for the next command, so the output pending 
+   * may need to be shown.
+   */
+  void beforeInput();
+
+  /**
+   * Flushes all the output pending.
+   */
+  void flush();
+}
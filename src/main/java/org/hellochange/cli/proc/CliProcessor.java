@@ -16,13 +16,28 @@ import java.util.Map;
 public class CliProcessor {
   /** CLI Commands supported by CLI processor. */
   private final Map<String, CliCommand> commandsSupported;
+  /** Output commands print their responses to. */
+  private final CliOutput output;
   
   /**
-   * Constructor.
+   * Constructor for the processor which prints to the standard output.
    * 
    * @param cliCommands - supported CLI commands.
    */
   public CliProcessor(CliCommand... cliCommands) {
+    this(new BufferedCliOutput(System.out, FlushPolicy.BEFORE_INPUT), cliCommands);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param output - output commands print their responses to.
+   * @param cliCommands - supported CLI commands.
+   */
+  public CliProcessor(CliOutput output, CliCommand... cliCommands) {
+    if(output == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: output.");
+    }
     if((cliCommands == null) || (cliCommands.length == 0)) {
       throw new IllegalArgumentException("Empty array of CLI commands has been passed in.");
     }
@@ -39,6 +54,7 @@ public class CliProcessor {
     }
     
     this.commandsSupported = commands;
+    this.output = output;
   }
   
   /**
@@ -49,30 +65,74 @@ public class CliProcessor {
   public void run() throws IOException {
     final BufferedReader inReader = new BufferedReader(new InputStreamReader(System.in));
     String line = null;
-    System.out.println("ready");
-    while((line = inReader.readLine()) != null) {
-      final String[] tokens = line.trim().split("\\s+");
-      // bypass and continue on empty inputs
-      if(tokens.length == 0) {
-        continue;
-      }
+    try {
+      this.output.println("ready");
+      while(true) {
+        if(! inReader.ready()) {
+          this.output.beforeInput();
+        }
       
-      final String commandName = tokens[0];
-      final CliCommand command = this.commandsSupported.get(commandName);
+        line = inReader.readLine();
+        if(line == null) {
+          break;
+        }
       
-      if (command == null) {
-        System.out.println(String.format(
-            "Unsupported command: [%1$s]. Please use one of the supported commands %2$s", commandName, this.commandsSupported.keySet()));
-        continue;
-      }
+        final String[] tokens = tokenize(line);
+        // bypass and continue on empty inputs
+        if(tokens.length == 0) {
+          continue;
+        }
+      
+        final String commandName = tokens[0];
+        final CliCommand command = this.commandsSupported.get(commandName);
       
-      final String[] args = Arrays.copyOfRange(tokens, 1, tokens.length);
-      final boolean status = command.execute(args);
+        if (command == null) {
+          this.output.println(String.format(
+              "Unsupported command: [%1$s]. Please use one of the supported commands %2$s", commandName, this.commandsSupported.keySet()));
+          continue;
+        }
       
-      // terminate if command's outcome requires this
-      if(! status) {
-        break;
+        final String[] args = Arrays.copyOfRange(tokens, 1, tokens.length);
+        final boolean status = command.execute(args, this.output);
+      
+        // terminate if command's outcome requires this
+        if(! status) {
+          break;
+        }
+      }
+    } finally {
+      this.output.flush();
+    }
+  }
+
+  /**
+   * Splits the line into tokens separated by whitespaces. Hand-rolled rather than a regular expression split, 
+   * so a short-lived process does not pay for loading and compiling the regular expression.
+   * 
+   * @param line - line to split.
+   * @return tokens, empty array for a blank line.
+   */
+  static String[] tokenize(final String line) {
+    final int length = line.length();
+    int tokensCount = 0;
+    for (int i = 0; i < length; i++) {
+      if (!Character.isWhitespace(line.charAt(i)) && ((i == 0) || Character.isWhitespace(line.charAt(i - 1)))) {
+        tokensCount++;
+      }
+    }
+
+    final String[] tokens = new String[tokensCount];
+    int token = 0;
+    int start = -1;
+    for (int i = 0; i <= length; i++) {
+      final boolean whitespace = (i == length) || Character.isWhitespace(line.charAt(i));
+      if (whitespace && (start >= 0)) {
+        tokens[token++] = line.substring(start, i);
+        start = -1;
+      } else if (!whitespace && (start < 0)) {
+        start = i;
       }
     }
+    return tokens;
   }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+/**
+ * 
+ */
+package org.hellochange.cli.proc;
+
+/**
+ * Defines when buffered CLI output is flushed.
+ * 
+ * @author vladimir
+ *
+ */
+public enum FlushPolicy {
+  /** After every line printed. */
+  EVERY_LINE, 
+  /** When there is no more input available and CLI processor is about to wait for it. Suits both interactive and scripted use. */
+  BEFORE_INPUT, 
+  /** Only when the buffer is full or output is flushed explicitly. */
+  WHEN_FULL
+}
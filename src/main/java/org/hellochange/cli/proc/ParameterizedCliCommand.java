@@ -27,24 +27,25 @@ public abstract class ParameterizedCliCommand<ARGS> implements CliCommand {
    * Executes the command for the passed in arguments previously extracted from the command line and validated.
    * 
    * @param arguments - parsed and valid arguments to use for the command call.
+   * @param output - output to print the command response to.
    * @return boolean flag which says whether the program has to continue execution.
    */
-  protected abstract boolean execute(ARGS arguments);
+  protected abstract boolean execute(ARGS arguments, CliOutput output);
 
   /**
    * {@inheritDoc}
    */
   @Override
-  public boolean execute(String[] args) {
+  public boolean execute(String[] args, CliOutput output) {
     // 1: Extract and validate parameters first
     final ARGS arguments;
     try {
       arguments = extractAndValidateArgs(args);
     } catch (ArgsValidationException avEx) {
-      System.out.println(avEx.getMessage());
+      output.println(avEx.getMessage());
       return true;
     }
     
-    return execute(arguments);
+    return execute(arguments, output);
   }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import java.util.Random;
+
+/**
+ * Distribution of the change amounts requested by the load test.
+ * 
+ * @author vladimir
+ *
+ */
+@FunctionalInterface
+public interface AmountDistribution {
+  /**
+   * Draws the next change amount.
+   * 
+   * @param random - source of randomness, owned by the calling thread.
+   * @return positive change amount.
+   */
+  int nextAmount(Random random);
+}
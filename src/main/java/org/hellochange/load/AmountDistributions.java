@@ -0,0 +1,94 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import java.util.Arrays;
+
+/**
+ * Factory of commonly used change amount distributions.
+ * 
+ * @author vladimir
+ *
+ */
+public final class AmountDistributions {
+  /**
+   * Hidden constructor.
+   */
+  private AmountDistributions() {
+    // nothing to do here
+  }
+
+  /**
+   * Creates distribution where every amount in the range is equally likely.
+   * 
+   * @param min - minimum amount, positive.
+   * @param max - maximum amount.
+   * @return distribution.
+   */
+  public static AmountDistribution uniform(final int min, final int max) {
+    checkRange(min, max);
+    return random -> min + random.nextInt(max - min + 1);
+  }
+
+  /**
+   * Creates Zipf distribution of amounts 1 to max: amount k is drawn with the probability proportional to 1 / k^exponent, 
+   * so a few small amounts make most of the requests.
+   * 
+   * @param max - maximum amount.
+   * @param exponent - exponent, positive.
+   * @return distribution.
+   */
+  public static AmountDistribution zipf(final int max, final double exponent) {
+    checkRange(1, max);
+    if (exponent <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for exponent parameter: %1$s", exponent));
+    }
+
+    final double[] cumulative = new double[max];
+    double sum = 0;
+    for (int k = 1; k <= max; k++) {
+      sum += 1 / Math.pow(k, exponent);
+      cumulative[k - 1] = sum;
+    }
+    final double total = sum;
+    return random -> {
+      final int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+      return Math.min(((index >= 0) ? index : -index - 1) + 1, max);
+    };
+  }
+
+  /**
+   * Creates log-normal distribution of amounts: most of the amounts are close to the median with a long tail of large ones. 
+   * Amounts are rounded and capped to the range 1 to max.
+   * 
+   * @param median - median amount, positive.
+   * @param sigma - standard deviation of the amount logarithm.
+   * @param max - maximum amount.
+   * @return distribution.
+   */
+  public static AmountDistribution logNormal(final double median, final double sigma, final int max) {
+    checkRange(1, max);
+    if (median <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for median parameter: %1$s", median));
+    }
+    if (sigma < 0) {
+      throw new IllegalArgumentException(String.format("Negative value has been passed in for sigma parameter: %1$s", sigma));
+    }
+
+    final double mu = Math.log(median);
+    return random -> (int) Math.max(1, Math.min(max, Math.round(Math.exp(mu + sigma * random.nextGaussian()))));
+  }
+
+  /**
+   * Checks the range of amounts.
+   * 
+   * @param min - minimum amount.
+   * @param max - maximum amount.
+   */
+  private static void checkRange(final int min, final int max) {
+    if ((min <= 0) || (max < min)) {
+      throw new IllegalArgumentException(String.format("Invalid range of amounts: [%1$d, %2$d]", min, max));
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import org.hellochange.cash.Cash;
+import org.hellochange.cli.proc.CliOutput;
+
+/**
+ * Output which discards the responses of the commands and only remembers whether any of them has been a message 
+ * rather than cash, which is how commands report their failures.
+ * 
+ * @author vladimir
+ *
+ */
+final class DiscardingCliOutput implements CliOutput {
+  /** Whether a message has been printed since the last reset. */
+  private boolean failed;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void println(final CharSequence text) {
+    this.failed = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void println(final Cash cash) {
+    // nothing to do here
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void beforeInput() {
+    // nothing to do here
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() {
+    // nothing to do here
+  }
+
+  /**
+   * Checks whether a message has been printed since the last reset and resets the flag.
+   * 
+   * @return true if the command has failed.
+   */
+  boolean resetFailed() {
+    final boolean result = this.failed;
+    this.failed = false;
+    return result;
+  }
+}
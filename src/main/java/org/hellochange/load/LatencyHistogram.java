@@ -0,0 +1,139 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+/**
+ * Histogram of latencies with logarithmic buckets: values below 32 are counted exactly and larger ones with 
+ * relative precision of 1/16, which keeps it at a fixed small size for any range of values. Not thread-safe.
+ * 
+ * @author vladimir
+ *
+ */
+public class LatencyHistogram {
+  /** Bits of precision kept below the leading bit. */
+  private static final int SUB_BUCKET_BITS = 4;
+  /** Amount of buckets per power of two. */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** Values below this one are counted exactly. */
+  private static final int EXACT_LIMIT = SUB_BUCKETS * 2;
+  /** Amount of buckets to cover all non-negative long values. */
+  private static final int BUCKETS = EXACT_LIMIT + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  /** Counts by bucket. */
+  private final long[] counts = new long[BUCKETS];
+  /** Total count of values. */
+  private long count;
+  /** Sum of values. */
+  private long sum;
+  /** Maximum value. */
+  private long max;
+
+  /**
+   * Records the value.
+   * 
+   * @param value - value, negative values are recorded as zero.
+   */
+  public void record(final long value) {
+    final long recorded = Math.max(value, 0);
+    this.counts[getBucket(recorded)]++;
+    this.count++;
+    this.sum += recorded;
+    this.max = Math.max(this.max, recorded);
+  }
+
+  /**
+   * Adds all the values of the histogram passed in.
+   * 
+   * @param histogram - histogram to add.
+   */
+  public void add(final LatencyHistogram histogram) {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.counts[i] += histogram.counts[i];
+    }
+    this.count += histogram.count;
+    this.sum += histogram.sum;
+    this.max = Math.max(this.max, histogram.max);
+  }
+
+  /**
+   * Gets amount of values recorded.
+   * 
+   * @return amount of values.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets maximum value recorded.
+   * 
+   * @return maximum value, zero if there are no values.
+   */
+  public long getMax() {
+    return this.max;
+  }
+
+  /**
+   * Gets mean value recorded.
+   * 
+   * @return mean value, zero if there are no values.
+   */
+  public double getMean() {
+    return (this.count == 0) ? 0 : (double) this.sum / this.count;
+  }
+
+  /**
+   * Gets the value below or at which the percentage of values passed in falls, rounded up to the bucket bound.
+   * 
+   * @param percentile - percentage of values, from 0 to 100.
+   * @return value at the percentile, zero if there are no values.
+   */
+  public long getValueAtPercentile(final double percentile) {
+    if ((percentile < 0) || (percentile > 100)) {
+      throw new IllegalArgumentException(String.format("Percentile must be in range [0, 100], but was: %1$s", percentile));
+    }
+    if (this.count == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += this.counts[i];
+      if (seen >= rank) {
+        return Math.min(getBucketMax(i), this.max);
+      }
+    }
+    return this.max;
+  }
+
+  /**
+   * Gets bucket of the value.
+   * 
+   * @param value - non-negative value.
+   * @return bucket index.
+   */
+  private static int getBucket(final long value) {
+    if (value < EXACT_LIMIT) {
+      return (int) value;
+    }
+    final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Gets maximum value of the bucket.
+   * 
+   * @param bucket - bucket index.
+   * @return maximum value.
+   */
+  private static long getBucketMax(final int bucket) {
+    if (bucket < EXACT_LIMIT) {
+      return bucket;
+    }
+    final int shift = (bucket - EXACT_LIMIT) / SUB_BUCKETS + 1;
+    final long mantissa = (bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((mantissa + 1) << shift) - 1;
+  }
+}
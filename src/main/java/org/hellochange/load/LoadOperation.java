@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+/**
+ * Operations generated by the load test.
+ * 
+ * @author vladimir
+ *
+ */
+public enum LoadOperation {
+  /** Adds cash to the register. */
+  PUT("put"), 
+  /** Removes cash from the register. */
+  TAKE("take"), 
+  /** Extracts change from the register. */
+  CHANGE("change"), 
+  /** Reads contents of the register. */
+  SHOW("show");
+
+  /** Name of the CLI command which executes the operation. */
+  private final String commandName;
+
+  /**
+   * Constructor.
+   * 
+   * @param commandName - name of the CLI command.
+   */
+  private LoadOperation(final String commandName) {
+    this.commandName = commandName;
+  }
+
+  /**
+   * Gets name of the CLI command which executes the operation.
+   * 
+   * @return name of the command.
+   */
+  public String getCommandName() {
+    return this.commandName;
+  }
+}
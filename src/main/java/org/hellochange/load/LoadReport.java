@@ -0,0 +1,122 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of the load test: latencies measured from the intended start of every operation, failures and throughput per operation.
+ * 
+ * @author vladimir
+ *
+ */
+public class LoadReport {
+  /** Latencies in nanoseconds by operation. */
+  private final Map<LoadOperation, LatencyHistogram> latencies;
+  /** Failures by operation. */
+  private final Map<LoadOperation, Long> failures;
+  /** Time the test has taken in nanoseconds. */
+  private final long elapsedNanos;
+
+  /**
+   * Constructor.
+   * 
+   * @param latencies - latencies in nanoseconds by operation.
+   * @param failures - failures by operation.
+   * @param elapsedNanos - time the test has taken in nanoseconds.
+   */
+  public LoadReport(final Map<LoadOperation, LatencyHistogram> latencies, final Map<LoadOperation, Long> failures, final long elapsedNanos) {
+    this.latencies = new EnumMap<>(latencies);
+    this.failures = new EnumMap<>(failures);
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Gets latencies of the operation in nanoseconds.
+   * 
+   * @param operation - operation.
+   * @return latencies histogram.
+   */
+  public LatencyHistogram getLatencies(final LoadOperation operation) {
+    final LatencyHistogram histogram = this.latencies.get(operation);
+    return (histogram == null) ? new LatencyHistogram() : histogram;
+  }
+
+  /**
+   * Gets amount of the operations failed: change requests answered with "sorry", takes of bills missing and invalid commands.
+   * 
+   * @param operation - operation.
+   * @return amount of failures.
+   */
+  public long getFailures(final LoadOperation operation) {
+    final Long operationFailures = this.failures.get(operation);
+    return (operationFailures == null) ? 0 : operationFailures;
+  }
+
+  /**
+   * Gets amount of the operations executed.
+   * 
+   * @return amount of the operations.
+   */
+  public long getCount() {
+    long count = 0;
+    for (final LatencyHistogram histogram : this.latencies.values()) {
+      count += histogram.getCount();
+    }
+    return count;
+  }
+
+  /**
+   * Gets time the test has taken in nanoseconds.
+   * 
+   * @return elapsed time.
+   */
+  public long getElapsedNanos() {
+    return this.elapsedNanos;
+  }
+
+  /**
+   * Gets throughput of the operation.
+   * 
+   * @param operation - operation.
+   * @return operations per second.
+   */
+  public double getThroughput(final LoadOperation operation) {
+    return (this.elapsedNanos == 0) ? 0 : getLatencies(operation).getCount() * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    final StringBuilder output = new StringBuilder();
+    output.append(String.format("%1$-8s %2$10s %3$10s %4$10s %5$10s %6$10s %7$10s %8$10s %9$10s%n", 
+        "op", "count", "failed", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+    for (final LoadOperation operation : LoadOperation.values()) {
+      final LatencyHistogram histogram = getLatencies(operation);
+      if (histogram.getCount() == 0) {
+        continue;
+      }
+      output.append(String.format("%1$-8s %2$10d %3$10d %4$10.0f %5$10.1f %6$10.1f %7$10.1f %8$10.1f %9$10.1f%n", 
+          operation.getCommandName(), histogram.getCount(), getFailures(operation), getThroughput(operation), 
+          toMicros(histogram.getValueAtPercentile(50)), toMicros(histogram.getValueAtPercentile(90)), 
+          toMicros(histogram.getValueAtPercentile(99)), toMicros(histogram.getValueAtPercentile(99.9)), toMicros(histogram.getMax())));
+    }
+    output.append(String.format("total %1$d operations in %2$.3f s", getCount(), this.elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+    return output.toString();
+  }
+
+  /**
+   * Converts nanoseconds to microseconds.
+   * 
+   * @param nanos - nanoseconds.
+   * @return microseconds.
+   */
+  private static double toMicros(final long nanos) {
+    return nanos / 1000.0;
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cli.GetChangeCommand;
+import org.hellochange.cli.PutCashCommand;
+import org.hellochange.cli.ShowCommand;
+import org.hellochange.cli.TakeCashCommand;
+import org.hellochange.cli.proc.CliCommand;
+
+/**
+ * Open loop load test of a cash register driven through its CLI commands.
+ * <p>
+ * Every thread issues operations on a fixed schedule regardless of how long the previous ones have taken, and the latency 
+ * of every operation is measured from the time it was scheduled to start rather than from the time it actually started. 
+ * So a stall of the register shows up in the latencies of all the operations queued behind it instead of being hidden 
+ * by the test slowing down with the register (coordinated omission).
+ * 
+ * @author vladimir
+ *
+ */
+public class LoadTest {
+  /** Operations. */
+  private static final LoadOperation[] OPERATIONS = LoadOperation.values();
+  /** Time left to the scheduled start below which the thread spins instead of parking. */
+  private static final long SPIN_THRESHOLD_NANOS = 50_000L;
+
+  /** Commands by operation. */
+  private final Map<LoadOperation, CliCommand> commands;
+  /** Traffic mix. */
+  private final Workload workload;
+
+  /**
+   * Constructor.
+   * 
+   * @param cashRegister - cash register to test.
+   * @param workload - traffic mix.
+   */
+  public LoadTest(final CashRegister cashRegister, final Workload workload) {
+    if (cashRegister == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cashRegister");
+    }
+    if (workload == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: workload");
+    }
+
+    this.commands = new EnumMap<>(LoadOperation.class);
+    this.commands.put(LoadOperation.PUT, new PutCashCommand(cashRegister));
+    this.commands.put(LoadOperation.TAKE, new TakeCashCommand(cashRegister));
+    this.commands.put(LoadOperation.CHANGE, new GetChangeCommand(cashRegister));
+    this.commands.put(LoadOperation.SHOW, new ShowCommand(cashRegister));
+    this.workload = workload;
+  }
+
+  /**
+   * Runs the test.
+   * 
+   * @param rate - total operations per second, split evenly between the threads.
+   * @param duration - duration of the test.
+   * @param unit - time unit of the duration.
+   * @param threads - amount of threads issuing operations.
+   * @param seed - seed of the randomness, so runs can be repeated.
+   * @return test results.
+   * @throws InterruptedException - if interrupted while waiting for the threads.
+   */
+  public LoadReport run(final double rate, final long duration, final TimeUnit unit, final int threads, final long seed) throws InterruptedException {
+    if (rate <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for rate parameter: %1$s", rate));
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for threads parameter: %1$d", threads));
+    }
+
+    final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    final long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+    final long endNanos = startNanos + unit.toNanos(duration);
+    final Worker[] workers = new Worker[threads];
+    final Thread[] workerThreads = new Thread[threads];
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (int i = 0; i < threads; i++) {
+      // threads interleave: thread i starts i intervals later and then issues every threads-th operation
+      workers[i] = new Worker(new Random(seed + i), startNanos + intervalNanos * i, intervalNanos * threads, endNanos);
+      workerThreads[i] = new Thread(workers[i], "load-" + i);
+      workerThreads[i].setUncaughtExceptionHandler((thread, throwable) -> failure.compareAndSet(null, throwable));
+      workerThreads[i].start();
+    }
+    for (final Thread workerThread : workerThreads) {
+      workerThread.join();
+    }
+    if (failure.get() != null) {
+      throw new IllegalStateException("Load test thread has failed.", failure.get());
+    }
+
+    final Map<LoadOperation, LatencyHistogram> latencies = new EnumMap<>(LoadOperation.class);
+    final Map<LoadOperation, Long> failures = new EnumMap<>(LoadOperation.class);
+    for (final LoadOperation operation : OPERATIONS) {
+      final LatencyHistogram histogram = new LatencyHistogram();
+      long operationFailures = 0;
+      for (final Worker worker : workers) {
+        histogram.add(worker.latencies[operation.ordinal()]);
+        operationFailures += worker.failures[operation.ordinal()];
+      }
+      latencies.put(operation, histogram);
+      failures.put(operation, operationFailures);
+    }
+    return new LoadReport(latencies, failures, Math.max(System.nanoTime(), endNanos) - startNanos);
+  }
+
+  /**
+   * Waits until the time passed in.
+   * 
+   * @param deadlineNanos - time to wait until.
+   */
+  private static void awaitNanos(final long deadlineNanos) {
+    long remaining;
+    while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+      if (remaining > SPIN_THRESHOLD_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Issues operations of a single thread on its schedule.
+   */
+  private final class Worker implements Runnable {
+    /** Source of randomness. */
+    private final Random random;
+    /** Scheduled start of the first operation. */
+    private final double firstStartNanos;
+    /** Interval between the operations. */
+    private final double intervalNanos;
+    /** Time to stop issuing operations at. */
+    private final long endNanos;
+    /** Output of the commands. */
+    private final DiscardingCliOutput output = new DiscardingCliOutput();
+    /** Latencies by operation ordinal. */
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    /** Failures by operation ordinal. */
+    private final long[] failures = new long[OPERATIONS.length];
+
+    /**
+     * Constructor.
+     * 
+     * @param random - source of randomness.
+     * @param firstStartNanos - scheduled start of the first operation.
+     * @param intervalNanos - interval between the operations.
+     * @param endNanos - time to stop issuing operations at.
+     */
+    private Worker(final Random random, final double firstStartNanos, final double intervalNanos, final long endNanos) {
+      this.random = random;
+      this.firstStartNanos = firstStartNanos;
+      this.intervalNanos = intervalNanos;
+      this.endNanos = endNanos;
+      for (int i = 0; i < OPERATIONS.length; i++) {
+        this.latencies[i] = new LatencyHistogram();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      for (long i = 0; ; i++) {
+        final long scheduledNanos = (long) (this.firstStartNanos + this.intervalNanos * i);
+        if (scheduledNanos >= this.endNanos) {
+          break;
+        }
+
+        final LoadOperation operation = LoadTest.this.workload.nextOperation(this.random);
+        final String[] args = LoadTest.this.workload.nextArgs(operation, this.random);
+        awaitNanos(scheduledNanos);
+
+        LoadTest.this.commands.get(operation).execute(args, this.output);
+        this.latencies[operation.ordinal()].record(System.nanoTime() - scheduledNanos);
+        if (this.output.resetFailed()) {
+          this.failures[operation.ordinal()]++;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import java.util.Random;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Bills customers pay with, which drives how the drawer gets depleted: change drains the denominations the payments do not restock.
+ * 
+ * @author vladimir
+ *
+ */
+public enum PaymentPattern {
+  /** Payments bring every denomination equally often, so the drawer stays balanced. */
+  BALANCED(1, 1, 1, 1, 1), 
+  /** Payments mostly bring large bills, so small denominations run out during the shift. */
+  LARGE_BILLS(0, 0, 1, 3, 6), 
+  /** Payments mostly bring small bills, so large denominations run out during the shift. */
+  SMALL_BILLS(6, 3, 1, 0, 0);
+
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /** Cumulative weights by denomination ordinal. */
+  private final int[] cumulativeWeights;
+
+  /**
+   * Constructor.
+   * 
+   * @param weights - weights of the denominations starting with the smallest one.
+   */
+  private PaymentPattern(final int... weights) {
+    this.cumulativeWeights = new int[weights.length];
+    int sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      sum += weights[i];
+      this.cumulativeWeights[i] = sum;
+    }
+  }
+
+  /**
+   * Draws denomination of the next bill paid.
+   * 
+   * @param random - source of randomness.
+   * @return bill denomination.
+   */
+  public BillDenomination nextBill(final Random random) {
+    final int value = random.nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+    int i = 0;
+    while (this.cumulativeWeights[i] <= value) {
+      i++;
+    }
+    return DENOMINATIONS[i];
+  }
+}
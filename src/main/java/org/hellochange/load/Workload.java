@@ -0,0 +1,130 @@
+/**
+ * 
+ */
+package org.hellochange.load;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.hellochange.cash.BillDenomination;
+
+/**
+ * Traffic mix of the load test: ratios of the operations, distribution of the change amounts and the bills put into 
+ * and taken from the drawer. Generates CLI arguments of the operations; thread-safe as long as every thread uses its own random.
+ * 
+ * @author vladimir
+ *
+ */
+public class Workload {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** Operations. */
+  private static final LoadOperation[] OPERATIONS = LoadOperation.values();
+
+  /** Cumulative weights of the operations by ordinal. */
+  private final int[] cumulativeWeights;
+  /** Distribution of the change amounts. */
+  private final AmountDistribution changeAmounts;
+  /** Bills put into and taken from the drawer. */
+  private final PaymentPattern payments;
+  /** Maximum amount of bills put at once. */
+  private final int maxBillsPerPut;
+
+  /**
+   * Constructor.
+   * 
+   * @param mix - weights of the operations. Operations missing are never generated.
+   * @param changeAmounts - distribution of the change amounts.
+   * @param payments - bills put into and taken from the drawer.
+   * @param maxBillsPerPut - maximum amount of bills put at once, positive.
+   */
+  public Workload(final Map<LoadOperation, Integer> mix, final AmountDistribution changeAmounts, final PaymentPattern payments, 
+      final int maxBillsPerPut) {
+    if (mix == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: mix");
+    }
+    if (changeAmounts == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeAmounts");
+    }
+    if (payments == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: payments");
+    }
+    if (maxBillsPerPut <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for maxBillsPerPut parameter: %1$d", maxBillsPerPut));
+    }
+
+    this.cumulativeWeights = new int[OPERATIONS.length];
+    int sum = 0;
+    for (final LoadOperation operation : OPERATIONS) {
+      final Integer weight = mix.get(operation);
+      if ((weight != null) && (weight < 0)) {
+        throw new IllegalArgumentException(String.format("Negative weight has been passed in for operation %1$s: %2$d", operation, weight));
+      }
+      sum += (weight == null) ? 0 : weight;
+      this.cumulativeWeights[operation.ordinal()] = sum;
+    }
+    if (sum == 0) {
+      throw new IllegalArgumentException("No operation has positive weight in the mix.");
+    }
+
+    this.changeAmounts = changeAmounts;
+    this.payments = payments;
+    this.maxBillsPerPut = maxBillsPerPut;
+  }
+
+  /**
+   * Draws the next operation.
+   * 
+   * @param random - source of randomness.
+   * @return operation.
+   */
+  public LoadOperation nextOperation(final Random random) {
+    final int value = random.nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+    int i = 0;
+    while (this.cumulativeWeights[i] <= value) {
+      i++;
+    }
+    return OPERATIONS[i];
+  }
+
+  /**
+   * Draws CLI arguments of the operation.
+   * 
+   * @param operation - operation.
+   * @param random - source of randomness.
+   * @return arguments of the CLI command executing the operation.
+   */
+  public String[] nextArgs(final LoadOperation operation, final Random random) {
+    switch (operation) {
+      case PUT:
+        return toCashArgs(this.maxBillsPerPut, random);
+      case TAKE:
+        return toCashArgs(1, random);
+      case CHANGE:
+        return new String[] { Integer.toString(this.changeAmounts.nextAmount(random)) };
+      default:
+        return new String[0];
+    }
+  }
+
+  /**
+   * Draws bills into CLI arguments of cash, starting with the largest denomination.
+   * 
+   * @param maxBills - maximum amount of bills.
+   * @param random - source of randomness.
+   * @return arguments.
+   */
+  private String[] toCashArgs(final int maxBills, final Random random) {
+    final int[] billsAmounts = new int[DENOMINATIONS.length];
+    final int bills = 1 + random.nextInt(maxBills);
+    for (int i = 0; i < bills; i++) {
+      billsAmounts[this.payments.nextBill(random).ordinal()]++;
+    }
+
+    final String[] args = new String[DENOMINATIONS.length];
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      args[DENOMINATIONS.length - 1 - d] = Integer.toString(billsAmounts[d]);
+    }
+    return args;
+  }
+}
@@ -0,0 +1,477 @@
+/**
+ * 
+ */
+package org.hellochange.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+
+/**
+ * Replays recorded transaction log against a cash register. 
+ * <p>
+ * The log contains one record per line in the grammar of the CLI commands: <code>put</code> and <code>take</code> 
+ * with bills amounts, <code>change</code> with change amount and <code>show</code>. A record may be followed by 
+ * <code>=&gt;</code> and the result recorded for it: the register contents as printed by CLI commands, 
+ * change cash for <code>change</code>, or the failure line the CLI prints if the operation could not be completed: 
+ * <code>sorry</code> for <code>change</code> and <code>Sorry: </code> followed by the reason for <code>take</code>. 
+ * Blank lines, lines starting with <code>#</code> and <code>quit</code> commands are skipped.
+ * <p>
+ * The log is memory mapped window by window and parsed in place into fixed size batches of records which are then applied 
+ * to the register, so memory used does not depend on the size of the log. Results and mismatches are reported to the 
+ * listener as soon as the batch they belong to is applied, and errors - once the records preceding them are applied, 
+ * so the listener gets all of them in the order of the lines.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReplayEngine {
+  /** Default size of the log window mapped at once. */
+  static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+  /** Maximum amount of records in a batch. */
+  private static final int BATCH_SIZE = 4096;
+
+  /** Amount of arguments of the commands which expect cash definition. */
+  private static final int CASH_ARGS_AMOUNT = BillDenomination.denominationsReversed.size();
+
+  /** Operations supported. */
+  private static final ReplayOperation[] OPERATIONS = ReplayOperation.values();
+
+  /** Operation index for the command which is skipped. */
+  private static final int SKIPPED_OPERATION = OPERATIONS.length;
+
+  /** Command names indexed by operation, followed by the name of the command which is skipped. */
+  private static final byte[][] COMMAND_NAMES = new byte[OPERATIONS.length + 1][];
+
+  static {
+    for (ReplayOperation nextOperation : OPERATIONS) {
+      COMMAND_NAMES[nextOperation.ordinal()] = nextOperation.getCommandName().getBytes(StandardCharsets.US_ASCII);
+    }
+    COMMAND_NAMES[SKIPPED_OPERATION] = "quit".getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** Result recorded for the change which could not be made, as printed by the CLI. */
+  private static final String SORRY = "sorry";
+  /** Format of the result recorded for the take which could not be completed, as printed by the CLI. */
+  private static final String TAKE_SORRY_FORMAT = "Sorry: %1$s";
+
+  /** Cash register to replay the log against. */
+  private final CashRegister cashRegister;
+  /** Listener to report results to. */
+  private final ReplayListener listener;
+  /** Size of the log window mapped at once. */
+  private final int windowSize;
+
+  /**
+   * Constructor.
+   * 
+   * @param cashRegister - cash register to replay the log against.
+   * @param listener - listener to report results to.
+   */
+  public ReplayEngine(final CashRegister cashRegister, final ReplayListener listener) {
+    this(cashRegister, listener, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param cashRegister - cash register to replay the log against.
+   * @param listener - listener to report results to.
+   * @param windowSize - size of the log window mapped at once. Limits the length of the line in the log.
+   */
+  ReplayEngine(final CashRegister cashRegister, final ReplayListener listener, final int windowSize) {
+    if (cashRegister == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cashRegister.");
+    }
+    if (listener == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: listener.");
+    }
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for windowSize parameter: %1$d", windowSize));
+    }
+
+    this.cashRegister = cashRegister;
+    this.listener = listener;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Replays the log passed in.
+   * 
+   * @param logFile - transaction log.
+   * @return replay summary.
+   * @throws IOException - in case of I/O error or if the log contains a line longer than the window size.
+   */
+  public ReplayReport replay(final Path logFile) throws IOException {
+    if (logFile == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: logFile.");
+    }
+
+    final long startNanos = System.nanoTime();
+    final Replay replay = new Replay();
+
+    try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        final int length = (int) Math.min(this.windowSize, size - position);
+        final ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        final int consumed = replay.replayWindow(window, length, (position + length) == size);
+        if (consumed == 0) {
+          throw new IOException(String.format("Line %1$d of the log is longer than %2$d bytes.", replay.lineNumber + 1, this.windowSize));
+        }
+        position += consumed;
+      }
+    }
+
+    return new ReplayReport(replay.recordsAmount, replay.mismatchesAmount, replay.errorsAmount, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * State of a single replay run.
+   */
+  private final class Replay {
+    /** Operations of the batch records. */
+    private final int[] operations = new int[BATCH_SIZE];
+    /** Arguments of the batch records. */
+    private final int[] arguments = new int[BATCH_SIZE * CASH_ARGS_AMOUNT];
+    /** Line numbers of the batch records. */
+    private final long[] lineNumbers = new long[BATCH_SIZE];
+    /** Window offsets of the results recorded for the batch records, -1 if there is no result recorded. */
+    private final int[] expectedStarts = new int[BATCH_SIZE];
+    /** Window offsets of the ends of the results recorded for the batch records. */
+    private final int[] expectedEnds = new int[BATCH_SIZE];
+    /** Reusable contents for the cash objects created from the records. */
+    private final Map<BillDenomination, Integer> contents = new HashMap<>();
+    /** Amount of records in the batch. */
+    private int batchSize;
+
+    /** Number of the last line parsed. */
+    private long lineNumber;
+    /** Amount of records applied. */
+    private long recordsAmount;
+    /** Amount of records with mismatching results. */
+    private long mismatchesAmount;
+    /** Amount of lines which could not be parsed. */
+    private long errorsAmount;
+
+    /**
+     * Replays complete lines of the log window passed in.
+     * 
+     * @param window - log window.
+     * @param length - length of the window.
+     * @param lastWindow - whether this is the last window of the log, so its last line is complete even without line break.
+     * @return amount of bytes of the complete lines replayed.
+     */
+    private int replayWindow(final ByteBuffer window, final int length, final boolean lastWindow) {
+      int lineStart = 0;
+      while (lineStart < length) {
+        int lineEnd = lineStart;
+        while ((lineEnd < length) && (window.get(lineEnd) != '\n')) {
+          lineEnd++;
+        }
+        if ((lineEnd == length) && !lastWindow) {
+          break;
+        }
+
+        this.lineNumber++;
+        parseLine(window, lineStart, lineEnd);
+        if (this.batchSize == BATCH_SIZE) {
+          applyBatch(window);
+        }
+        lineStart = lineEnd + 1;
+      }
+
+      // results recorded refer to this window, so the batch has to be applied before the next one is mapped
+      applyBatch(window);
+      return Math.min(lineStart, length);
+    }
+
+    /**
+     * Parses line of the log window into the next record of the batch.
+     * 
+     * @param window - log window.
+     * @param lineStart - offset of the line.
+     * @param lineEnd - offset of the line end.
+     */
+    private void parseLine(final ByteBuffer window, final int lineStart, final int lineEnd) {
+      final int end = ((lineEnd > lineStart) && (window.get(lineEnd - 1) == '\r')) ? lineEnd - 1 : lineEnd;
+
+      int commandEnd = end;
+      for (int i = lineStart; i < end - 1; i++) {
+        if ((window.get(i) == '=') && (window.get(i + 1) == '>')) {
+          commandEnd = i;
+          break;
+        }
+      }
+
+      int position = skipSpaces(window, lineStart, commandEnd);
+      if ((position == commandEnd) || (window.get(position) == '#')) {
+        return;
+      }
+
+      final int nameEnd = tokenEnd(window, position, commandEnd);
+      final int operation = findOperation(window, position, nameEnd);
+      if (operation == SKIPPED_OPERATION) {
+        return;
+      }
+      if (operation < 0) {
+        error(window, lineStart, end, "Unsupported command");
+        return;
+      }
+
+      final ReplayOperation replayOperation = OPERATIONS[operation];
+      final int argsAmount = (replayOperation == ReplayOperation.PUT) || (replayOperation == ReplayOperation.TAKE) ? CASH_ARGS_AMOUNT 
+          : (replayOperation == ReplayOperation.CHANGE) ? 1 : 0;
+
+      final int record = this.batchSize;
+      position = nameEnd;
+      for (int i = 0; i < argsAmount; i++) {
+        position = skipSpaces(window, position, commandEnd);
+        final int argEnd = tokenEnd(window, position, commandEnd);
+        final int argument = parseNonNegativeInt(window, position, argEnd);
+        if (argument < 0) {
+          error(window, lineStart, end, String.format("Command [%1$s] expects %2$d non-negative integer arguments", 
+              replayOperation.getCommandName(), argsAmount));
+          return;
+        }
+        this.arguments[record * CASH_ARGS_AMOUNT + i] = argument;
+        position = argEnd;
+      }
+      if (skipSpaces(window, position, commandEnd) != commandEnd) {
+        error(window, lineStart, end, String.format("Command [%1$s] expects %2$d non-negative integer arguments", 
+            replayOperation.getCommandName(), argsAmount));
+        return;
+      }
+
+      this.operations[record] = operation;
+      this.lineNumbers[record] = this.lineNumber;
+      this.expectedStarts[record] = -1;
+      if (commandEnd < end) {
+        int expectedEnd = end;
+        while ((expectedEnd > commandEnd + 2) && isSpace(window.get(expectedEnd - 1))) {
+          expectedEnd--;
+        }
+        this.expectedStarts[record] = skipSpaces(window, commandEnd + 2, expectedEnd);
+        this.expectedEnds[record] = expectedEnd;
+      }
+      this.batchSize++;
+    }
+
+    /**
+     * Applies records of the batch to the register and reports the results.
+     * 
+     * @param window - log window the batch has been parsed from.
+     */
+    private void applyBatch(final ByteBuffer window) {
+      for (int record = 0; record < this.batchSize; record++) {
+        final ReplayOperation operation = OPERATIONS[this.operations[record]];
+
+        Cash result;
+        String failure = SORRY;
+        switch (operation) {
+          case PUT:
+            result = ReplayEngine.this.cashRegister.add(toCash(record));
+            break;
+          case TAKE:
+            try {
+              result = ReplayEngine.this.cashRegister.remove(toCash(record));
+            } catch (NoSufficientFundsException nsfEx) {
+              result = null;
+              // results recorded are trimmed, and so is the failure line
+              failure = String.format(TAKE_SORRY_FORMAT, nsfEx.getMessage()).trim();
+            }
+            break;
+          case CHANGE:
+            result = ReplayEngine.this.cashRegister.change(this.arguments[record * CASH_ARGS_AMOUNT]);
+            break;
+          default:
+            result = ReplayEngine.this.cashRegister.getContents();
+            break;
+        }
+
+        this.recordsAmount++;
+        ReplayEngine.this.listener.onResult(this.lineNumbers[record], operation, result);
+
+        final int expectedStart = this.expectedStarts[record];
+        if (expectedStart >= 0) {
+          final int expectedEnd = this.expectedEnds[record];
+          final String actual = (result == null) ? failure : result.toString();
+          if (!matches(window, expectedStart, expectedEnd, actual)) {
+            this.mismatchesAmount++;
+            ReplayEngine.this.listener.onMismatch(this.lineNumbers[record], decode(window, expectedStart, expectedEnd), actual);
+          }
+        }
+      }
+      this.batchSize = 0;
+    }
+
+    /**
+     * Creates cash object from the arguments of the batch record.
+     * 
+     * @param record - batch record.
+     * @return cash object.
+     */
+    private Cash toCash(final int record) {
+      for (int i = 0; i < CASH_ARGS_AMOUNT; i++) {
+        this.contents.put(BillDenomination.denominationsReversed.get(i), this.arguments[record * CASH_ARGS_AMOUNT + i]);
+      }
+      return Cash.newInstance(this.contents);
+    }
+
+    /**
+     * Reports the line which can not be parsed.
+     * 
+     * @param window - log window.
+     * @param lineStart - offset of the line.
+     * @param lineEnd - offset of the line end.
+     * @param message - error message.
+     */
+    private void error(final ByteBuffer window, final int lineStart, final int lineEnd, final String message) {
+      // results of the lines before have to be reported first
+      applyBatch(window);
+      this.errorsAmount++;
+      ReplayEngine.this.listener.onError(this.lineNumber, String.format("%1$s: [%2$s]", message, decode(window, lineStart, lineEnd)));
+    }
+  }
+
+  /**
+   * Finds the operation by its command name.
+   * 
+   * @param window - log window.
+   * @param start - offset of the command name.
+   * @param end - offset of the command name end.
+   * @return operation index or -1 if command is not supported.
+   */
+  private static int findOperation(final ByteBuffer window, final int start, final int end) {
+    for (int operation = 0; operation < COMMAND_NAMES.length; operation++) {
+      final byte[] commandName = COMMAND_NAMES[operation];
+      if (commandName.length != (end - start)) {
+        continue;
+      }
+
+      int i = 0;
+      while ((i < commandName.length) && (commandName[i] == window.get(start + i))) {
+        i++;
+      }
+      if (i == commandName.length) {
+        return operation;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses non-negative integer.
+   * 
+   * @param window - log window.
+   * @param start - offset of the integer.
+   * @param end - offset of the integer end.
+   * @return integer parsed or -1 if it is not a valid non-negative integer.
+   */
+  private static int parseNonNegativeInt(final ByteBuffer window, final int start, final int end) {
+    if (start == end) {
+      return -1;
+    }
+
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      final int digit = window.get(i) - '0';
+      if ((digit < 0) || (digit > 9) || (result > (Integer.MAX_VALUE - digit) / 10)) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether the text of the log window is the same as the string passed in.
+   * 
+   * @param window - log window.
+   * @param start - offset of the text.
+   * @param end - offset of the text end.
+   * @param value - string to compare with.
+   * @return true if they are the same.
+   */
+  private static boolean matches(final ByteBuffer window, final int start, final int end, final String value) {
+    if (value.length() != (end - start)) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) != window.get(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decodes text of the log window.
+   * 
+   * @param window - log window.
+   * @param start - offset of the text.
+   * @param end - offset of the text end.
+   * @return text decoded.
+   */
+  private static String decode(final ByteBuffer window, final int start, final int end) {
+    final byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = window.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Skips spaces.
+   * 
+   * @param window - log window.
+   * @param start - offset to start from.
+   * @param end - offset to stop at.
+   * @return offset of the first non-space character or end.
+   */
+  private static int skipSpaces(final ByteBuffer window, final int start, final int end) {
+    int position = start;
+    while ((position < end) && isSpace(window.get(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Finds the end of the token.
+   * 
+   * @param window - log window.
+   * @param start - offset of the token.
+   * @param end - offset to stop at.
+   * @return offset of the first space character after the token or end.
+   */
+  private static int tokenEnd(final ByteBuffer window, final int start, final int end) {
+    int position = start;
+    while ((position < end) && !isSpace(window.get(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Checks whether the character is a space.
+   * 
+   * @param character - character to check.
+   * @return true if it is a space.
+   */
+  private static boolean isSpace(final byte character) {
+    return (character == ' ') || (character == '\t');
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package org.hellochange.replay;
+
+import org.hellochange.cash.Cash;
+
+/**
+ * Receives results of the transaction log replay as they are produced.
+ * 
+ * @author vladimir
+ *
+ */
+public interface ReplayListener {
+  /** Listener which ignores everything. */
+  ReplayListener NONE = new ReplayListener() {
+    // default methods only
+  };
+
+  /**
+   * Called for every record applied to the register.
+   * 
+   * @param lineNumber - number of the record line in the log.
+   * @param operation - operation applied.
+   * @param result - resulting state of the register, or change cash for {@link ReplayOperation#CHANGE}. 
+   * Null if the operation could not be completed.
+   */
+  default void onResult(long lineNumber, ReplayOperation operation, Cash result) {
+    // nothing to do by default
+  }
+
+  /**
+   * Called for every record which result differs from the one recorded in the log.
+   * 
+   * @param lineNumber - number of the record line in the log.
+   * @param expected - result recorded in the log.
+   * @param actual - actual result of the replay.
+   */
+  default void onMismatch(long lineNumber, String expected, String actual) {
+    // nothing to do by default
+  }
+
+  /**
+   * Called for every line which can not be parsed.
+   * 
+   * @param lineNumber - number of the line in the log.
+   * @param message - error message.
+   */
+  default void onError(long lineNumber, String message) {
+    // nothing to do by default
+  }
+}
@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package org.hellochange.replay;
+
+/**
+ * Operations supported by the transaction log replay.
+ * 
+ * @author vladimir
+ *
+ */
+public enum ReplayOperation {
+  /** Adds cash to the register. */
+  PUT("put"), 
+  /** Removes cash from the register. */
+  TAKE("take"), 
+  /** Extracts change from the register. */
+  CHANGE("change"), 
+  /** Reads contents of the register. */
+  SHOW("show");
+
+  /** Name of the command in the transaction log. */
+  private final String commandName;
+
+  /**
+   * Constructor.
+   * 
+   * @param commandName - name of the command in the transaction log.
+   */
+  private ReplayOperation(final String commandName) {
+    this.commandName = commandName;
+  }
+
+  /**
+   * Gets name of the command in the transaction log.
+   * 
+   * @return name of the command.
+   */
+  public String getCommandName() {
+    return this.commandName;
+  }
+}
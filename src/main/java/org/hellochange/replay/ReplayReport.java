@@ -0,0 +1,92 @@
+/**
+ * 
+ */
+package org.hellochange.replay;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of the transaction log replay.
+ * 
+ * @author vladimir
+ *
+ */
+public final class ReplayReport {
+  /** Amount of records applied. */
+  private final long recordsAmount;
+  /** Amount of records with mismatching results. */
+  private final long mismatchesAmount;
+  /** Amount of lines which could not be parsed. */
+  private final long errorsAmount;
+  /** Time spent, in nanoseconds. */
+  private final long elapsedNanos;
+
+  /**
+   * Constructor.
+   * 
+   * @param recordsAmount - amount of records applied.
+   * @param mismatchesAmount - amount of records with mismatching results.
+   * @param errorsAmount - amount of lines which could not be parsed.
+   * @param elapsedNanos - time spent, in nanoseconds.
+   */
+  public ReplayReport(final long recordsAmount, final long mismatchesAmount, final long errorsAmount, final long elapsedNanos) {
+    this.recordsAmount = recordsAmount;
+    this.mismatchesAmount = mismatchesAmount;
+    this.errorsAmount = errorsAmount;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Gets amount of records applied.
+   * 
+   * @return amount of records applied.
+   */
+  public long getRecordsAmount() {
+    return this.recordsAmount;
+  }
+
+  /**
+   * Gets amount of records with mismatching results.
+   * 
+   * @return amount of records with mismatching results.
+   */
+  public long getMismatchesAmount() {
+    return this.mismatchesAmount;
+  }
+
+  /**
+   * Gets amount of lines which could not be parsed.
+   * 
+   * @return amount of lines which could not be parsed.
+   */
+  public long getErrorsAmount() {
+    return this.errorsAmount;
+  }
+
+  /**
+   * Gets time spent, in nanoseconds.
+   * 
+   * @return time spent, in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return this.elapsedNanos;
+  }
+
+  /**
+   * Gets replay throughput.
+   * 
+   * @return records applied per second.
+   */
+  public double getRecordsPerSecond() {
+    return (this.elapsedNanos > 0) ? this.recordsAmount * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos : 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return String.format("replayed %1$d records in %2$d ms (%3$.0f records/s): %4$d mismatches, %5$d errors", 
+        this.recordsAmount, TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos), getRecordsPerSecond(), this.mismatchesAmount, this.errorsAmount);
+  }
+}
@@ -0,0 +1,318 @@
+/**
+ * 
+ */
+package org.hellochange.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.SimpleCashRegister;
+import org.hellochange.cash.VersionedCashRegister;
+
+/**
+ * Read-only cash register replicated from {@link ReplicationPrimary}: serves reads of the contents as of the last frame applied 
+ * and rejects any change. Since the replica keeps the full state rather than a journal, failover is just {@link #promote()}.
+ * <p>
+ * A frame which would leave the replica in an invalid state, e.g. with a negative amount of bills, is not applied: 
+ * the replica reconnects to the primary instead and resyncs from a fresh snapshot, serving the last valid contents meanwhile.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReplicaCashRegister implements VersionedCashRegister, AutoCloseable {
+  /** Primary host. */
+  private final String host;
+  /** Primary port. */
+  private final int port;
+  /** Socket connected to the primary, guarded by this. */
+  private Socket socket;
+  /** Amounts of bills in the register by denomination ordinal. */
+  private final int[] billsAmounts;
+  /** Amounts of bills of the batch being applied by denomination ordinal. */
+  private final int[] nextBillsAmounts;
+  /** Thread reading the frames. */
+  private final Thread reader;
+  /** Contents of the register as of the last frame applied. */
+  private volatile Cash contents = Cash.EMPTY;
+  /** Sequence number of the next event expected, -1 until the snapshot has been received. */
+  private volatile long sequence = -1L;
+  /** Whether the replica is connected to the primary. */
+  private volatile boolean connected;
+  /** Whether the replica has been closed, guarded by this. */
+  private boolean closed;
+  /** Amount of resyncs from a fresh snapshot. */
+  private volatile long resyncs;
+
+  /**
+   * Constructor: connects to the primary and starts replication.
+   * 
+   * @param host - primary host.
+   * @param port - primary port.
+   * @throws IOException - if the primary cannot be connected to.
+   */
+  public ReplicaCashRegister(final String host, final int port) throws IOException {
+    if (host == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: host");
+    }
+
+    this.host = host;
+    this.port = port;
+    this.socket = connect();
+    this.billsAmounts = new int[ReplicationProtocol.DENOMINATIONS.length];
+    this.nextBillsAmounts = new int[ReplicationProtocol.DENOMINATIONS.length];
+    this.connected = true;
+    this.reader = new Thread(this::replicate, "replica-" + port);
+    this.reader.setDaemon(true);
+    this.reader.start();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Cash getContents() {
+    return this.contents;
+  }
+
+  /**
+   * Not supported: replica is read-only.
+   * 
+   * @throws UnsupportedOperationException - always.
+   */
+  @Override
+  public Cash add(final Cash cash) {
+    throw new UnsupportedOperationException("Replica cash register is read-only.");
+  }
+
+  /**
+   * Not supported: replica is read-only.
+   * 
+   * @throws UnsupportedOperationException - always.
+   */
+  @Override
+  public Cash remove(final Cash cash) {
+    throw new UnsupportedOperationException("Replica cash register is read-only.");
+  }
+
+  /**
+   * Not supported: replica is read-only.
+   * 
+   * @throws UnsupportedOperationException - always.
+   */
+  @Override
+  public Cash change(final Integer amount) {
+    throw new UnsupportedOperationException("Replica cash register is read-only.");
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Version of the replica is the sequence number of the next event expected.
+   */
+  @Override
+  public long getVersion() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets sequence number of the next event expected: all the events before it have been applied.
+   * 
+   * @return sequence number of the next event, or -1 if the snapshot has not been received yet.
+   */
+  public long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets amount of resyncs from a fresh snapshot after the frames which could not be applied.
+   * 
+   * @return amount of resyncs.
+   */
+  public long getResyncs() {
+    return this.resyncs;
+  }
+
+  /**
+   * Checks whether the replica is still connected to the primary.
+   * 
+   * @return true if connected.
+   */
+  public boolean isConnected() {
+    return this.connected;
+  }
+
+  /**
+   * Waits until all the events before the sequence number passed in have been applied.
+   * 
+   * @param expectedSequence - sequence number of the next event to wait for.
+   * @param timeout - maximum time to wait.
+   * @param unit - time unit of the timeout.
+   * @return true if the events have been applied, false if timed out or disconnected.
+   * @throws InterruptedException - if interrupted while waiting.
+   */
+  public synchronized boolean awaitSequence(final long expectedSequence, final long timeout, final TimeUnit unit) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (this.sequence < expectedSequence) {
+      final long remaining = deadline - System.nanoTime();
+      if (!this.connected || (remaining <= 0)) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return true;
+  }
+
+  /**
+   * Disconnects from the primary and creates a writable register with the contents replicated: failover to the replica.
+   * 
+   * @return register to take over from the primary.
+   */
+  public CashRegister promote() {
+    close();
+    return new SimpleCashRegister(this.contents);
+  }
+
+  /**
+   * Disconnects from the primary.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      this.closed = true;
+      closeSocket();
+    }
+    if (Thread.currentThread() != this.reader) {
+      boolean interrupted = false;
+      while (this.reader.isAlive()) {
+        try {
+          this.reader.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Reads and applies frames until disconnected, resyncing from a fresh snapshot whenever a frame cannot be applied.
+   */
+  private void replicate() {
+    try {
+      Socket current;
+      synchronized (this) {
+        current = this.socket;
+      }
+      while (true) {
+        try {
+          follow(current);
+        } catch (RuntimeException e) {
+          // the frame has not been applied, drop the stream and start over from a fresh snapshot
+        }
+        synchronized (this) {
+          if (this.closed) {
+            return;
+          }
+          closeSocket();
+          this.socket = connect();
+          current = this.socket;
+        }
+        this.resyncs++;
+      }
+    } catch (IOException e) {
+      // disconnected
+    } finally {
+      synchronized (this) {
+        this.connected = false;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Reads and applies frames from the primary until a frame cannot be applied.
+   * 
+   * @param current - socket connected to the primary.
+   * @throws IOException - if disconnected.
+   */
+  private void follow(final Socket current) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream()));
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+    boolean synced = false;
+    while (true) {
+      final byte type = in.readByte();
+      final long nextSequence = in.readLong();
+      if (type == ReplicationProtocol.SNAPSHOT) {
+        ReplicationProtocol.readBillsAmounts(in, this.nextBillsAmounts);
+        synced = true;
+      } else if ((type == ReplicationProtocol.BATCH) && synced) {
+        System.arraycopy(this.billsAmounts, 0, this.nextBillsAmounts, 0, this.billsAmounts.length);
+        readBatch(in);
+      } else {
+        throw new IllegalStateException(String.format("Unexpected frame type: %1$d", type));
+      }
+
+      // only the amounts valid as a whole become the contents
+      for (final int billsAmount : this.nextBillsAmounts) {
+        if (billsAmount < 0) {
+          throw new IllegalStateException("Frame leaves negative amount of bills.");
+        }
+      }
+      System.arraycopy(this.nextBillsAmounts, 0, this.billsAmounts, 0, this.billsAmounts.length);
+      this.contents = ReplicationProtocol.toCash(this.billsAmounts);
+      synchronized (this) {
+        this.sequence = nextSequence;
+        notifyAll();
+      }
+      ReplicationProtocol.writeAck(out, nextSequence);
+      out.flush();
+    }
+  }
+
+  /**
+   * Reads batch frame body and applies its deltas to the amounts of bills of the batch.
+   * 
+   * @param in - input to read from.
+   * @throws IOException - in case of I/O error.
+   */
+  private void readBatch(final DataInputStream in) throws IOException {
+    final int eventsAmount = in.readInt();
+    for (int i = 0; i < eventsAmount; i++) {
+      for (int j = 0; j < this.nextBillsAmounts.length; j++) {
+        this.nextBillsAmounts[j] += in.readInt();
+      }
+    }
+  }
+
+  /**
+   * Connects to the primary.
+   * 
+   * @return socket connected.
+   * @throws IOException - if the primary cannot be connected to.
+   */
+  private Socket connect() throws IOException {
+    final Socket connected = new Socket(this.host, this.port);
+    connected.setTcpNoDelay(true);
+    return connected;
+  }
+
+  /**
+   * Closes the socket connected to the primary. Must be called holding the lock of the replica.
+   */
+  private void closeSocket() {
+    try {
+      this.socket.close();
+    } catch (IOException e) {
+      // nothing to do here
+    }
+  }
+}
@@ -0,0 +1,436 @@
+/**
+ * 
+ */
+package org.hellochange.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.event.RegisterEvent;
+import org.hellochange.cash.event.RegisterEventConsumer;
+import org.hellochange.cash.event.RegisterEventRing;
+
+/**
+ * Primary side of the register replication: streams the events published to {@link RegisterEventRing} to the replicas 
+ * connected over local TCP socket.
+ * <p>
+ * Primary reads the ring with a gating consumer, so no event is lost but the register waits for the primary once the ring is full, 
+ * and keeps a shadow copy of the register state. Every replica connected gets the shadow copy as a snapshot first and then 
+ * the batches of events following it, acknowledging every frame applied. The primary must be created before the register 
+ * publishes any event to the ring, starting from the contents the register has been created with.
+ * <p>
+ * The pump thread never writes to the sockets itself: every replica has its own writer thread draining a bounded queue of frames. 
+ * A replica falling so far behind that its queue is full is disconnected, so a stalled replica cannot stall the register; 
+ * it catches up from a fresh snapshot once it reconnects.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReplicationPrimary implements AutoCloseable {
+  /** Default maximum amount of events in a batch frame. */
+  public static final int DEFAULT_MAX_BATCH = 1024;
+  /** Default maximum amount of frames queued for a replica before it is disconnected. */
+  public static final int DEFAULT_MAX_PENDING_FRAMES = 1024;
+
+  /** Time to park the pump thread for if there are no events. */
+  private static final long IDLE_PARK_NANOS = 100_000L;
+
+  /** Ring to read events from. */
+  private final RegisterEventRing ring;
+  /** Gating consumer of the ring. */
+  private final RegisterEventConsumer consumer;
+  /** Maximum amount of events in a batch frame. */
+  private final int maxBatch;
+  /** Maximum amount of frames queued for a replica. */
+  private final int maxPendingFrames;
+  /** Server socket to accept replicas on. */
+  private final ServerSocket serverSocket;
+  /** Shadow copy of amounts of bills in the register by denomination ordinal. */
+  private final int[] billsAmounts;
+  /** Deltas of the batch being collected. */
+  private final int[] deltas;
+  /** Buffer to encode frames into. */
+  private final ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
+  /** Output encoding frames into the buffer. */
+  private final DataOutputStream frameOut = new DataOutputStream(this.frameBuffer);
+  /** Amount of events in the batch being collected. */
+  private int batchSize;
+  /** Sequence number of the next event to replicate. */
+  private volatile long sequence;
+  /** Sockets accepted but not yet sent the snapshot to. */
+  private final Queue<Socket> accepted = new ConcurrentLinkedQueue<>();
+  /** Replicas connected. */
+  private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+  /** Thread accepting replicas. */
+  private Thread acceptor;
+  /** Thread sending frames to the replicas. */
+  private Thread pump;
+  /** Whether the threads have to keep running. */
+  private volatile boolean running;
+
+  /**
+   * Constructor.
+   * 
+   * @param ring - ring the register publishes its events to.
+   * @param contents - contents of the register before the first event.
+   * @param port - local port to listen to, zero to pick any free port.
+   * @throws IOException - if the port cannot be bound.
+   */
+  public ReplicationPrimary(final RegisterEventRing ring, final Cash contents, final int port) throws IOException {
+    this(ring, contents, port, DEFAULT_MAX_BATCH);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param ring - ring the register publishes its events to.
+   * @param contents - contents of the register before the first event.
+   * @param port - local port to listen to, zero to pick any free port.
+   * @param maxBatch - maximum amount of events in a batch frame.
+   * @throws IOException - if the port cannot be bound.
+   */
+  public ReplicationPrimary(final RegisterEventRing ring, final Cash contents, final int port, final int maxBatch) throws IOException {
+    this(ring, contents, port, maxBatch, DEFAULT_MAX_PENDING_FRAMES);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param ring - ring the register publishes its events to.
+   * @param contents - contents of the register before the first event.
+   * @param port - local port to listen to, zero to pick any free port.
+   * @param maxBatch - maximum amount of events in a batch frame.
+   * @param maxPendingFrames - maximum amount of frames queued for a replica before it is disconnected.
+   * @throws IOException - if the port cannot be bound.
+   */
+  public ReplicationPrimary(final RegisterEventRing ring, final Cash contents, final int port, final int maxBatch, 
+      final int maxPendingFrames) throws IOException {
+    if (ring == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: ring");
+    }
+    if (contents == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: contents");
+    }
+    if (maxBatch <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for maxBatch parameter: %1$d", maxBatch));
+    }
+    if (maxPendingFrames <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for maxPendingFrames parameter: %1$d", 
+          maxPendingFrames));
+    }
+
+    this.ring = ring;
+    this.maxBatch = maxBatch;
+    this.maxPendingFrames = maxPendingFrames;
+    this.billsAmounts = new int[ReplicationProtocol.DENOMINATIONS.length];
+    for (final BillDenomination billDenomination : ReplicationProtocol.DENOMINATIONS) {
+      this.billsAmounts[billDenomination.ordinal()] = contents.getBillsAmount(billDenomination);
+    }
+    this.deltas = new int[maxBatch * ReplicationProtocol.DENOMINATIONS.length];
+    this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    this.consumer = ring.newConsumer(true);
+    this.sequence = this.consumer.getSequence();
+  }
+
+  /**
+   * Gets the local port the primary listens to.
+   * 
+   * @return local port.
+   */
+  public int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Gets sequence number of the next event to replicate.
+   * 
+   * @return sequence number of the next event.
+   */
+  public long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets amount of replicas connected.
+   * 
+   * @return amount of replicas.
+   */
+  public int getReplicasCount() {
+    return this.replicas.size();
+  }
+
+  /**
+   * Gets the sequence number of the next event every replica connected expects: all the events before it have been applied by all the replicas.
+   * 
+   * @return sequence number acknowledged by all the replicas, or -1 if there are no replicas connected.
+   */
+  public long getAckedSequence() {
+    long ackedSequence = Long.MAX_VALUE;
+    for (final Replica replica : this.replicas) {
+      ackedSequence = Math.min(ackedSequence, replica.ackedSequence);
+    }
+    return (ackedSequence == Long.MAX_VALUE) ? -1L : ackedSequence;
+  }
+
+  /**
+   * Starts the threads accepting replicas and streaming events to them.
+   */
+  public synchronized void start() {
+    if (this.running) {
+      return;
+    }
+
+    this.running = true;
+    this.acceptor = newDaemon(this::accept, "replication-acceptor");
+    this.pump = newDaemon(this::pump, "replication-pump");
+    this.acceptor.start();
+    this.pump.start();
+  }
+
+  /**
+   * Stops the threads, disconnects the replicas and releases the ring, so the register does not wait for the primary anymore.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    this.running = false;
+    this.serverSocket.close();
+    if (this.pump != null) {
+      LockSupport.unpark(this.pump);
+      joinUninterruptibly(this.acceptor);
+      joinUninterruptibly(this.pump);
+    }
+    this.ring.removeConsumer(this.consumer);
+
+    for (final Replica replica : this.replicas) {
+      replica.close();
+    }
+    this.replicas.clear();
+    Socket socket;
+    while ((socket = this.accepted.poll()) != null) {
+      socket.close();
+    }
+  }
+
+  /**
+   * Accepts replicas connecting until stopped.
+   */
+  private void accept() {
+    while (this.running) {
+      try {
+        final Socket socket = this.serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        this.accepted.add(socket);
+      } catch (IOException e) {
+        // server socket closed on stop, otherwise keep accepting
+      }
+    }
+  }
+
+  /**
+   * Streams events to the replicas until stopped.
+   */
+  private void pump() {
+    while (this.running) {
+      sendSnapshots();
+      if (this.consumer.poll(this::onEvent, this.maxBatch) == 0) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Collects the event into the batch and sends the batch to the replicas once it is complete.
+   * 
+   * @param event - event.
+   * @param endOfBatch - whether this is the last event of the batch polled.
+   */
+  private void onEvent(final RegisterEvent event, final boolean endOfBatch) {
+    final int offset = this.batchSize * ReplicationProtocol.DENOMINATIONS.length;
+    for (final BillDenomination billDenomination : ReplicationProtocol.DENOMINATIONS) {
+      final int delta = event.getDelta(billDenomination);
+      this.deltas[offset + billDenomination.ordinal()] = delta;
+      this.billsAmounts[billDenomination.ordinal()] += delta;
+    }
+    this.batchSize++;
+    if (!endOfBatch) {
+      return;
+    }
+
+    final long nextSequence = event.getSequence() + 1;
+    if (!this.replicas.isEmpty()) {
+      final byte[] frame;
+      try {
+        this.frameBuffer.reset();
+        ReplicationProtocol.writeBatch(this.frameOut, nextSequence, this.batchSize, this.deltas);
+        frame = this.frameBuffer.toByteArray();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      for (final Replica replica : this.replicas) {
+        if (!replica.frames.offer(frame)) {
+          disconnect(replica);
+        }
+      }
+    }
+    this.batchSize = 0;
+    this.sequence = nextSequence;
+  }
+
+  /**
+   * Sends the snapshot of the shadow copy to the replicas accepted and starts streaming events to them.
+   */
+  private void sendSnapshots() {
+    Socket socket;
+    while ((socket = this.accepted.poll()) != null) {
+      Replica replica = null;
+      try {
+        replica = new Replica(socket);
+        this.frameBuffer.reset();
+        ReplicationProtocol.writeSnapshot(this.frameOut, this.sequence, this.billsAmounts);
+        replica.frames.add(this.frameBuffer.toByteArray());
+        this.replicas.add(replica);
+        replica.writer.start();
+        newDaemon(replica::readAcks, "replication-acks-" + socket.getPort()).start();
+      } catch (IOException e) {
+        if (replica != null) {
+          replica.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Disconnects the replica.
+   * 
+   * @param replica - replica to disconnect.
+   */
+  private void disconnect(final Replica replica) {
+    this.replicas.remove(replica);
+    replica.close();
+  }
+
+  /**
+   * Creates daemon thread.
+   * 
+   * @param task - task to run.
+   * @param name - thread name.
+   * @return thread created.
+   */
+  private static Thread newDaemon(final Runnable task, final String name) {
+    final Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Waits for the thread to die, preserving interruption status.
+   * 
+   * @param thread - thread to wait for.
+   */
+  private static void joinUninterruptibly(final Thread thread) {
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Replica connected.
+   */
+  private final class Replica {
+    /** Socket connected to the replica. */
+    private final Socket socket;
+    /** Output to send frames to. */
+    private final DataOutputStream out;
+    /** Frames waiting to be sent. */
+    private final BlockingQueue<byte[]> frames;
+    /** Thread sending the frames. */
+    private final Thread writer;
+    /** Sequence number of the next event the replica expects. */
+    private volatile long ackedSequence;
+
+    /**
+     * Constructor.
+     * 
+     * @param socket - socket connected to the replica.
+     * @throws IOException - in case of I/O error.
+     */
+    private Replica(final Socket socket) throws IOException {
+      this.socket = socket;
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      this.frames = new ArrayBlockingQueue<>(ReplicationPrimary.this.maxPendingFrames);
+      this.writer = newDaemon(this::writeFrames, "replication-writer-" + socket.getPort());
+    }
+
+    /**
+     * Sends the frames queued until disconnected, flushing the output once the queue is drained.
+     */
+    private void writeFrames() {
+      try {
+        while (true) {
+          byte[] frame = this.frames.take();
+          do {
+            this.out.write(frame);
+          } while ((frame = this.frames.poll()) != null);
+          this.out.flush();
+        }
+      } catch (IOException | InterruptedException e) {
+        // replica disconnected
+      }
+      disconnect(this);
+    }
+
+    /**
+     * Reads acknowledgements from the replica until disconnected.
+     */
+    private void readAcks() {
+      try (final DataInputStream in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()))) {
+        while (true) {
+          final byte type = in.readByte();
+          if (type != ReplicationProtocol.ACK) {
+            throw new IOException(String.format("Unexpected frame type: %1$d", type));
+          }
+          this.ackedSequence = in.readLong();
+        }
+      } catch (IOException e) {
+        // replica disconnected
+      }
+      disconnect(this);
+    }
+
+    /**
+     * Closes connection to the replica.
+     */
+    private void close() {
+      this.writer.interrupt();
+      try {
+        this.socket.close();
+      } catch (IOException e) {
+        // nothing to do here
+      }
+    }
+  }
+}
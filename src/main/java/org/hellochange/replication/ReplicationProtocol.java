@@ -0,0 +1,115 @@
+/**
+ * 
+ */
+package org.hellochange.replication;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+
+/**
+ * Binary frames of the replication protocol. 
+ * <p>
+ * Primary sends a snapshot frame to every replica once it connects and then batch frames with the deltas of all the events 
+ * published since. Replica acknowledges every frame applied with the sequence number of the next event it expects. 
+ * Amounts of bills are written in the order of denominations starting with the smallest one.
+ * 
+ * @author vladimir
+ *
+ */
+final class ReplicationProtocol {
+  /** Snapshot frame: sequence number of the next event followed by amounts of bills of the register. */
+  static final byte SNAPSHOT = 1;
+  /** Batch frame: sequence number of the next event after the batch, amount of events and their deltas of amounts of bills. */
+  static final byte BATCH = 2;
+  /** Acknowledgement frame: sequence number of the next event the replica expects. */
+  static final byte ACK = 3;
+
+  /** Supported bill denominations. */
+  static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+
+  /**
+   * Hidden constructor.
+   */
+  private ReplicationProtocol() {
+    // nothing to do here
+  }
+
+  /**
+   * Writes snapshot frame.
+   * 
+   * @param out - output to write to.
+   * @param sequence - sequence number of the next event.
+   * @param billsAmounts - amounts of bills of the register.
+   * @throws IOException - in case of I/O error.
+   */
+  static void writeSnapshot(final DataOutputStream out, final long sequence, final int[] billsAmounts) throws IOException {
+    out.writeByte(SNAPSHOT);
+    out.writeLong(sequence);
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      out.writeInt(billsAmounts[i]);
+    }
+  }
+
+  /**
+   * Writes batch frame.
+   * 
+   * @param out - output to write to.
+   * @param sequence - sequence number of the next event after the batch.
+   * @param eventsAmount - amount of events in the batch.
+   * @param deltas - deltas of amounts of bills of the events.
+   * @throws IOException - in case of I/O error.
+   */
+  static void writeBatch(final DataOutputStream out, final long sequence, final int eventsAmount, final int[] deltas) throws IOException {
+    out.writeByte(BATCH);
+    out.writeLong(sequence);
+    out.writeInt(eventsAmount);
+    for (int i = 0; i < eventsAmount * DENOMINATIONS.length; i++) {
+      out.writeInt(deltas[i]);
+    }
+  }
+
+  /**
+   * Writes acknowledgement frame.
+   * 
+   * @param out - output to write to.
+   * @param sequence - sequence number of the next event expected.
+   * @throws IOException - in case of I/O error.
+   */
+  static void writeAck(final DataOutputStream out, final long sequence) throws IOException {
+    out.writeByte(ACK);
+    out.writeLong(sequence);
+  }
+
+  /**
+   * Reads amounts of bills of the denominations.
+   * 
+   * @param in - input to read from.
+   * @param billsAmounts - array to read into.
+   * @throws IOException - in case of I/O error.
+   */
+  static void readBillsAmounts(final DataInputStream in, final int[] billsAmounts) throws IOException {
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      billsAmounts[i] = in.readInt();
+    }
+  }
+
+  /**
+   * Creates cash object from amounts of bills of the denominations.
+   * 
+   * @param billsAmounts - amounts of bills.
+   * @return cash object.
+   */
+  static Cash toCash(final int[] billsAmounts) {
+    final Map<BillDenomination, Integer> contents = new HashMap<>();
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      contents.put(DENOMINATIONS[i], billsAmounts[i]);
+    }
+    return Cash.newInstance(contents);
+  }
+}
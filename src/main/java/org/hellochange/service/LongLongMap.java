@@ -0,0 +1,195 @@
+/**
+ * 
+ */
+package org.hellochange.service;
+
+/**
+ * Open-addressing hash map of primitive long keys to primitive long values with linear probing, 
+ * so millions of entries cost two longs each and no objects.
+ * <p>
+ * Not thread-safe: every partition of the register service owns its map and is the single writer of it. 
+ * Zero key is the marker of a free slot and is kept aside.
+ * 
+ * @author vladimir
+ *
+ */
+final class LongLongMap {
+  /** Minimum capacity of the map. */
+  private static final int MIN_CAPACITY = 16;
+
+  /** Keys, zero marks a free slot. */
+  private long[] keys;
+  /** Values of the keys at the same index. */
+  private long[] values;
+  /** Mask of the slot index, capacity is a power of two. */
+  private int mask;
+  /** Amount of entries with non-zero keys. */
+  private int size;
+  /** Whether the map contains zero key. */
+  private boolean hasZeroKey;
+  /** Value of the zero key. */
+  private long zeroKeyValue;
+
+  /**
+   * Constructor.
+   * 
+   * @param expectedSize - expected amount of entries.
+   */
+  LongLongMap(final int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException(String.format("Negative value has been passed in for expectedSize parameter: %1$d", expectedSize));
+    }
+
+    allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1));
+  }
+
+  /**
+   * Gets amount of entries.
+   * 
+   * @return amount of entries.
+   */
+  int size() {
+    return this.size + (this.hasZeroKey ? 1 : 0);
+  }
+
+  /**
+   * Checks whether the map contains the key.
+   * 
+   * @param key - key.
+   * @return true if the map contains the key.
+   */
+  boolean containsKey(final long key) {
+    if (key == 0) {
+      return this.hasZeroKey;
+    }
+    return this.keys[indexOf(key)] == key;
+  }
+
+  /**
+   * Gets value of the key.
+   * 
+   * @param key - key.
+   * @param missingValue - value to return if there is no such key.
+   * @return value of the key or the missing value.
+   */
+  long get(final long key, final long missingValue) {
+    if (key == 0) {
+      return this.hasZeroKey ? this.zeroKeyValue : missingValue;
+    }
+    final int index = indexOf(key);
+    return (this.keys[index] == key) ? this.values[index] : missingValue;
+  }
+
+  /**
+   * Puts value of the key.
+   * 
+   * @param key - key.
+   * @param value - value.
+   */
+  void put(final long key, final long value) {
+    if (key == 0) {
+      this.hasZeroKey = true;
+      this.zeroKeyValue = value;
+      return;
+    }
+
+    final int index = indexOf(key);
+    this.values[index] = value;
+    if (this.keys[index] == 0) {
+      this.keys[index] = key;
+      if (++this.size * 2 > this.keys.length) {
+        rehash(this.keys.length * 2);
+      }
+    }
+  }
+
+  /**
+   * Removes the key.
+   * 
+   * @param key - key.
+   * @return true if the key has been removed, false if there was no such key.
+   */
+  boolean remove(final long key) {
+    if (key == 0) {
+      final boolean removed = this.hasZeroKey;
+      this.hasZeroKey = false;
+      return removed;
+    }
+
+    int index = indexOf(key);
+    if (this.keys[index] != key) {
+      return false;
+    }
+    this.keys[index] = 0;
+    this.size--;
+
+    // shift back the entries of the probe sequence which follows the slot freed
+    int next = (index + 1) & this.mask;
+    while (this.keys[next] != 0) {
+      final int home = slot(this.keys[next]);
+      // the entry may fill the free slot only if its home slot is not within (index, next]
+      if (((next - home) & this.mask) >= ((next - index) & this.mask)) {
+        this.keys[index] = this.keys[next];
+        this.values[index] = this.values[next];
+        this.keys[next] = 0;
+        index = next;
+      }
+      next = (next + 1) & this.mask;
+    }
+    return true;
+  }
+
+  /**
+   * Finds the slot of the key or the free slot it would be put to.
+   * 
+   * @param key - non-zero key.
+   * @return slot index.
+   */
+  private int indexOf(final long key) {
+    int index = slot(key);
+    while ((this.keys[index] != 0) && (this.keys[index] != key)) {
+      index = (index + 1) & this.mask;
+    }
+    return index;
+  }
+
+  /**
+   * Computes the home slot of the key.
+   * 
+   * @param key - key.
+   * @return slot index.
+   */
+  private int slot(final long key) {
+    final long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & this.mask;
+  }
+
+  /**
+   * Allocates empty slots.
+   * 
+   * @param capacity - amount of slots, power of two.
+   */
+  private void allocate(final int capacity) {
+    this.keys = new long[capacity];
+    this.values = new long[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Moves the entries to the new slots.
+   * 
+   * @param capacity - new amount of slots, power of two.
+   */
+  private void rehash(final int capacity) {
+    final long[] oldKeys = this.keys;
+    final long[] oldValues = this.values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        final int index = indexOf(oldKeys[i]);
+        this.keys[index] = oldKeys[i];
+        this.values[index] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,409 @@
+/**
+ * 
+ */
+package org.hellochange.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.SimpleCashRegister;
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
+
+/**
+ * Directory of registers which keeps only the active registers in memory: registers idle for longer than the idle timeout 
+ * are evicted to the memory-mapped slotted file (see {@link SlottedCashStore}) and reloaded transparently on the next access.
+ * <p>
+ * Every operation pins the resident register for its duration, so a register is evicted only when no operation is running on it: 
+ * eviction marks the register as evicting, writes its contents to the store and only then drops it from memory; 
+ * operations which find the register evicting wait for it to be dropped and reload it from the store.
+ * <p>
+ * Idle registers are evicted either by the daemon thread of the directory once started or by calling {@link #evictIdle(long)} directly. 
+ * Closing the directory lets the operations running complete and writes all the resident registers to the store.
+ * 
+ * @author vladimir
+ *
+ */
+public class RegisterDirectory implements AutoCloseable {
+  /** Pin count of the register being evicted. */
+  private static final int EVICTING = -1;
+
+  /** Logger. */
+  private static final Logger LOGGER = Logger.getLogger(RegisterDirectory.class.getName());
+
+  /** Store of the evicted registers. */
+  private final SlottedCashStore store;
+  /** Resident registers by register id. */
+  private final ConcurrentHashMap<Long, ResidentRegister> residents = new ConcurrentHashMap<>();
+  /** Time registers are evicted after being idle, in nanoseconds. */
+  private final long idleTimeoutNanos;
+  /** Change producer strategy of the registers. */
+  private final ChangeProducerStrategy changeProducer;
+  /** Executor which evicts the idle registers, null if the sweeper has not been started. */
+  private ScheduledExecutorService sweeper;
+  /** Whether the directory has been closed. */
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   * 
+   * @param storeFile - file of the store, registers stored by the previous directory are loaded from it.
+   * @param idleTimeout - time registers are evicted after being idle.
+   * @param unit - time unit of the idle timeout.
+   * @throws IOException - in case of the store access failure.
+   */
+  public RegisterDirectory(final Path storeFile, final long idleTimeout, final TimeUnit unit) throws IOException {
+    this(storeFile, idleTimeout, unit, new TableChangeProducerStrategy());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param storeFile - file of the store, registers stored by the previous directory are loaded from it.
+   * @param idleTimeout - time registers are evicted after being idle.
+   * @param unit - time unit of the idle timeout.
+   * @param changeProducer - change producer strategy of the registers.
+   * @throws IOException - in case of the store access failure.
+   */
+  public RegisterDirectory(final Path storeFile, final long idleTimeout, final TimeUnit unit, final ChangeProducerStrategy changeProducer) 
+      throws IOException {
+    if (idleTimeout <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for idleTimeout parameter: %1$d", idleTimeout));
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: unit");
+    }
+    if (changeProducer == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeProducer");
+    }
+
+    this.store = new SlottedCashStore(storeFile);
+    this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+    this.changeProducer = changeProducer;
+  }
+
+  /**
+   * Creates the register with the cash passed in.
+   * 
+   * @param registerId - register id.
+   * @param cash - initial contents of the register.
+   * @return register.
+   * @throws IOException - in case of the store access failure.
+   */
+  public CashRegister create(final long registerId, final Cash cash) throws IOException {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    // the slot is allocated right away, so the register is known to the directory whether resident or not
+    synchronized (this.store) {
+      if (this.store.contains(registerId)) {
+        throw new IllegalArgumentException(String.format("Register already exists: %1$d", registerId));
+      }
+      this.store.write(registerId, cash);
+    }
+    return getRegister(registerId);
+  }
+
+  /**
+   * Gets the register, which is loaded on the first operation if it has been evicted.
+   * 
+   * @param registerId - register id.
+   * @return register.
+   */
+  public CashRegister getRegister(final long registerId) {
+    if (!this.store.contains(registerId)) {
+      throw new IllegalArgumentException(String.format("Unknown register: %1$d", registerId));
+    }
+    return new DirectoryCashRegister(registerId);
+  }
+
+  /**
+   * Gets amount of registers.
+   * 
+   * @return amount of registers.
+   */
+  public int getRegistersCount() {
+    return this.store.size();
+  }
+
+  /**
+   * Gets amount of registers in memory.
+   * 
+   * @return amount of resident registers.
+   */
+  public int getResidentCount() {
+    return this.residents.size();
+  }
+
+  /**
+   * Evicts the registers which have been idle for longer than the idle timeout.
+   * 
+   * @param nowNanos - current time as of {@link System#nanoTime()}.
+   * @return amount of registers evicted.
+   */
+  public int evictIdle(final long nowNanos) {
+    int evicted = 0;
+    for (final ResidentRegister resident : this.residents.values()) {
+      if ((nowNanos - resident.lastAccessNanos >= this.idleTimeoutNanos) && evict(resident)) {
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Starts the daemon thread which evicts idle registers every half of the idle timeout.
+   */
+  public synchronized void start() {
+    if (this.sweeper != null) {
+      throw new IllegalStateException("Register directory has already been started.");
+    }
+
+    this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "register-directory-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long period = Math.max(this.idleTimeoutNanos / 2, 1);
+    this.sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Evicts idle registers on behalf of the daemon thread: failure is logged, since throwing would cancel further sweeps, 
+   * and the registers which failed to be evicted are retried on the next sweep.
+   */
+  private void sweep() {
+    try {
+      evictIdle(System.nanoTime());
+    } catch (UncheckedIOException ioEx) {
+      LOGGER.log(Level.WARNING, "Failed to evict idle registers.", ioEx);
+    }
+  }
+
+  /**
+   * Stops the daemon thread, waits for the operations running to complete, writes all the resident registers to the store and closes it. 
+   * Operations started after the directory has been closed fail with {@link IllegalStateException}.
+   * 
+   * @throws IOException - in case of the store access failure.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    this.closed = true;
+    if (this.sweeper != null) {
+      this.sweeper.shutdownNow();
+      try {
+        this.sweeper.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      this.sweeper = null;
+    }
+
+    try {
+      // registers pinned are evicted once the operations running on them complete
+      while (!this.residents.isEmpty()) {
+        for (final ResidentRegister resident : this.residents.values()) {
+          if (!evict(resident)) {
+            Thread.yield();
+          }
+        }
+      }
+    } catch (UncheckedIOException ioEx) {
+      throw ioEx.getCause();
+    } finally {
+      this.store.close();
+    }
+  }
+
+  /**
+   * Evicts the register unless some operation is running on it.
+   * 
+   * @param resident - resident register.
+   * @return true if the register has been evicted.
+   */
+  private boolean evict(final ResidentRegister resident) {
+    if (!resident.pins.compareAndSet(0, EVICTING)) {
+      return false;
+    }
+
+    try {
+      this.store.write(resident.registerId, resident.register.getContents());
+    } catch (IOException ioEx) {
+      // keep the register in memory
+      resident.pins.set(0);
+      throw new UncheckedIOException("Failed to evict the register: " + resident.registerId, ioEx);
+    }
+    this.residents.remove(resident.registerId, resident);
+    return true;
+  }
+
+  /**
+   * Pins the resident register, loading it from the store if needed.
+   * 
+   * @param registerId - register id.
+   * @return resident register pinned.
+   */
+  private ResidentRegister pin(final long registerId) {
+    while (true) {
+      checkOpen();
+      final ResidentRegister resident = this.residents.computeIfAbsent(registerId, this::load);
+      final int pins = resident.pins.get();
+      if (pins == EVICTING) {
+        // the register is being written to the store, it is reloaded once dropped from memory
+        Thread.yield();
+        continue;
+      }
+      if (resident.pins.compareAndSet(pins, pins + 1)) {
+        if (this.closed) {
+          // closing directory may be waiting for the register to be unpinned
+          resident.unpin();
+          checkOpen();
+        }
+        return resident;
+      }
+    }
+  }
+
+  /**
+   * Checks that the directory has not been closed.
+   */
+  private void checkOpen() {
+    if (this.closed) {
+      throw new IllegalStateException("Register directory has been closed.");
+    }
+  }
+
+  /**
+   * Loads the register from the store.
+   * 
+   * @param registerId - register id.
+   * @return resident register.
+   */
+  private ResidentRegister load(final Long registerId) {
+    final Cash cash = this.store.read(registerId);
+    if (cash == null) {
+      throw new IllegalStateException(String.format("Register is not stored: %1$d", registerId));
+    }
+    return new ResidentRegister(registerId, new SimpleCashRegister(cash, this.changeProducer));
+  }
+
+  /**
+   * Register in memory.
+   * 
+   * @author vladimir
+   *
+   */
+  private static final class ResidentRegister {
+    /** Register id. */
+    private final long registerId;
+    /** Register. */
+    private final CashRegister register;
+    /** Amount of operations running on the register or {@link #EVICTING}. */
+    private final AtomicInteger pins = new AtomicInteger();
+    /** Time of the last access as of {@link System#nanoTime()}. */
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    /**
+     * Constructor.
+     * 
+     * @param registerId - register id.
+     * @param register - register.
+     */
+    ResidentRegister(final long registerId, final CashRegister register) {
+      this.registerId = registerId;
+      this.register = register;
+    }
+
+    /**
+     * Unpins the register after the operation.
+     */
+    void unpin() {
+      this.lastAccessNanos = System.nanoTime();
+      this.pins.decrementAndGet();
+    }
+  }
+
+  /**
+   * Register of the directory which pins the resident register for every operation.
+   * 
+   * @author vladimir
+   *
+   */
+  private final class DirectoryCashRegister implements CashRegister {
+    /** Register id. */
+    private final long registerId;
+
+    /**
+     * Constructor.
+     * 
+     * @param registerId - register id.
+     */
+    DirectoryCashRegister(final long registerId) {
+      this.registerId = registerId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash getContents() {
+      final ResidentRegister resident = pin(this.registerId);
+      try {
+        return resident.register.getContents();
+      } finally {
+        resident.unpin();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash add(final Cash cash) {
+      final ResidentRegister resident = pin(this.registerId);
+      try {
+        return resident.register.add(cash);
+      } finally {
+        resident.unpin();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash remove(final Cash cash) throws NoSufficientFundsException {
+      final ResidentRegister resident = pin(this.registerId);
+      try {
+        return resident.register.remove(cash);
+      } finally {
+        resident.unpin();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash change(final Integer amount) {
+      final ResidentRegister resident = pin(this.registerId);
+      try {
+        return resident.register.change(amount);
+      } finally {
+        resident.unpin();
+      }
+    }
+  }
+}
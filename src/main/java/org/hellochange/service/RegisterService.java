@@ -0,0 +1,509 @@
+/**
+ * 
+ */
+package org.hellochange.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.PackedCash;
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.Solution;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
+
+/**
+ * Service which hosts a large amount of lightweight registers of many tenants keyed by register id.
+ * <p>
+ * Registers are split into partitions by their ids. Every partition keeps the packed states of its registers 
+ * (see {@link PackedCash}) in a primitive open-addressing map and has a mailbox of the operations requested; 
+ * the mailbox is drained by a task of the work-stealing pool, which is the only writer of the partition, 
+ * so the operations do not need any compare-and-set. Registers which do not fit into the packed state 
+ * are kept as {@link Cash} objects aside.
+ * <p>
+ * Every tenant may have a limited amount of operations in flight: operations over the quota are rejected right away, 
+ * so a tenant with heavy traffic cannot fill the mailboxes and starve the others. A partition gives the thread back 
+ * to the pool after a limited batch of operations, so busy partitions do not starve the others either.
+ * 
+ * @author vladimir
+ *
+ */
+public class RegisterService implements AutoCloseable {
+  /** Amount of operations a partition processes before giving the thread back to the pool. */
+  private static final int DRAIN_BATCH = 64;
+  /** Amount of registers a partition is sized for initially. */
+  private static final int INITIAL_PARTITION_SIZE = 1024;
+
+  /** Partitions of the registers. */
+  private final Partition[] partitions;
+  /** Mask of the partition index, amount of partitions is a power of two. */
+  private final int partitionMask;
+  /** Maximum amount of operations of a tenant in flight. */
+  private final int tenantInFlightLimit;
+  /** Amounts of operations in flight by tenant. */
+  private final ConcurrentHashMap<String, AtomicInteger> tenantsInFlight = new ConcurrentHashMap<>();
+  /** Change producer strategy. */
+  private final ChangeProducerStrategy changeProducer;
+  /** Work-stealing pool the partitions are processed by. */
+  private final ForkJoinPool pool;
+  /** Whether the service has been closed. */
+  private volatile boolean closed;
+
+  /**
+   * Constructor which creates service with a partition per processor.
+   * 
+   * @param tenantInFlightLimit - maximum amount of operations of a tenant in flight.
+   */
+  public RegisterService(final int tenantInFlightLimit) {
+    this(Runtime.getRuntime().availableProcessors() * 4, Runtime.getRuntime().availableProcessors(), 
+        tenantInFlightLimit, new TableChangeProducerStrategy());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param partitions - amount of partitions, rounded up to a power of two.
+   * @param parallelism - amount of threads of the pool.
+   * @param tenantInFlightLimit - maximum amount of operations of a tenant in flight.
+   * @param changeProducer - change producer strategy.
+   */
+  public RegisterService(final int partitions, final int parallelism, final int tenantInFlightLimit, final ChangeProducerStrategy changeProducer) {
+    if (partitions <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for partitions parameter: %1$d", partitions));
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for parallelism parameter: %1$d", parallelism));
+    }
+    if (tenantInFlightLimit <= 0) {
+      throw new IllegalArgumentException(String.format("Zero or negative value has been passed in for tenantInFlightLimit parameter: %1$d", tenantInFlightLimit));
+    }
+    if (changeProducer == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: changeProducer");
+    }
+
+    final int partitionsCount = Integer.highestOneBit(partitions * 2 - 1);
+    this.partitions = new Partition[partitionsCount];
+    for (int i = 0; i < partitionsCount; i++) {
+      this.partitions[i] = new Partition();
+    }
+    this.partitionMask = partitionsCount - 1;
+    this.tenantInFlightLimit = tenantInFlightLimit;
+    this.changeProducer = changeProducer;
+    this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+  }
+
+  /**
+   * Creates the register with the cash passed in or replaces the contents of the existing one.
+   * 
+   * @param tenant - tenant the operation is accounted to.
+   * @param registerId - register id.
+   * @param cash - initial contents of the register.
+   * @return future of the contents of the register.
+   */
+  public CompletableFuture<Cash> create(final String tenant, final long registerId, final Cash cash) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    return submit(tenant, registerId, partition -> {
+      partition.setContents(registerId, cash);
+      return cash;
+    });
+  }
+
+  /**
+   * Gets the contents of the register.
+   * 
+   * @param tenant - tenant the operation is accounted to.
+   * @param registerId - register id.
+   * @return future of the contents of the register.
+   */
+  public CompletableFuture<Cash> getContents(final String tenant, final long registerId) {
+    return submit(tenant, registerId, partition -> partition.getContents(registerId));
+  }
+
+  /**
+   * Adds the cash to the register.
+   * 
+   * @param tenant - tenant the operation is accounted to.
+   * @param registerId - register id.
+   * @param cash - cash to add to the register.
+   * @return future of the resulting contents of the register.
+   */
+  public CompletableFuture<Cash> add(final String tenant, final long registerId, final Cash cash) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    return submit(tenant, registerId, partition -> {
+      final long packed = partition.getPacked(registerId);
+      final long packedCash = PackedCash.pack(cash);
+      final long sum = ((packed == PackedCash.OVERFLOW) || (packedCash == PackedCash.OVERFLOW)) 
+          ? PackedCash.OVERFLOW : PackedCash.add(packed, packedCash);
+      if (sum != PackedCash.OVERFLOW) {
+        partition.states.put(registerId, sum);
+        return PackedCash.unpack(sum);
+      }
+      final Cash next = partition.getContents(registerId).add(cash);
+      partition.setContents(registerId, next);
+      return next;
+    });
+  }
+
+  /**
+   * Removes the cash from the register. Future completes exceptionally with {@link NoSufficientFundsException} 
+   * in case if there is no sufficient amount of bills in the register.
+   * 
+   * @param tenant - tenant the operation is accounted to.
+   * @param registerId - register id.
+   * @param cash - cash to remove from the register.
+   * @return future of the resulting contents of the register.
+   */
+  public CompletableFuture<Cash> remove(final String tenant, final long registerId, final Cash cash) {
+    if (cash == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: cash");
+    }
+
+    return submit(tenant, registerId, partition -> {
+      final Cash next = partition.getContents(registerId).subtract(cash);
+      partition.setContents(registerId, next);
+      return next;
+    });
+  }
+
+  /**
+   * Computes and removes the change from the register.
+   * 
+   * @param tenant - tenant the operation is accounted to.
+   * @param registerId - register id.
+   * @param amount - change amount.
+   * @return future of the change removed, which completes with null if the change is not available.
+   */
+  public CompletableFuture<Cash> change(final String tenant, final long registerId, final int amount) {
+    return submit(tenant, registerId, partition -> {
+      final Solution solution = this.changeProducer.computeChange(partition.getContents(registerId), amount);
+      if (solution == null) {
+        return null;
+      }
+      partition.setContents(registerId, solution.getRemainingCash());
+      return solution.getChange();
+    });
+  }
+
+  /**
+   * Gets the view of the register as {@link CashRegister} which waits for every operation to complete.
+   * 
+   * @param tenant - tenant the operations are accounted to.
+   * @param registerId - register id.
+   * @return register.
+   */
+  public CashRegister getRegister(final String tenant, final long registerId) {
+    return new ServiceCashRegister(tenant, registerId);
+  }
+
+  /**
+   * Gets amount of registers hosted.
+   * 
+   * @return amount of registers.
+   */
+  public CompletableFuture<Integer> getRegistersCount() {
+    CompletableFuture<Integer> total = CompletableFuture.completedFuture(0);
+    for (final Partition partition : this.partitions) {
+      final CompletableFuture<Integer> partitionCount = new CompletableFuture<>();
+      partition.enqueue(new Task(() -> partitionCount.complete(partition.states.size()), partitionCount));
+      total = total.thenCombine(partitionCount, Integer::sum);
+    }
+    return total;
+  }
+
+  /**
+   * Stops the pool. Operations which have not been run are completed exceptionally with {@link RejectedExecutionException}, 
+   * as well as the operations requested after the service has been closed.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    this.pool.shutdownNow();
+    try {
+      this.pool.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException iEx) {
+      Thread.currentThread().interrupt();
+    }
+    for (final Partition partition : this.partitions) {
+      partition.abortPending();
+    }
+  }
+
+  /**
+   * Submits the operation to the partition of the register, unless the tenant has exceeded its quota.
+   * 
+   * @param tenant - tenant the operation is accounted to.
+   * @param registerId - register id.
+   * @param operation - operation.
+   * @return future of the result of the operation.
+   */
+  private CompletableFuture<Cash> submit(final String tenant, final long registerId, final PartitionOperation operation) {
+    if (tenant == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: tenant");
+    }
+
+    final CompletableFuture<Cash> result = new CompletableFuture<>();
+    final AtomicInteger inFlight = this.tenantsInFlight.computeIfAbsent(tenant, key -> new AtomicInteger());
+    if (inFlight.incrementAndGet() > this.tenantInFlightLimit) {
+      inFlight.decrementAndGet();
+      result.completeExceptionally(new RejectedExecutionException(String.format(
+          "Tenant [%1$s] has exceeded its quota of %2$d operations in flight.", tenant, this.tenantInFlightLimit)));
+      return result;
+    }
+
+    final Partition partition = this.partitions[partitionOf(registerId)];
+    partition.enqueue(new Task(() -> {
+      try {
+        result.complete(operation.apply(partition));
+      } catch (NoSufficientFundsException | RuntimeException ex) {
+        result.completeExceptionally(ex);
+      } finally {
+        // the operation is in flight until it has completed, so a slow one keeps holding its quota
+        inFlight.decrementAndGet();
+      }
+    }, result));
+    return result;
+  }
+
+  /**
+   * Computes the partition of the register.
+   * 
+   * @param registerId - register id.
+   * @return partition index.
+   */
+  private int partitionOf(final long registerId) {
+    final long hash = registerId * 0xC2B2AE3D27D4EB4FL;
+    return (int) (hash >>> 32) & this.partitionMask;
+  }
+
+  /**
+   * Operation on a register of the partition, run by the single writer of the partition.
+   * 
+   * @author vladimir
+   *
+   */
+  @FunctionalInterface
+  private interface PartitionOperation {
+    /**
+     * Applies the operation.
+     * 
+     * @param partition - partition of the register.
+     * @return result of the operation.
+     * @throws NoSufficientFundsException - in case if there is no sufficient amount of bills in the register.
+     */
+    Cash apply(Partition partition) throws NoSufficientFundsException;
+  }
+
+  /**
+   * Operation in the mailbox of a partition together with the future it completes.
+   * 
+   * @author vladimir
+   *
+   */
+  private static final class Task {
+    /** Runs the operation and completes the future. */
+    private final Runnable body;
+    /** Future of the result of the operation. */
+    private final CompletableFuture<?> result;
+
+    /**
+     * Constructor.
+     * 
+     * @param body - runs the operation and completes the future.
+     * @param result - future of the result of the operation.
+     */
+    Task(final Runnable body, final CompletableFuture<?> result) {
+      this.body = body;
+      this.result = result;
+    }
+  }
+
+  /**
+   * Partition of the registers with its mailbox.
+   * 
+   * @author vladimir
+   *
+   */
+  private final class Partition implements Runnable {
+    /** Packed states by register id, {@link PackedCash#OVERFLOW} for the registers kept aside. */
+    private final LongLongMap states = new LongLongMap(INITIAL_PARTITION_SIZE);
+    /** Contents of the registers which do not fit into the packed state. */
+    private final Map<Long, Cash> overflowed = new HashMap<>();
+    /** Operations requested. */
+    private final Queue<Task> mailbox = new ConcurrentLinkedQueue<>();
+    /** Whether the mailbox drain has been scheduled. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Puts the operation to the mailbox and schedules the drain if needed.
+     * 
+     * @param task - operation.
+     */
+    void enqueue(final Task task) {
+      this.mailbox.add(task);
+      if (RegisterService.this.closed) {
+        // close may have aborted the pending operations before this one has been added
+        abortPending();
+        return;
+      }
+      if (this.scheduled.compareAndSet(false, true)) {
+        try {
+          RegisterService.this.pool.execute(this);
+        } catch (RejectedExecutionException reEx) {
+          abortPending();
+        }
+      }
+    }
+
+    /**
+     * Completes exceptionally the operations which have not been run.
+     */
+    void abortPending() {
+      Task task;
+      while ((task = this.mailbox.poll()) != null) {
+        task.result.completeExceptionally(new RejectedExecutionException("Register service has been closed."));
+      }
+    }
+
+    /**
+     * Drains a batch of operations from the mailbox.
+     */
+    @Override
+    public void run() {
+      for (int i = 0; i < DRAIN_BATCH; i++) {
+        final Task task = this.mailbox.poll();
+        if (task == null) {
+          break;
+        }
+        task.body.run();
+      }
+
+      this.scheduled.set(false);
+      // operations added after the last poll would not be scheduled by their producers
+      if (!this.mailbox.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+        RegisterService.this.pool.execute(this);
+      }
+    }
+
+    /**
+     * Gets packed state of the register.
+     * 
+     * @param registerId - register id.
+     * @return packed state.
+     */
+    long getPacked(final long registerId) {
+      final long packed = this.states.get(registerId, PackedCash.OVERFLOW);
+      if ((packed == PackedCash.OVERFLOW) && !this.states.containsKey(registerId)) {
+        throw new IllegalArgumentException(String.format("Unknown register: %1$d", registerId));
+      }
+      return packed;
+    }
+
+    /**
+     * Gets contents of the register.
+     * 
+     * @param registerId - register id.
+     * @return contents of the register.
+     */
+    Cash getContents(final long registerId) {
+      final long packed = getPacked(registerId);
+      return (packed == PackedCash.OVERFLOW) ? this.overflowed.get(registerId) : PackedCash.unpack(packed);
+    }
+
+    /**
+     * Sets contents of the register.
+     * 
+     * @param registerId - register id.
+     * @param cash - contents of the register.
+     */
+    void setContents(final long registerId, final Cash cash) {
+      final long packed = PackedCash.pack(cash);
+      this.states.put(registerId, packed);
+      if (packed == PackedCash.OVERFLOW) {
+        this.overflowed.put(registerId, cash);
+      } else if (!this.overflowed.isEmpty()) {
+        this.overflowed.remove(registerId);
+      }
+    }
+  }
+
+  /**
+   * View of a register of the service which waits for every operation to complete.
+   * 
+   * @author vladimir
+   *
+   */
+  private final class ServiceCashRegister implements CashRegister {
+    /** Tenant the operations are accounted to. */
+    private final String tenant;
+    /** Register id. */
+    private final long registerId;
+
+    /**
+     * Constructor.
+     * 
+     * @param tenant - tenant the operations are accounted to.
+     * @param registerId - register id.
+     */
+    ServiceCashRegister(final String tenant, final long registerId) {
+      this.tenant = tenant;
+      this.registerId = registerId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash getContents() {
+      return RegisterService.this.getContents(this.tenant, this.registerId).join();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash add(final Cash cash) {
+      return RegisterService.this.add(this.tenant, this.registerId, cash).join();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash remove(final Cash cash) throws NoSufficientFundsException {
+      try {
+        return RegisterService.this.remove(this.tenant, this.registerId, cash).join();
+      } catch (CompletionException cEx) {
+        if (cEx.getCause() instanceof NoSufficientFundsException) {
+          throw (NoSufficientFundsException) cEx.getCause();
+        }
+        throw cEx;
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cash change(final Integer amount) {
+      return RegisterService.this.change(this.tenant, this.registerId, amount).join();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package org.hellochange.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+
+/**
+ * Memory-mapped file of fixed size slots which keeps the contents of the registers by register id.
+ * <p>
+ * Every register owns a slot of {@value #SLOT_SIZE} bytes from its creation: register id, amount of bills 
+ * of every denomination and the flag of the slot being used. The file grows by doubling and the index of the slots 
+ * is rebuilt by scanning the file when it is opened again.
+ * <p>
+ * Thread-safe: all the methods are synchronized, the store is accessed on eviction and reload only.
+ * 
+ * @author vladimir
+ *
+ */
+final class SlottedCashStore implements AutoCloseable {
+  /** Size of the slot in bytes. */
+  static final int SLOT_SIZE = 32;
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** Offset of the flag of the slot being used. */
+  private static final int USED_OFFSET = Long.BYTES + DENOMINATIONS.length * Integer.BYTES;
+  /** Amount of slots of the new file. */
+  private static final int INITIAL_SLOTS = 1024;
+  /** Slot index of the registers which are not stored. */
+  private static final long NO_SLOT = -1L;
+
+  /** File channel of the store. */
+  private final FileChannel channel;
+  /** Slot index by register id. */
+  private final LongLongMap slots;
+  /** Mapped file. */
+  private MappedByteBuffer buffer;
+  /** Amount of slots used. */
+  private int slotsUsed;
+
+  /**
+   * Opens the store, creating the file if needed.
+   * 
+   * @param file - file of the store.
+   * @throws IOException - in case of the file access failure.
+   */
+  SlottedCashStore(final Path file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("Null has been passed in as required parameter: file");
+    }
+    if (SLOT_SIZE < USED_OFFSET + Integer.BYTES) {
+      throw new IllegalStateException("Slot is too small for the denominations supported.");
+    }
+
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    final long slotsCount = Math.max(this.channel.size() / SLOT_SIZE, INITIAL_SLOTS);
+    this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, slotsCount * SLOT_SIZE);
+    this.slots = new LongLongMap((int) slotsCount);
+
+    // used slots are packed at the beginning of the file
+    while ((this.slotsUsed < slotsCount) && (this.buffer.getInt(this.slotsUsed * SLOT_SIZE + USED_OFFSET) != 0)) {
+      this.slots.put(this.buffer.getLong(this.slotsUsed * SLOT_SIZE), this.slotsUsed);
+      this.slotsUsed++;
+    }
+  }
+
+  /**
+   * Gets amount of registers stored.
+   * 
+   * @return amount of registers.
+   */
+  synchronized int size() {
+    return this.slotsUsed;
+  }
+
+  /**
+   * Checks whether the register is stored.
+   * 
+   * @param registerId - register id.
+   * @return true if the register is stored.
+   */
+  synchronized boolean contains(final long registerId) {
+    return this.slots.containsKey(registerId);
+  }
+
+  /**
+   * Reads the contents of the register.
+   * 
+   * @param registerId - register id.
+   * @return contents of the register or null if the register is not stored.
+   */
+  synchronized Cash read(final long registerId) {
+    final long slot = this.slots.get(registerId, NO_SLOT);
+    if (slot == NO_SLOT) {
+      return null;
+    }
+
+    final int offset = (int) slot * SLOT_SIZE + Long.BYTES;
+    final Map<BillDenomination, Integer> contents = new EnumMap<>(BillDenomination.class);
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      contents.put(DENOMINATIONS[d], this.buffer.getInt(offset + d * Integer.BYTES));
+    }
+    return Cash.newInstance(contents);
+  }
+
+  /**
+   * Writes the contents of the register, allocating the slot for it if needed.
+   * 
+   * @param registerId - register id.
+   * @param cash - contents of the register.
+   * @throws IOException - in case of the file access failure.
+   */
+  synchronized void write(final long registerId, final Cash cash) throws IOException {
+    long slot = this.slots.get(registerId, NO_SLOT);
+    if (slot == NO_SLOT) {
+      if ((this.slotsUsed + 1) * (long) SLOT_SIZE > this.buffer.capacity()) {
+        grow();
+      }
+      slot = this.slotsUsed++;
+      this.slots.put(registerId, slot);
+      this.buffer.putLong((int) slot * SLOT_SIZE, registerId);
+    }
+
+    final int offset = (int) slot * SLOT_SIZE;
+    for (int d = 0; d < DENOMINATIONS.length; d++) {
+      this.buffer.putInt(offset + Long.BYTES + d * Integer.BYTES, cash.getBillsAmount(DENOMINATIONS[d]));
+    }
+    this.buffer.putInt(offset + USED_OFFSET, 1);
+  }
+
+  /**
+   * Flushes the store to the file and closes it.
+   * 
+   * @throws IOException - in case of the file access failure.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    this.buffer.force();
+    this.channel.close();
+  }
+
+  /**
+   * Doubles the size of the file mapped.
+   * 
+   * @throws IOException - in case of the file access failure.
+   */
+  private void grow() throws IOException {
+    final long size = this.buffer.capacity() * 2L;
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Store has reached its maximum size.");
+    }
+    this.buffer.force();
+    this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+}
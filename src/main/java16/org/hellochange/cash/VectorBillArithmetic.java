@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package org.hellochange.cash;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the bill arithmetic on the vector API: full vectors of the preferred shape are processed at once 
+ * and the tail shorter than a vector - by plain loops. Compiled by the <code>vector</code> build profile only.
+ * 
+ * @author vladimir
+ *
+ */
+final class VectorBillArithmetic implements BillArithmetic {
+  /** Preferred vector shape of the platform. */
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void add(final int[] left, final int[] right, final int[] result) {
+    int i = 0;
+    for (final int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length()) {
+      IntVector.fromArray(SPECIES, left, i).add(IntVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+    }
+    for (; i < result.length; i++) {
+      result[i] = left[i] + right[i];
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean subtract(final int[] left, final int[] right, final int[] result) {
+    int i = 0;
+    for (final int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length()) {
+      final IntVector difference = IntVector.fromArray(SPECIES, left, i).sub(IntVector.fromArray(SPECIES, right, i));
+      if (difference.compare(VectorOperators.LT, 0).anyTrue()) {
+        return false;
+      }
+      difference.intoArray(result, i);
+    }
+    int negative = 0;
+    for (; i < result.length; i++) {
+      result[i] = left[i] - right[i];
+      negative |= result[i];
+    }
+    return negative >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Products are computed in int lanes, so every product must fit in int as it does for any valid cash object.
+   */
+  @Override
+  public long dot(final int[] billsAmounts, final int[] denominations) {
+    long sum = 0;
+    int i = 0;
+    for (final int bound = SPECIES.loopBound(billsAmounts.length); i < bound; i += SPECIES.length()) {
+      sum += IntVector.fromArray(SPECIES, billsAmounts, i).mul(IntVector.fromArray(SPECIES, denominations, i))
+          .reduceLanesToLong(VectorOperators.ADD);
+    }
+    for (; i < billsAmounts.length; i++) {
+      sum += (long) billsAmounts[i] * denominations[i];
+    }
+    return sum;
+  }
+}
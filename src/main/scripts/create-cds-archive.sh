@@ -0,0 +1,17 @@
+#!/bin/sh
+#
+# Creates AppCDS archive of the classes hello-change loads, so short-lived processes map them
+# instead of loading and verifying them on every start. Requires JDK 13 or later.
+#
+# Usage: create-cds-archive.sh <shaded jar> [archive file]
+#
+set -e
+
+JAR=${1:?Usage: create-cds-archive.sh <shaded jar> [archive file]}
+ARCHIVE=${2:-${JAR%.jar}.jsa}
+
+# training run touching every command, so all of their classes get archived
+printf 'put 1 1 1 1 1\nshow\nchange 7\ntake 0 0 0 0 1\nchange 1000\nfoo\nquit\n' \
+  | java -XX:ArchiveClassesAtExit="$ARCHIVE" -jar "$JAR" > /dev/null
+
+echo "$ARCHIVE"
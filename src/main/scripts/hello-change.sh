@@ -0,0 +1,19 @@
+#!/bin/sh
+#
+# Startup-optimized launcher for short-lived hello-change processes, e.g. echo "change 37" | hello-change.sh.
+# Uses AppCDS archive next to the jar if there is one (see create-cds-archive.sh), and JIT and GC settings
+# that favour startup over peak throughput.
+#
+# mvn package copies the scripts next to the shaded jar, so target/hello-change.sh runs target/hello-change.jar
+# out of the box; set HELLO_CHANGE_JAR to run another jar.
+#
+# Usage: hello-change.sh [program arguments]
+#
+JAR=${HELLO_CHANGE_JAR:-$(dirname "$0")/hello-change.jar}
+ARCHIVE=${HELLO_CHANGE_ARCHIVE:-${JAR%.jar}.jsa}
+
+if [ -f "$ARCHIVE" ]; then
+  CDS_OPTS="-XX:SharedArchiveFile=$ARCHIVE -Xshare:auto"
+fi
+
+exec java $CDS_OPTS -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xss512k -jar "$JAR" "$@"
@@ -0,0 +1,59 @@
+#!/bin/bash
+#
+# Measures startup of hello-change: time to the first "ready" prompt with the input still open,
+# and wall time of a complete scripted run (echo "change 37" | java -jar), as the median of several runs,
+# with the default JVM options and with the AppCDS archive if there is one.
+#
+# Usage: startup-benchmark.sh <shaded jar> [runs]
+#
+set -e
+
+JAR=${1:?Usage: startup-benchmark.sh <shaded jar> [runs]}
+RUNS=${2:-20}
+ARCHIVE=${JAR%.jar}.jsa
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+median() {
+  sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+# time to the "ready" prompt: the prompt is flushed once the CLI waits for the input, which is kept open
+time_to_ready() {
+  local start line
+  start=$(now_ms)
+  while read -r line; do
+    if [ "$line" = "ready" ]; then
+      echo $(( $(now_ms) - start ))
+      break
+    fi
+  done < <( { sleep 2; echo quit; } | java "$@" -jar "$JAR" )
+  wait
+}
+
+# wall time of a complete run of a single command
+time_to_exit() {
+  local start
+  start=$(now_ms)
+  echo "change 37" | java "$@" -jar "$JAR" > /dev/null
+  echo $(( $(now_ms) - start ))
+}
+
+benchmark() {
+  local label=$1
+  shift
+  local ready exit
+  ready=$(for i in $(seq "$RUNS"); do time_to_ready "$@"; done | median)
+  exit=$(for i in $(seq "$RUNS"); do time_to_exit "$@"; done | median)
+  printf '%-12s ready %5d ms   complete run %5d ms\n' "$label" "$ready" "$exit"
+}
+
+ls -l "$JAR" | awk '{ print "jar size: " $5 " bytes" }'
+benchmark default
+benchmark fast -XX:TieredStopAtLevel=1 -XX:+UseSerialGC
+if [ -f "$ARCHIVE" ]; then
+  benchmark appcds -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto
+  benchmark appcds+fast -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -XX:TieredStopAtLevel=1 -XX:+UseSerialGC
+fi
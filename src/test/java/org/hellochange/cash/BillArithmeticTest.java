@@ -0,0 +1,66 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests bill arithmetic implementations.
+ * 
+ * @author vladimir
+ *
+ */
+public class BillArithmeticTest {
+
+  /**
+   * Tests scalar implementation.
+   */
+  @Test
+  public void testScalar() {
+    testArithmetic(new ScalarBillArithmetic());
+  }
+
+  /**
+   * Tests implementation picked for this JVM.
+   */
+  @Test
+  public void testLoaded() {
+    testArithmetic(BillArithmetic.load());
+  }
+
+  /**
+   * Tests arithmetic on arrays of widths around the vector lengths.
+   * 
+   * @param arithmetic - arithmetic to test.
+   */
+  private static void testArithmetic(final BillArithmetic arithmetic) {
+    for (int length = 1; length <= 33; length++) {
+      final int[] left = new int[length];
+      final int[] right = new int[length];
+      final int[] denominations = new int[length];
+      long expectedDot = 0;
+      for (int i = 0; i < length; i++) {
+        left[i] = 100 + i;
+        right[i] = i;
+        denominations[i] = i + 1;
+        expectedDot += (long) left[i] * denominations[i];
+      }
+
+      final int[] result = new int[length];
+      arithmetic.add(left, right, result);
+      for (int i = 0; i < length; i++) {
+        assertEquals(100 + 2 * i, result[i]);
+      }
+
+      assertTrue(arithmetic.subtract(left, right, result));
+      for (int i = 0; i < length; i++) {
+        assertEquals(100, result[i]);
+      }
+      assertEquals(expectedDot, arithmetic.dot(left, denominations));
+
+      // underflow of the last element only
+      right[length - 1] = left[length - 1] + 1;
+      assertFalse(arithmetic.subtract(left, right, result));
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests cash accumulator.
+ * 
+ * @author vladimir
+ *
+ */
+public class CashAccumulatorTest {
+
+  /**
+   * Tests sequential and parallel sums are the same as chained additions.
+   */
+  @Test
+  public void testSumming() {
+    final Random random = new Random(11);
+    final List<Cash> transactions = new ArrayList<>();
+    Cash expected = Cash.EMPTY;
+    for (int i = 0; i < 10000; i++) {
+      final Cash cash = Cash.newInstance(ImmutableMap.of(
+          BillDenomination.values()[random.nextInt(4)], random.nextInt(4), BillDenomination.TWENTY, random.nextInt(2)));
+      transactions.add(cash);
+      expected = expected.add(cash);
+    }
+
+    assertEquals(expected, transactions.stream().collect(CashAccumulator.summing()));
+    assertEquals(expected, transactions.parallelStream().collect(CashAccumulator.summing()));
+
+    final CashAccumulator accumulator = new CashAccumulator()
+        .add(Cash.newInstance(BillDenomination.FIVE, 2))
+        .addBills(BillDenomination.ONE, 3)
+        .merge(new CashAccumulator().addBills(BillDenomination.FIVE, 1));
+    assertEquals(3, accumulator.getBillsAmount(BillDenomination.FIVE));
+    assertEquals(18, accumulator.getMoneyAmount());
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 3, BillDenomination.ONE, 3)), accumulator.toCash());
+  }
+
+  /**
+   * Tests accumulated amounts which do not fit in cash object.
+   */
+  @Test(expected = ArithmeticException.class)
+  public void testOverflow() {
+    final CashAccumulator accumulator = new CashAccumulator().addBills(BillDenomination.ONE, Integer.MAX_VALUE).addBills(BillDenomination.ONE, 1);
+    assertEquals(Integer.MAX_VALUE + 1L, accumulator.getMoneyAmount());
+    accumulator.toCash();
+  }
+}
@@ -267,4 +267,45 @@ public class CashTest {
     
     cash.subtractBills(BillDenomination.ONE, 5);
   }
-}
\ No newline at end of file
+  
+  /**
+   * Tests that small cash objects are interned whatever way they are produced.
+   * 
+   * @throws NoSufficientFundsException
+   */
+  @Test
+  public void testInterning() throws NoSufficientFundsException {
+    final Cash cash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.ONE, 2, 
+        BillDenomination.TWENTY, 1));
+    
+    assertTrue(cash == Cash.newInstance(BillDenomination.ONE, 2).addBills(BillDenomination.TWENTY, 1));
+    assertTrue(cash == Cash.newInstance(BillDenomination.TWENTY, 1).add(Cash.newInstance(BillDenomination.ONE, 2)));
+    assertTrue(cash == cash.addBills(BillDenomination.FIVE, 7).subtractBills(BillDenomination.FIVE, 7));
+    assertTrue(Cash.EMPTY == cash.subtract(cash));
+    assertTrue(Cash.EMPTY == Cash.EMPTY.addBills(BillDenomination.TEN, 0));
+    
+    // large cash objects are not interned but still equal by contents
+    final Cash largeCash1 = Cash.newInstance(BillDenomination.ONE, 100);
+    final Cash largeCash2 = Cash.newInstance(BillDenomination.ONE, 99).addBills(BillDenomination.ONE, 1);
+    assertFalse(largeCash1 == largeCash2);
+    assertEquals(largeCash1, largeCash2);
+    assertEquals(largeCash1.hashCode(), largeCash2.hashCode());
+    assertNotEquals(cash, largeCash1);
+  }
+  
+  /**
+   * Tests string representation is rendered once.
+   */
+  @Test
+  public void testToString() {
+    final Cash cash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.ONE, 12, 
+        BillDenomination.FIVE, 6, 
+        BillDenomination.TWENTY, 1));
+    
+    assertEquals("$62 1 0 6 0 12", cash.toString());
+    assertTrue(cash.toString() == cash.toString());
+    assertEquals("$0 0 0 0 0 0", Cash.EMPTY.toString());
+  }
+}
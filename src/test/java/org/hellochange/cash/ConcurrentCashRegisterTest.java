@@ -0,0 +1,102 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.assertTrue;
+
+import org.hellochange.cash.change.CoalescingChangeProducerStrategy;
+import org.hellochange.cash.change.DpChangeProducerStrategy;
+import org.hellochange.cash.till.CashTill;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Conservation stress tests of the register implementations under contention, see {@link ConservationStressHarness}.
+ * 
+ * @author vladimir
+ *
+ */
+public class ConcurrentCashRegisterTest {
+  /** Initial contents of the registers. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TWENTY, 10, 
+      BillDenomination.TEN, 10, 
+      BillDenomination.FIVE, 10, 
+      BillDenomination.TWO, 10, 
+      BillDenomination.ONE, 10));
+
+  /** Harness which drives the registers. */
+  private final ConservationStressHarness harness = new ConservationStressHarness(8, 20000, 42);
+
+  /**
+   * Tests register which keeps its state in an atomic reference.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testSimpleCashRegister() throws Exception {
+    assertExercised(this.harness.run(new SimpleCashRegister(CASH)));
+  }
+
+  /**
+   * Tests register which coalesces identical concurrent change requests.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testCoalescingChange() throws Exception {
+    assertExercised(this.harness.run(new SimpleCashRegister(CASH, new CoalescingChangeProducerStrategy(new DpChangeProducerStrategy()))));
+  }
+
+  /**
+   * Tests register which keeps its state packed into an atomic long.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testPackedCashRegister() throws Exception {
+    assertExercised(this.harness.run(new PackedCashRegister(CASH)));
+  }
+
+  /**
+   * Tests packed register which gets inflated while the threads run.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testInflatingPackedCashRegister() throws Exception {
+    final Cash nearlyFull = CASH.addBills(BillDenomination.ONE, PackedCash.MAX_BILLS - 100);
+    assertExercised(this.harness.run(new PackedCashRegister(nearlyFull)));
+  }
+
+  /**
+   * Tests register which keeps a separate counter per denomination.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testShardedCashRegister() throws Exception {
+    assertExercised(this.harness.run(new ShardedCashRegister(CASH)));
+  }
+
+  /**
+   * Tests till which pulls bills from its parent: money moves between them but is neither created nor destroyed.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testCashTill() throws Exception {
+    final CashRegister safe = new SimpleCashRegister(CASH);
+    final CashTill till = new CashTill(safe, CASH);
+    assertExercised(this.harness.run(till, () -> till.getContents().add(safe.getContents())));
+  }
+
+  /**
+   * Checks that the history has both committed and rejected operations, so the register has been exercised.
+   * 
+   * @param history - history committed.
+   */
+  private static void assertExercised(final ConservationStressHarness.History history) {
+    assertTrue(history.getCommitted() > 0);
+    assertTrue(history.getRejected() > 0);
+  }
+}
@@ -0,0 +1,232 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Conservation stress test: drives a cash register with many threads of seeded random operations at once and checks 
+ * that the register neither loses nor duplicates updates. The final contents must be equal to the initial contents 
+ * plus the net effect of all the operations reported as committed, every add must return contents with the bills added 
+ * and every change must be the amount requested.
+ * <p>
+ * The seed fixes only the sequence of operations of every thread, not the interleaving of the threads, which is up to 
+ * the scheduler: which operations are rejected, the changes returned and so the final contents differ from run to run, 
+ * and a failure is not necessarily reproduced by running the same seed again.
+ * <p>
+ * These checks are order-insensitive: committed operations commute in their effect on the contents, so a lost update 
+ * or a bill removed twice shows up as a difference, but the harness does not check that the results of the individual 
+ * operations are consistent with some sequential order, i.e. it is not a linearizability checker. For instance, 
+ * a remove or change rejected while the bills were in fact available is not detected.
+ * 
+ * @author vladimir
+ *
+ */
+final class ConservationStressHarness {
+  /** Supported bill denominations. */
+  private static final BillDenomination[] DENOMINATIONS = BillDenomination.values();
+  /** Maximum amount of bills of a denomination added or removed at once. */
+  private static final int MAX_BILLS = 3;
+  /** Maximum change amount requested. */
+  private static final int MAX_CHANGE = 60;
+
+  /** Amount of threads. */
+  private final int threads;
+  /** Amount of operations per thread. */
+  private final int operationsPerThread;
+  /** Seed of the operations of the threads. */
+  private final long seed;
+
+  /**
+   * Constructor.
+   * 
+   * @param threads - amount of threads.
+   * @param operationsPerThread - amount of operations per thread.
+   * @param seed - seed of the operations of the threads; it does not fix their interleaving.
+   */
+  ConservationStressHarness(final int threads, final int operationsPerThread, final long seed) {
+    this.threads = threads;
+    this.operationsPerThread = operationsPerThread;
+    this.seed = seed;
+  }
+
+  /**
+   * Runs the operations against the register and checks that the money of the operations committed is conserved.
+   * 
+   * @param register - register to test.
+   * @return history committed.
+   * @throws Exception - in case of the failure of some thread.
+   */
+  History run(final CashRegister register) throws Exception {
+    return run(register, register::getContents);
+  }
+
+  /**
+   * Runs the operations against the register and checks that the money of the operations committed is conserved.
+   * 
+   * @param register - register to test.
+   * @param totalContents - contents all the money of the register is in, including the registers it moves the money to.
+   * @return history committed.
+   * @throws Exception - in case of the failure of some thread.
+   */
+  History run(final CashRegister register, final Supplier<Cash> totalContents) throws Exception {
+    final Cash initial = totalContents.get();
+    final CyclicBarrier start = new CyclicBarrier(this.threads);
+    final ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+    final History history = new History();
+    try {
+      final List<Future<History>> futures = new ArrayList<>();
+      for (int t = 0; t < this.threads; t++) {
+        final Random random = new Random(this.seed * 31 + t);
+        futures.add(executor.submit((Callable<History>) () -> {
+          start.await();
+          return drive(register, random);
+        }));
+      }
+      for (final Future<History> future : futures) {
+        history.merge(future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final Cash expected = initial.add(history.added).subtract(history.removed).subtract(history.changed);
+    final Cash actual = totalContents.get();
+    assertEquals("Final contents differ from the net effect of the operations committed.", expected, actual);
+    return history;
+  }
+
+  /**
+   * Drives the register with random operations of a single thread.
+   * 
+   * @param register - register to test.
+   * @param random - random of the thread.
+   * @return history committed by the thread.
+   */
+  private History drive(final CashRegister register, final Random random) {
+    final History history = new History();
+    for (int i = 0; i < this.operationsPerThread; i++) {
+      final int operation = random.nextInt(10);
+      if (operation < 4) {
+        final Cash cash = randomCash(random);
+        final Cash next = register.add(cash);
+        assertTrue("Resulting state misses the bills added.", contains(next, cash));
+        history.added = history.added.add(cash);
+        history.committed++;
+      } else if (operation < 7) {
+        final Cash cash = randomCash(random);
+        try {
+          register.remove(cash);
+          history.removed = history.removed.add(cash);
+          history.committed++;
+        } catch (NoSufficientFundsException nsfEx) {
+          history.rejected++;
+        }
+      } else {
+        final int amount = 1 + random.nextInt(MAX_CHANGE);
+        final Cash change = register.change(amount);
+        if (change == null) {
+          history.rejected++;
+        } else {
+          assertEquals("Change differs from the amount requested.", amount, change.getMoneyAmount());
+          history.changed = history.changed.add(change);
+          history.committed++;
+        }
+      }
+    }
+    return history;
+  }
+
+  /**
+   * Creates random cash of a few bills.
+   * 
+   * @param random - random.
+   * @return cash.
+   */
+  private static Cash randomCash(final Random random) {
+    final Map<BillDenomination, Integer> contents = new EnumMap<>(BillDenomination.class);
+    // mostly a single denomination, so disjoint operations are common
+    final int denominations = random.nextInt(4) == 0 ? 2 : 1;
+    for (int i = 0; i < denominations; i++) {
+      contents.put(DENOMINATIONS[random.nextInt(DENOMINATIONS.length)], 1 + random.nextInt(MAX_BILLS));
+    }
+    return Cash.newInstance(contents);
+  }
+
+  /**
+   * Checks whether the cash contains all the bills of another cash.
+   * 
+   * @param cash - cash.
+   * @param anotherCash - another cash.
+   * @return true if the cash contains all the bills.
+   */
+  private static boolean contains(final Cash cash, final Cash anotherCash) {
+    for (final BillDenomination billDenomination : DENOMINATIONS) {
+      if (cash.getBillsAmount(billDenomination) < anotherCash.getBillsAmount(billDenomination)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * History of the operations committed.
+   * 
+   * @author vladimir
+   *
+   */
+  static final class History {
+    /** Cash added. */
+    private Cash added = Cash.EMPTY;
+    /** Cash removed. */
+    private Cash removed = Cash.EMPTY;
+    /** Change removed. */
+    private Cash changed = Cash.EMPTY;
+    /** Amount of operations committed. */
+    private int committed;
+    /** Amount of operations rejected for the lack of bills. */
+    private int rejected;
+
+    /**
+     * Gets amount of operations committed.
+     * 
+     * @return amount of operations committed.
+     */
+    int getCommitted() {
+      return this.committed;
+    }
+
+    /**
+     * Gets amount of operations rejected for the lack of bills.
+     * 
+     * @return amount of operations rejected.
+     */
+    int getRejected() {
+      return this.rejected;
+    }
+
+    /**
+     * Merges history of another thread.
+     * 
+     * @param another - history of another thread.
+     */
+    private void merge(final History another) {
+      this.added = this.added.add(another.added);
+      this.removed = this.removed.add(another.removed);
+      this.changed = this.changed.add(another.changed);
+      this.committed += another.committed;
+      this.rejected += another.rejected;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * PackedCashRegister class unit test.
+ * 
+ * @author vladimir
+ *
+ */
+public class PackedCashRegisterTest {
+
+  /**
+   * Tests add/remove operations.
+   * 
+   * @throws NoSufficientFundsException
+   */
+  @Test
+  public void testAddRemove() throws NoSufficientFundsException {
+    final CashRegister register = new PackedCashRegister();
+    assertEquals(Cash.EMPTY, register.getContents());
+
+    final Cash cash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.ONE, 12, 
+        BillDenomination.FIVE, 6, 
+        BillDenomination.TWENTY, 4095));
+
+    assertEquals(cash, register.add(cash));
+    assertEquals(cash.add(cash.subtractBills(BillDenomination.TWENTY, 4095)), 
+        register.add(cash.subtractBills(BillDenomination.TWENTY, 4095)));
+    assertEquals(cash, register.remove(cash.subtractBills(BillDenomination.TWENTY, 4095)));
+    assertEquals(Cash.EMPTY, register.remove(cash));
+    assertEquals(Cash.EMPTY, register.getContents());
+  }
+
+  /**
+   * Tests restricted remove when there is no enough cash available.
+   * 
+   * @throws NoSufficientFundsException
+   */
+  @Test
+  public void testRestrictedRemove() throws NoSufficientFundsException {
+    final Cash cash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.ONE, 2, 
+        BillDenomination.TEN, 1));
+    final CashRegister register = new PackedCashRegister(cash);
+
+    try {
+      register.remove(Cash.newInstance(BillDenomination.TEN, 2));
+      fail();
+    } catch (NoSufficientFundsException nsfEx) {
+      assertEquals(BillDenomination.TEN, nsfEx.getDenomination());
+      assertEquals(2, nsfEx.getAmountToRemove());
+      assertEquals(1, nsfEx.getAmountAvailable());
+    }
+
+    try {
+      register.remove(Cash.newInstance(BillDenomination.ONE, 5000));
+      fail();
+    } catch (NoSufficientFundsException nsfEx) {
+      assertEquals(BillDenomination.ONE, nsfEx.getDenomination());
+    }
+    assertEquals(cash, register.getContents());
+  }
+
+  /**
+   * Tests change computation.
+   */
+  @Test
+  public void testChange() {
+    final Cash cash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.FIVE, 3, 
+        BillDenomination.ONE, 1));
+    final CashRegister register = new PackedCashRegister(cash);
+
+    assertNull(register.change(8));
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 1, BillDenomination.ONE, 1)), register.change(6));
+    assertEquals(Cash.newInstance(BillDenomination.FIVE, 2), register.getContents());
+  }
+
+  /**
+   * Tests the register keeps working once bills do not fit into packed state anymore.
+   * 
+   * @throws NoSufficientFundsException
+   */
+  @Test
+  public void testInflation() throws NoSufficientFundsException {
+    final Cash cash = Cash.newInstance(BillDenomination.TWO, 4000);
+    final CashRegister register = new PackedCashRegister(cash);
+
+    assertEquals(cash.add(cash), register.add(cash));
+    assertEquals(Cash.newInstance(BillDenomination.TWO, 3), register.change(6));
+    assertEquals(Cash.newInstance(BillDenomination.TWO, 7990), register.remove(Cash.newInstance(BillDenomination.TWO, 7)));
+    assertEquals(Cash.newInstance(BillDenomination.TWO, 7990), register.getContents());
+  }
+}
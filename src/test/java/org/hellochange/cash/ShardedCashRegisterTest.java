@@ -0,0 +1,68 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * ShardedCashRegister class unit test.
+ * 
+ * @author vladimir
+ *
+ */
+public class ShardedCashRegisterTest {
+  /** Initial contents of the register. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TEN, 2, 
+      BillDenomination.FIVE, 1, 
+      BillDenomination.ONE, 3));
+
+  /**
+   * Tests add/remove operations of single and several denominations.
+   * 
+   * @throws NoSufficientFundsException - not expected.
+   */
+  @Test
+  public void testAddRemove() throws NoSufficientFundsException {
+    final CashRegister register = new ShardedCashRegister();
+    assertEquals(Cash.EMPTY, register.getContents());
+
+    assertEquals(CASH, register.add(CASH));
+    assertEquals(CASH.addBills(BillDenomination.TWENTY, 2), register.add(Cash.newInstance(BillDenomination.TWENTY, 2)));
+    assertEquals(CASH, register.remove(Cash.newInstance(BillDenomination.TWENTY, 2)));
+    assertEquals(Cash.newInstance(BillDenomination.TEN, 2), 
+        register.remove(Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 1, BillDenomination.ONE, 3))));
+    assertEquals(Cash.newInstance(BillDenomination.TEN, 2), register.add(Cash.EMPTY));
+  }
+
+  /**
+   * Tests restricted remove which leaves the register unchanged.
+   */
+  @Test
+  public void testRestrictedRemove() {
+    final CashRegister register = new ShardedCashRegister(CASH);
+    try {
+      register.remove(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.ONE, 4)));
+      fail("NoSufficientFundsException is expected.");
+    } catch (NoSufficientFundsException nsfEx) {
+      assertEquals(BillDenomination.ONE, nsfEx.getDenomination());
+      assertEquals(4, nsfEx.getAmountToRemove());
+      assertEquals(3, nsfEx.getAmountAvailable());
+    }
+    assertEquals(CASH, register.getContents());
+  }
+
+  /**
+   * Tests change.
+   */
+  @Test
+  public void testChange() {
+    final CashRegister register = new ShardedCashRegister(CASH);
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.FIVE, 1, BillDenomination.ONE, 1)), 
+        register.change(16));
+    assertNull(register.change(16));
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.ONE, 2)), register.getContents());
+  }
+}
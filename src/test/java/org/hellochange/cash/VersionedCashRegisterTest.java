@@ -0,0 +1,123 @@
+package org.hellochange.cash;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests versioned snapshots of the register implementations.
+ * 
+ * @author vladimir
+ *
+ */
+public class VersionedCashRegisterTest {
+  /** Initial contents of the registers. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TWENTY, 10, 
+      BillDenomination.TEN, 10, 
+      BillDenomination.FIVE, 10, 
+      BillDenomination.TWO, 10, 
+      BillDenomination.ONE, 10));
+
+  /**
+   * Tests register which keeps its state in an atomic reference.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testSimpleCashRegister() throws Exception {
+    assertVersioned(SimpleCashRegister::new, true);
+  }
+
+  /**
+   * Tests register which keeps its state packed into an atomic long, including its inflation.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testPackedCashRegister() throws Exception {
+    assertVersioned(PackedCashRegister::new, true);
+
+    final VersionedCashRegister register = new PackedCashRegister(CASH);
+    final long version = register.getVersion();
+    register.add(Cash.newInstance(BillDenomination.ONE, PackedCash.MAX_BILLS));
+    assertTrue(register.hasChangedSince(version));
+    final CashSnapshot inflated = register.getSnapshot();
+    assertTrue(inflated.getVersion() > version);
+    assertEquals(CASH.addBills(BillDenomination.ONE, PackedCash.MAX_BILLS), inflated.getContents());
+    register.change(1);
+    assertTrue(register.getVersion() > inflated.getVersion());
+  }
+
+  /**
+   * Tests register which keeps a separate counter per denomination.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testShardedCashRegister() throws Exception {
+    assertVersioned(ShardedCashRegister::new, false);
+  }
+
+  /**
+   * Checks versions of the register sequentially and while it is updated concurrently.
+   * 
+   * @param factory - creates register with the contents passed in.
+   * @param monotonic - whether versions of the register are expected to grow monotonically or only to change.
+   * @throws Exception - not expected.
+   */
+  private static void assertVersioned(final Function<Cash, VersionedCashRegister> factory, final boolean monotonic) throws Exception {
+    final VersionedCashRegister register = factory.apply(CASH);
+    final CashSnapshot initial = register.getSnapshot();
+    assertEquals(CASH, initial.getContents());
+    assertFalse(register.hasChangedSince(initial.getVersion()));
+
+    register.add(Cash.newInstance(BillDenomination.TEN, 1));
+    assertTrue(register.hasChangedSince(initial.getVersion()));
+    final CashSnapshot added = register.getSnapshot();
+    assertTrue(monotonic ? (added.getVersion() > initial.getVersion()) : (added.getVersion() != initial.getVersion()));
+    assertEquals(CASH.addBills(BillDenomination.TEN, 1), added.getContents());
+
+    assertNull(register.change(10000));
+    assertFalse(register.hasChangedSince(added.getVersion()));
+    assertNotNull(register.change(13));
+    assertTrue(register.hasChangedSince(added.getVersion()));
+
+    // poller sees versions which never go back (where monotonic) and contents which change only together with the version
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final Thread writer = new Thread(() -> {
+      final Cash cash = Cash.newInstance(BillDenomination.FIVE, 1);
+      while (running.get()) {
+        register.add(cash);
+        try {
+          register.remove(cash);
+        } catch (NoSufficientFundsException nsfEx) {
+          throw new IllegalStateException(nsfEx);
+        }
+      }
+    });
+    writer.start();
+    try {
+      CashSnapshot last = register.getSnapshot();
+      for (int i = 0; i < 100000; i++) {
+        final CashSnapshot next = register.getSnapshot();
+        assertTrue(!monotonic || (next.getVersion() >= last.getVersion()));
+        final int extraFives = next.getContents().getBillsAmount(BillDenomination.FIVE) - CASH.getBillsAmount(BillDenomination.FIVE);
+        assertTrue((extraFives == 0) || (extraFives == 1));
+        last = next;
+      }
+    } finally {
+      running.set(false);
+      writer.join();
+    }
+
+    final CashSnapshot quiet = register.getSnapshot();
+    assertFalse(register.hasChangedSince(quiet.getVersion()));
+    assertEquals(quiet.getContents(), register.getContents());
+  }
+}
@@ -0,0 +1,58 @@
+package org.hellochange.cash.change;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests adaptive change computation strategy.
+ * 
+ * @author vladimir
+ *
+ */
+public class AdaptiveChangeProducerStrategyTest {
+
+  /**
+   * Tests the strategy prefers the faster candidate and keeps the changes exact.
+   */
+  @Test
+  public void testPrefersFasterCandidate() {
+    final ChangeProducerStrategy fast = new DpChangeProducerStrategy();
+    final ChangeProducerStrategy slow = (availableCash, changeAmount) -> {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+      return fast.computeChange(availableCash, changeAmount);
+    };
+    final AdaptiveChangeProducerStrategy strategy = new AdaptiveChangeProducerStrategy(1, TimeUnit.HOURS, 4, slow, fast);
+
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 3, BillDenomination.FIVE, 2, BillDenomination.ONE, 4));
+    for (int i = 0; i < 20; i++) {
+      final Solution solution = strategy.computeChange(availCash, 17);
+      assertEquals(17, solution.getChange().getMoneyAmount());
+      assertEquals(4, solution.getChange().getBillsAmount());
+    }
+    assertSame(fast, strategy.getPreferredCandidate(availCash, 17));
+    assertNull(strategy.computeChange(availCash, 49));
+  }
+
+  /**
+   * Tests the register created with the strategy.
+   */
+  @Test
+  public void testRegisterWithStrategy() {
+    final CashRegister cashRegister = new SimpleCashRegister(
+        Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 2, BillDenomination.TWO, 4)), new AdaptiveChangeProducerStrategy());
+
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 1, BillDenomination.TWO, 3)), cashRegister.change(26));
+    assertNull(cashRegister.change(5));
+    assertEquals(22, cashRegister.getContents().getMoneyAmount());
+  }
+}
@@ -3,6 +3,8 @@ package org.hellochange.cash.change;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.HashMap;
 import java.util.List;
@@ -260,6 +262,101 @@ public class ChangeProducerStrategyTest {
     }
   }
   
+  /**
+   * Tests that the scarcity penalty makes strategy preserve the last bill of the denomination.
+   */
+  @Test
+  public void testScarcityPenalty() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 1, BillDenomination.ONE, 10));
+    final ChangeProducerStrategy preservingStrategy = new DpChangeProducerStrategy(
+        ChangeCostFunctions.scarcityPenalty(ImmutableMap.of(BillDenomination.FIVE, 1), 10));
+    
+    assertEquals(Cash.newInstance(BillDenomination.FIVE, 1), this.strategy.computeChange(availCash, 5).getChange());
+    
+    final Solution solution = preservingStrategy.computeChange(availCash, 5);
+    assertEquals(Cash.newInstance(BillDenomination.ONE, 5), solution.getChange());
+    assertEquals(5, solution.getPriority());
+    
+    // ...but the bill is still used when there is no other way
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 1, BillDenomination.ONE, 9)), 
+        preservingStrategy.computeChange(availCash, 14).getChange());
+  }
+  
+  /**
+   * Tests weighted bills and float balancing cost functions.
+   */
+  @Test
+  public void testWeightedAndBalancedFloat() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 1, BillDenomination.TEN, 2, BillDenomination.TWO, 10));
+    
+    final ChangeProducerStrategy weightedStrategy = new DpChangeProducerStrategy(
+        ChangeCostFunctions.weighted(ImmutableMap.of(BillDenomination.TWENTY, 3)));
+    assertEquals(Cash.newInstance(BillDenomination.TEN, 2), weightedStrategy.computeChange(availCash, 20).getChange());
+    
+    final ChangeProducerStrategy balancedStrategy = new DpChangeProducerStrategy(
+        ChangeCostFunctions.balancedFloat(ImmutableMap.of(BillDenomination.TEN, 10)));
+    assertEquals(Cash.newInstance(BillDenomination.TWO, 5), balancedStrategy.computeChange(availCash, 10).getChange());
+  }
+  
+  /**
+   * Tests computing several best alternative solutions.
+   */
+  @Test
+  public void testTopSolutions() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(BillDenomination.TWO, 5, BillDenomination.ONE, 5));
+    
+    final List<Solution> solutions = this.strategy.computeChanges(availCash, 4, 5);
+    assertEquals(3, solutions.size());
+    assertEquals(Cash.newInstance(BillDenomination.TWO, 2), solutions.get(0).getChange());
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TWO, 1, BillDenomination.ONE, 2)), solutions.get(1).getChange());
+    assertEquals(Cash.newInstance(BillDenomination.ONE, 4), solutions.get(2).getChange());
+    for (final Solution solution : solutions) {
+      assertEquals(availCash, solution.getRemainingCash().add(solution.getChange()));
+    }
+    
+    final List<Solution> bestSolutions = this.strategy.computeChanges(availCash, 4, 2);
+    assertEquals(solutions.get(0).getChange(), bestSolutions.get(0).getChange());
+    assertEquals(solutions.get(1).getChange(), bestSolutions.get(1).getChange());
+    
+    assertTrue(this.strategy.computeChanges(availCash, 16, 3).isEmpty());
+  }
+  
+  /**
+   * Tests computing several best solutions when the cheapest candidates of the sub-problems run out of bills: 
+   * keeping only k candidates per sub-problem finds just 3 of the 4 cheapest changes here.
+   */
+  @Test
+  public void testTopSolutionsWithBillsRunningOut() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.TWENTY, 2, BillDenomination.TEN, 2, BillDenomination.FIVE, 1, BillDenomination.TWO, 3, BillDenomination.ONE, 3));
+    
+    final List<Solution> solutions = this.strategy.computeChanges(availCash, 34, 4);
+    assertEquals(4, solutions.size());
+    final int[] billsAmounts = { 4, 5, 8, 9 };
+    for (int i = 0; i < billsAmounts.length; i++) {
+      assertEquals(34, solutions.get(i).getChange().getMoneyAmount());
+      assertEquals(billsAmounts[i], solutions.get(i).getChange().getBillsAmount());
+    }
+  }
+  
+  /**
+   * Tests that the candidates kept are capped for large k and too large tables of candidates are rejected.
+   */
+  @Test
+  public void testTopSolutionsLimits() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(BillDenomination.TWO, 5, BillDenomination.ONE, 5));
+    assertEquals(3, this.strategy.computeChanges(availCash, 4, 100000).size());
+    assertEquals(3, this.strategy.computeChanges(availCash, 4, Integer.MAX_VALUE).size());
+
+    final Cash hugeCash = Cash.newInstance(BillDenomination.TWENTY, 200000);
+    try {
+      this.strategy.computeChanges(hugeCash, 4000000, 1000);
+      fail("Too large table of candidates expected to be rejected");
+    } catch (IllegalArgumentException iaEx) {
+      // expected
+    }
+  }
+  
   /**
    * Helper method: gets a cash object with the least possible amount of bills needed for the amount passed in.
    * 
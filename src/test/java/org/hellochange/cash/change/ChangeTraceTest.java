@@ -0,0 +1,77 @@
+package org.hellochange.cash.change;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests explaining of the change computation.
+ * 
+ * @author vladimir
+ *
+ */
+public class ChangeTraceTest {
+
+  /**
+   * Tests a change found in the table of a well stocked drawer.
+   */
+  @Test
+  public void testTableHit() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.TWENTY, 10, BillDenomination.TEN, 10, BillDenomination.FIVE, 10, 
+        BillDenomination.TWO, 10, BillDenomination.ONE, 10));
+    final ChangeTrace trace = new ChangeTrace();
+
+    final Cash change = new SimpleCashRegister(availCash).change(37, trace);
+
+    assertEquals(37, change.getMoneyAmount());
+    assertEquals(Collections.singletonList("table"), trace.getPath());
+    assertEquals(0L, trace.getCellsExplored());
+    assertEquals(0, trace.getCasRetries());
+    assertEquals(Arrays.asList("lookup", "commit"), Arrays.asList(trace.getPhaseNanos().keySet().toArray()));
+  }
+
+  /**
+   * Tests a change the drawer cannot make, which falls back to the bounded solver.
+   */
+  @Test
+  public void testTableMissAndSorry() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 1, BillDenomination.TWENTY, 1));
+    final ChangeTrace trace = new ChangeTrace();
+
+    assertNull(new SimpleCashRegister(availCash).change(10, trace));
+
+    assertEquals(Arrays.asList("table miss", "dp"), trace.getPath());
+    assertTrue(trace.getCellsExplored() > 0);
+    assertEquals(EnumSet.complementOf(EnumSet.of(BillDenomination.TWENTY)), trace.getDepletedDenominations());
+    assertEquals(Arrays.asList("setup", "fill", "extract"), Arrays.asList(trace.getPhaseNanos().keySet().toArray()));
+    assertTrue(trace.toString().startsWith("path: table miss -> dp; cells: "));
+  }
+
+  /**
+   * Tests that the traced strategy computes the same change as the untraced one.
+   */
+  @Test
+  public void testSameSolution() {
+    final ChangeProducerStrategy strategy = new DpChangeProducerStrategy();
+    final Cash availCash = Cash.newInstance(ImmutableMap.of(
+        BillDenomination.TEN, 2, BillDenomination.FIVE, 3, BillDenomination.TWO, 4));
+
+    for (int amount = 0; amount <= 50; amount++) {
+      final Solution solution = strategy.computeChange(availCash, amount);
+      final Solution tracedSolution = strategy.computeChange(availCash, amount, new ChangeTrace());
+      assertEquals((solution == null) ? null : solution.getChange(), (tracedSolution == null) ? null : tracedSolution.getChange());
+    }
+  }
+}
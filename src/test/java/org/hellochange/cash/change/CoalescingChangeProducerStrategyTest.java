@@ -0,0 +1,99 @@
+package org.hellochange.cash.change;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests coalescing change computation strategy.
+ * 
+ * @author vladimir
+ *
+ */
+public class CoalescingChangeProducerStrategyTest {
+  /** Register state of the requests. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TEN, 3, 
+      BillDenomination.FIVE, 2, 
+      BillDenomination.ONE, 4));
+
+  /**
+   * Tests that identical concurrent requests share a single computation while different ones do not.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testIdenticalRequestsCoalesced() throws Exception {
+    final int threads = 6;
+    final AtomicInteger computations = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final ChangeProducerStrategy gated = (availableCash, changeAmount) -> {
+      computations.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException iEx) {
+        Thread.currentThread().interrupt();
+      }
+      return new DpChangeProducerStrategy().computeChange(availableCash, changeAmount);
+    };
+    final CoalescingChangeProducerStrategy strategy = new CoalescingChangeProducerStrategy(gated);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+    try {
+      final List<Future<Solution>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        // equal state which is not necessarily the same instance
+        futures.add(executor.submit(() -> strategy.computeChange(CASH.addBills(BillDenomination.ONE, 0), 17)));
+      }
+      final Future<Solution> other = executor.submit(() -> strategy.computeChange(CASH, 16));
+      while ((strategy.getCoalescedCount() < threads - 1) || (computations.get() < 2)) {
+        Thread.yield();
+      }
+      release.countDown();
+
+      final Solution solution = futures.get(0).get();
+      assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.FIVE, 1, BillDenomination.ONE, 2)), 
+          solution.getChange());
+      for (final Future<Solution> future : futures) {
+        assertSame(solution, future.get());
+      }
+      assertEquals(16, other.get().getChange().getMoneyAmount());
+      assertEquals(2, computations.get());
+      assertEquals(threads - 1, strategy.getCoalescedCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that failure of the computation is reported to the request and traced requests bypass coalescing.
+   */
+  @Test
+  public void testFailureAndTrace() {
+    final ChangeProducerStrategy strategy = new CoalescingChangeProducerStrategy(new DpChangeProducerStrategy());
+    try {
+      strategy.computeChange(CASH, -1);
+      fail("IllegalArgumentException is expected.");
+    } catch (IllegalArgumentException iaEx) {
+      // expected
+    }
+    // failed computation is not kept in flight
+    assertNull(strategy.computeChange(CASH, 100));
+
+    final ChangeTrace trace = new ChangeTrace();
+    assertEquals(17, strategy.computeChange(CASH, 17, trace).getChange().getMoneyAmount());
+    assertEquals("coalescing bypass", trace.getPath().get(0));
+  }
+}
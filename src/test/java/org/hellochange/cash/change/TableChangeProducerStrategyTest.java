@@ -0,0 +1,89 @@
+package org.hellochange.cash.change;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests table based change computation strategy.
+ * 
+ * @author vladimir
+ *
+ */
+public class TableChangeProducerStrategyTest {
+  /** Strategy to test. */
+  private final ChangeProducerStrategy strategy = new TableChangeProducerStrategy();
+  /** Bounded solver to compare with. */
+  private final ChangeProducerStrategy dpStrategy = new DpChangeProducerStrategy();
+
+  /**
+   * Tests changes of a well stocked drawer, including amounts beyond the table.
+   */
+  @Test
+  public void testWellStockedDrawer() {
+    final Cash availCash = Cash.newInstance(ImmutableMap.<BillDenomination, Integer>builder()
+        .put(BillDenomination.TWENTY, 100)
+        .put(BillDenomination.TEN, 10)
+        .put(BillDenomination.FIVE, 10)
+        .put(BillDenomination.TWO, 10)
+        .put(BillDenomination.ONE, 10)
+        .build());
+
+    for (int amount = 0; amount <= 1000; amount++) {
+      assertSameCost(availCash, amount);
+    }
+
+    final Cash change = this.strategy.computeChange(availCash, 999).getChange();
+    assertEquals(Cash.newInstance(ImmutableMap.of(
+        BillDenomination.TWENTY, 49, BillDenomination.TEN, 1, BillDenomination.FIVE, 1, BillDenomination.TWO, 2)), change);
+  }
+
+  /**
+   * Tests changes of random drawers, some of them short of bills, against the bounded solver.
+   */
+  @Test
+  public void testRandomDrawers() {
+    final Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      final Map<BillDenomination, Integer> contents = new HashMap<>();
+      for (final BillDenomination billDenomination : BillDenomination.values()) {
+        contents.put(billDenomination, random.nextInt(6));
+      }
+
+      final Cash availCash = Cash.newInstance(contents);
+      for (int amount = 0; amount <= availCash.getMoneyAmount() + 1; amount++) {
+        assertSameCost(availCash, amount);
+      }
+    }
+  }
+
+  /**
+   * Checks the strategy finds a change as cheap as the bounded solver does.
+   * 
+   * @param availCash - cash available.
+   * @param amount - change amount.
+   */
+  private void assertSameCost(final Cash availCash, final int amount) {
+    final Solution expected = this.dpStrategy.computeChange(availCash, amount);
+    final Solution actual = this.strategy.computeChange(availCash, amount);
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+
+    assertNotNull(actual);
+    assertEquals(amount, actual.getChange().getMoneyAmount());
+    assertEquals(expected.getChange().getBillsAmount(), actual.getChange().getBillsAmount());
+    assertEquals(availCash, actual.getRemainingCash().add(actual.getChange()));
+  }
+}
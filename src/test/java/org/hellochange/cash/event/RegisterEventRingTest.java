@@ -0,0 +1,171 @@
+package org.hellochange.cash.event;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests register event ring.
+ * 
+ * @author vladimir
+ *
+ */
+public class RegisterEventRingTest {
+
+  /**
+   * Tests events published by the register.
+   * 
+   * @throws NoSufficientFundsException
+   */
+  @Test
+  public void testRegisterEvents() throws NoSufficientFundsException {
+    final RegisterEventRing ring = new RegisterEventRing(8);
+    final RegisterEventConsumer consumer = ring.newConsumer(false);
+    final CashRegister cashRegister = new SimpleCashRegister(Cash.EMPTY, ring);
+
+    cashRegister.add(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 2, BillDenomination.ONE, 3)));
+    cashRegister.remove(Cash.newInstance(BillDenomination.ONE, 1));
+    cashRegister.change(11);
+    assertNull(cashRegister.change(12));
+
+    final List<String> events = new ArrayList<>();
+    final List<Boolean> endsOfBatch = new ArrayList<>();
+    assertEquals(2, consumer.poll((event, endOfBatch) -> {
+      events.add(event.toString());
+      endsOfBatch.add(endOfBatch);
+    }, 2));
+    assertEquals(1, consumer.poll((event, endOfBatch) -> {
+      events.add(event.toString());
+      endsOfBatch.add(endOfBatch);
+    }, 10));
+    assertEquals(0, consumer.poll((event, endOfBatch) -> fail(), 10));
+
+    assertEquals("#0 ADD $23 0 2 0 0 3", events.get(0));
+    assertEquals("#1 REMOVE $22 0 0 0 0 -1", events.get(1));
+    assertEquals("#2 CHANGE $11 0 -1 0 0 -1", events.get(2));
+    assertEquals(false, endsOfBatch.get(0));
+    assertEquals(true, endsOfBatch.get(1));
+    assertEquals(true, endsOfBatch.get(2));
+    assertEquals(3, consumer.getSequence());
+    assertEquals(0, consumer.getLostEvents());
+  }
+
+  /**
+   * Tests slow non-gating consumer loses events overwritten.
+   */
+  @Test
+  public void testOverrun() {
+    final RegisterEventRing ring = new RegisterEventRing(4);
+    final RegisterEventConsumer consumer = ring.newConsumer(false);
+    final Cash bill = Cash.newInstance(BillDenomination.ONE, 1);
+
+    for (int i = 0; i < 10; i++) {
+      ring.publish(i, RegisterOperation.ADD, Cash.EMPTY, bill);
+    }
+
+    final List<Long> sequences = new ArrayList<>();
+    assertEquals(4, consumer.poll((event, endOfBatch) -> sequences.add(event.getSequence()), 10));
+    assertEquals(6, consumer.getLostEvents());
+    assertEquals(Long.valueOf(6), sequences.get(0));
+    assertEquals(Long.valueOf(9), sequences.get(3));
+  }
+
+  /**
+   * Tests producers wait for gating consumer instead of overwriting events.
+   * 
+   * @throws InterruptedException
+   */
+  @Test
+  public void testGating() throws InterruptedException {
+    final RegisterEventRing ring = new RegisterEventRing(4);
+    final RegisterEventConsumer consumer = ring.newConsumer(true);
+    final CashRegister cashRegister = new SimpleCashRegister(Cash.EMPTY, ring);
+    final Cash bill = Cash.newInstance(BillDenomination.TWO, 1);
+
+    final Thread producer = new Thread(() -> {
+      for (int i = 0; i < 1000; i++) {
+        cashRegister.add(bill);
+      }
+    });
+    producer.start();
+
+    final int[] bills = new int[1];
+    int polled = 0;
+    while (polled < 1000) {
+      polled += consumer.poll((event, endOfBatch) -> bills[0] += event.getDelta(BillDenomination.TWO), 3);
+    }
+    producer.join();
+
+    assertEquals(1000, bills[0]);
+    assertEquals(0, consumer.getLostEvents());
+    assertEquals(Cash.newInstance(BillDenomination.TWO, 1000), cashRegister.getContents());
+  }
+
+  /**
+   * Tests events of concurrent commits come in the order of the commits: every event applied to the state 
+   * of the events before it gives a state the register has had, with the totals of the event.
+   * 
+   * @throws InterruptedException
+   */
+  @Test
+  public void testCommitOrder() throws InterruptedException {
+    final RegisterEventRing ring = new RegisterEventRing(16);
+    final RegisterEventConsumer consumer = ring.newConsumer(true);
+    final CashRegister cashRegister = new SimpleCashRegister(Cash.EMPTY, ring);
+    final Cash bill = Cash.newInstance(BillDenomination.FIVE, 1);
+    final int threads = 4;
+    final int operations = 5000;
+
+    final AtomicInteger removed = new AtomicInteger();
+    final List<Thread> producers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final Thread producer = new Thread(() -> {
+        for (int i = 0; i < operations; i++) {
+          cashRegister.add(bill);
+          try {
+            cashRegister.remove(bill);
+            removed.incrementAndGet();
+          } catch (NoSufficientFundsException nsfEx) {
+            // another thread has taken the bill
+          }
+        }
+      });
+      producers.add(producer);
+      producer.start();
+    }
+
+    final int[] fives = new int[1];
+    final long expectedEvents = threads * operations;
+    long polled = 0;
+    while (true) {
+      // events of the producers finished are all published already
+      final boolean finished = producers.stream().noneMatch(Thread::isAlive);
+      polled += consumer.poll((event, endOfBatch) -> {
+        fives[0] += event.getDelta(BillDenomination.FIVE);
+        assertTrue("Bills went negative: " + event, fives[0] >= 0);
+        assertEquals(event.toString(), fives[0] * 5, event.getMoneyAmount());
+        assertEquals(event.toString(), fives[0], event.getBillsAmount());
+      }, 64);
+      if (finished && (polled == expectedEvents + removed.get())) {
+        break;
+      }
+    }
+    for (final Thread producer : producers) {
+      producer.join();
+    }
+
+    assertEquals(expectedEvents + removed.get(), polled);
+    assertEquals(cashRegister.getContents().getBillsAmount(BillDenomination.FIVE), fives[0]);
+  }
+}
@@ -0,0 +1,94 @@
+package org.hellochange.cash.reserve;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests two-phase change.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReservableCashRegisterTest {
+  /** Initial contents of the register. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TEN, 2, 
+      BillDenomination.FIVE, 1, 
+      BillDenomination.ONE, 3));
+
+  /** Timer wheel which is advanced by the tests explicitly. */
+  private final TimerWheel timerWheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 64);
+
+  /** Register to test. */
+  private final ReservableCashRegister cashRegister = new ReservableCashRegister(
+      new SimpleCashRegister(CASH), this.timerWheel, 1, TimeUnit.SECONDS);
+
+  /**
+   * Tests reserve and commit.
+   */
+  @Test
+  public void testCommit() {
+    final ChangeReservation reservation = this.cashRegister.reserveChange(16);
+    assertNotNull(reservation);
+    assertEquals(ReservationState.PENDING, reservation.getState());
+
+    final Cash change = Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.FIVE, 1, BillDenomination.ONE, 1));
+    assertEquals(change, reservation.getChange());
+    assertEquals(change, this.cashRegister.getReserved());
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.ONE, 2)), this.cashRegister.getContents());
+
+    // reserved bills are not available for other requests
+    assertNull(this.cashRegister.change(5));
+
+    assertTrue(reservation.commit());
+    assertFalse(reservation.release());
+    assertEquals(ReservationState.COMMITTED, reservation.getState());
+    assertEquals(Cash.EMPTY, this.cashRegister.getReserved());
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.ONE, 2)), this.cashRegister.getContents());
+  }
+
+  /**
+   * Tests reserve and release.
+   */
+  @Test
+  public void testRelease() {
+    final ChangeReservation reservation = this.cashRegister.reserveChange(20);
+    assertNotNull(reservation);
+    assertNull(this.cashRegister.reserveChange(20));
+
+    assertTrue(reservation.release());
+    assertFalse(reservation.commit());
+    assertEquals(ReservationState.RELEASED, reservation.getState());
+    assertEquals(Cash.EMPTY, this.cashRegister.getReserved());
+    assertEquals(CASH, this.cashRegister.getContents());
+  }
+
+  /**
+   * Tests expiration of pending reservations.
+   */
+  @Test
+  public void testExpiration() {
+    final ChangeReservation reservation1 = this.cashRegister.reserveChange(10);
+    final ChangeReservation reservation2 = this.cashRegister.reserveChange(10);
+    assertTrue(reservation2.commit());
+
+    this.timerWheel.advance(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+    assertEquals(ReservationState.PENDING, reservation1.getState());
+
+    this.timerWheel.advance(System.nanoTime() + TimeUnit.SECONDS.toNanos(2));
+    assertEquals(ReservationState.EXPIRED, reservation1.getState());
+    assertEquals(ReservationState.COMMITTED, reservation2.getState());
+    assertFalse(reservation1.commit());
+    assertEquals(Cash.EMPTY, this.cashRegister.getReserved());
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.FIVE, 1, BillDenomination.ONE, 3)), 
+        this.cashRegister.getContents());
+  }
+}
@@ -0,0 +1,57 @@
+package org.hellochange.cash.reserve;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests hashed timer wheel.
+ * 
+ * @author vladimir
+ *
+ */
+public class TimerWheelTest {
+
+  /**
+   * Tests that a timeout scheduled by a task run by the wheel is not put into a bucket the wheel has already passed.
+   */
+  @Test
+  public void testScheduleFromTask() {
+    final TimerWheel timerWheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8);
+    final AtomicInteger fired = new AtomicInteger();
+    timerWheel.schedule(() -> {
+      fired.incrementAndGet();
+      timerWheel.schedule(fired::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+    }, 3, TimeUnit.MILLISECONDS);
+    // taken after scheduling, so the first timeout is due in the middle of the pass below
+    final long start = System.nanoTime();
+
+    // one pass over several ticks runs the first timeout from the middle of the pass
+    timerWheel.advance(start + TimeUnit.MILLISECONDS.toNanos(6));
+    // the nested timeout is due by the wall clock, well before the wheel comes around to the bucket passed
+    timerWheel.advance(Math.max(System.nanoTime(), start + TimeUnit.MILLISECONDS.toNanos(6)) + TimeUnit.MILLISECONDS.toNanos(2));
+    assertEquals(2, fired.get());
+  }
+
+  /**
+   * Tests that timeouts fire no earlier than their deadline and only once.
+   */
+  @Test
+  public void testFireOnce() {
+    final TimerWheel timerWheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 4);
+    final AtomicInteger fired = new AtomicInteger();
+    final Runnable task = fired::incrementAndGet;
+    timerWheel.schedule(task, 10, TimeUnit.MILLISECONDS);
+    final long start = System.nanoTime();
+
+    timerWheel.advance(start + TimeUnit.MILLISECONDS.toNanos(5));
+    assertEquals(0, fired.get());
+    timerWheel.advance(start + TimeUnit.MILLISECONDS.toNanos(13));
+    assertEquals(1, fired.get());
+    timerWheel.advance(start + TimeUnit.MILLISECONDS.toNanos(30));
+    assertEquals(1, fired.get());
+  }
+}
@@ -0,0 +1,104 @@
+package org.hellochange.cash.till;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests tills of the hierarchical register.
+ * 
+ * @author vladimir
+ *
+ */
+public class CashTillTest {
+  /** Initial contents of the safe. */
+  private static final Cash SAFE_CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TWENTY, 20, 
+      BillDenomination.TEN, 20, 
+      BillDenomination.FIVE, 20, 
+      BillDenomination.TWO, 20, 
+      BillDenomination.ONE, 20));
+
+  /** Safe the tills pull from. */
+  private final CashRegister safe = new SimpleCashRegister(SAFE_CASH);
+
+  /**
+   * Tests that the till serves the change from its own float without touching the safe.
+   */
+  @Test
+  public void testLocalChange() {
+    final CashTill till = new CashTill(this.safe, Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.FIVE, 1)));
+
+    assertEquals(Cash.newInstance(BillDenomination.TEN, 1), till.change(10));
+    assertEquals(0L, till.getParentTransfers());
+    assertEquals(SAFE_CASH, this.safe.getContents());
+  }
+
+  /**
+   * Tests that the till pulls the shortfall with spare bills from the safe when it cannot make the change.
+   */
+  @Test
+  public void testChangeMiss() {
+    final CashTill till = new CashTill(this.safe, Cash.newInstance(BillDenomination.ONE, 1));
+
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 1, BillDenomination.ONE, 1)), till.change(6));
+    assertEquals(1L, till.getParentTransfers());
+    // one five is pulled for the change and five spare bills of every denomination the change needs
+    assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.FIVE, 5, BillDenomination.ONE, 5)), till.getContents());
+    assertEquals(SAFE_CASH.getMoneyAmount() + 1, this.safe.getContents().getMoneyAmount() + till.getContents().getMoneyAmount() + 6);
+
+    assertEquals(Cash.newInstance(BillDenomination.FIVE, 1), till.change(5));
+    assertEquals(1L, till.getParentTransfers());
+    assertNull(till.change(SAFE_CASH.getMoneyAmount()));
+  }
+
+  /**
+   * Tests that remove pulls the bills the till misses.
+   * 
+   * @throws NoSufficientFundsException - not expected.
+   */
+  @Test
+  public void testRemoveMiss() throws NoSufficientFundsException {
+    final CashTill till = new CashTill(this.safe);
+
+    assertEquals(Cash.EMPTY, till.remove(Cash.newInstance(BillDenomination.TWENTY, 3)));
+    assertEquals(SAFE_CASH.subtractBills(BillDenomination.TWENTY, 3), this.safe.getContents());
+
+    try {
+      till.remove(Cash.newInstance(BillDenomination.TWENTY, 18));
+      fail("NoSufficientFundsException is expected.");
+    } catch (NoSufficientFundsException nsfEx) {
+      assertEquals(BillDenomination.TWENTY, nsfEx.getDenomination());
+    }
+    // nothing is pulled for the remove which cannot be covered
+    assertEquals(SAFE_CASH.subtractBills(BillDenomination.TWENTY, 3), this.safe.getContents());
+    assertEquals(Cash.EMPTY, till.getContents());
+    assertEquals(1, till.getParentTransfers());
+  }
+
+  /**
+   * Tests topping up the tills ahead of demand.
+   */
+  @Test
+  public void testRebalance() {
+    final CashTill till = new CashTill(this.safe, Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 8, BillDenomination.ONE, 1)));
+    try (final TillRebalancer rebalancer = new TillRebalancer(2, 4, 1, TimeUnit.SECONDS)) {
+      rebalancer.register(till);
+
+      assertEquals(1, rebalancer.rebalance());
+      assertEquals(Cash.newInstance(ImmutableMap.of(
+          BillDenomination.TWENTY, 8, BillDenomination.TEN, 4, BillDenomination.FIVE, 4, BillDenomination.TWO, 4, BillDenomination.ONE, 4)), 
+          till.getContents());
+      assertEquals(0, rebalancer.rebalance());
+    }
+  }
+}
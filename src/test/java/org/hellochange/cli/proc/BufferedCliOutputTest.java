@@ -0,0 +1,83 @@
+package org.hellochange.cli.proc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests buffered CLI output.
+ * 
+ * @author vladimir
+ *
+ */
+public class BufferedCliOutputTest {
+  /** Line separator of the platform. */
+  private static final String NL = System.lineSeparator();
+
+  /**
+   * Tests decimal representation of integers, including the ones at the buffer boundary.
+   */
+  @Test
+  public void testWriteInt() {
+    final int[] values = { 0, 7, -7, 10, 99, -100, 123456789, 1000000000, 2147483647, -2147483647, Integer.MIN_VALUE };
+    final StringBuilder expected = new StringBuilder();
+    for (final int value : values) {
+      expected.append(value).append(' ');
+    }
+
+    // 11 bytes of buffer is the smallest one, every integer but the shortest ones gets flushed before
+    for (final int bufferSize : new int[] { 11, 12, 16, 8192 }) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final BufferedCliOutput output = new BufferedCliOutput(bytes, FlushPolicy.WHEN_FULL, StandardCharsets.UTF_8, bufferSize);
+      for (final int value : values) {
+        output.writeInt(value);
+        output.println("");
+      }
+      output.flush();
+      assertEquals(expected.toString().replace(" ", NL), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Tests rendering of cash and non-ASCII text.
+   */
+  @Test
+  public void testPrintln() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final BufferedCliOutput output = new BufferedCliOutput(bytes, FlushPolicy.EVERY_LINE, StandardCharsets.UTF_8, 16);
+    final Cash cash = Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 1, BillDenomination.ONE, 12));
+    output.println(cash);
+    output.println("Sorry: no change for 3 \u20ac");
+    assertEquals(cash.toString() + NL + "Sorry: no change for 3 \u20ac" + NL, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Tests when the output is written to the stream by the flush policies.
+   */
+  @Test
+  public void testFlushPolicy() {
+    for (final FlushPolicy flushPolicy : FlushPolicy.values()) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final BufferedCliOutput output = new BufferedCliOutput(bytes, flushPolicy, StandardCharsets.UTF_8, 16);
+      output.println("ok");
+      assertEquals(flushPolicy.name(), (flushPolicy == FlushPolicy.EVERY_LINE) ? 2 + NL.length() : 0, bytes.size());
+
+      output.beforeInput();
+      assertEquals(flushPolicy.name(), (flushPolicy == FlushPolicy.WHEN_FULL) ? 0 : 2 + NL.length(), bytes.size());
+
+      // overflows the buffer whatever the policy
+      output.println("0123456789abcdef");
+      assertTrue(flushPolicy.name(), bytes.size() >= 16);
+
+      output.flush();
+      assertEquals(flushPolicy.name(), "ok" + NL + "0123456789abcdef" + NL, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package org.hellochange.cli.proc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests CLI processor.
+ * 
+ * @author vladimir
+ *
+ */
+public class CliProcessorTest {
+
+  /**
+   * Tests splitting of the input lines into tokens.
+   */
+  @Test
+  public void testTokenize() {
+    assertArrayEquals(new String[0], CliProcessor.tokenize(""));
+    assertArrayEquals(new String[0], CliProcessor.tokenize(" \t "));
+    assertArrayEquals(new String[] { "show" }, CliProcessor.tokenize("show"));
+    assertArrayEquals(new String[] { "change", "37" }, CliProcessor.tokenize("  change \t37 "));
+    assertArrayEquals(new String[] { "put", "1", "2", "3", "4", "5" }, CliProcessor.tokenize("put 1 2  3 4 5"));
+  }
+}
@@ -0,0 +1,94 @@
+package org.hellochange.load;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests load test harness.
+ * 
+ * @author vladimir
+ *
+ */
+public class LoadTestTest {
+
+  /**
+   * Tests percentiles of the latency histogram.
+   */
+  @Test
+  public void testLatencyHistogram() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(500.5, histogram.getMean(), 0.001);
+    assertEquals(10, histogram.getValueAtPercentile(1));
+    // larger values are rounded up to the bucket bound within 1/16
+    final long p50 = histogram.getValueAtPercentile(50);
+    assertTrue(p50 >= 500 && p50 <= 500 + 500 / 16);
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+
+    final LatencyHistogram other = new LatencyHistogram();
+    other.record(Long.MAX_VALUE);
+    histogram.add(other);
+    assertEquals(1001, histogram.getCount());
+    assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+  }
+
+  /**
+   * Tests amount distributions stay within their ranges.
+   */
+  @Test
+  public void testAmountDistributions() {
+    final Random random = new Random(7);
+    final AmountDistribution zipf = AmountDistributions.zipf(100, 1.2);
+    final AmountDistribution logNormal = AmountDistributions.logNormal(12, 1, 200);
+    final AmountDistribution uniform = AmountDistributions.uniform(5, 10);
+    int ones = 0;
+    for (int i = 0; i < 10000; i++) {
+      final int zipfAmount = zipf.nextAmount(random);
+      assertTrue(zipfAmount >= 1 && zipfAmount <= 100);
+      ones += (zipfAmount == 1) ? 1 : 0;
+
+      final int logNormalAmount = logNormal.nextAmount(random);
+      assertTrue(logNormalAmount >= 1 && logNormalAmount <= 200);
+
+      final int uniformAmount = uniform.nextAmount(random);
+      assertTrue(uniformAmount >= 5 && uniformAmount <= 10);
+    }
+    // the most frequent amount of Zipf distribution takes a large share
+    assertTrue(ones > 2500);
+  }
+
+  /**
+   * Tests open loop run issues operations at the rate requested.
+   * 
+   * @throws InterruptedException
+   */
+  @Test
+  public void testRun() throws InterruptedException {
+    final Workload workload = new Workload(ImmutableMap.of(LoadOperation.PUT, 1, LoadOperation.CHANGE, 1, LoadOperation.SHOW, 1), 
+        AmountDistributions.uniform(1, 30), PaymentPattern.LARGE_BILLS, 2);
+    final LoadTest loadTest = new LoadTest(new SimpleCashRegister(Cash.EMPTY), workload);
+
+    final LoadReport report = loadTest.run(10000, 200, TimeUnit.MILLISECONDS, 2, 1L);
+    assertEquals(2000, report.getCount());
+    assertEquals(0, report.getLatencies(LoadOperation.TAKE).getCount());
+    assertEquals(0, report.getFailures(LoadOperation.PUT));
+    assertTrue(report.getLatencies(LoadOperation.CHANGE).getCount() > 0);
+    // change is requested from an empty drawer which only gets large bills
+    assertTrue(report.getFailures(LoadOperation.CHANGE) > 0);
+    assertTrue(report.toString().startsWith("op"));
+  }
+}
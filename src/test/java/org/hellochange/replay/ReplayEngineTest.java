@@ -0,0 +1,141 @@
+package org.hellochange.replay;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.SimpleCashRegister;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests transaction log replay.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReplayEngineTest {
+  /** Transaction log used by the tests. */
+  private static final String LOG = 
+      "# opening the till\n" +
+      "put 1 2 3 4 5 => $68 1 2 3 4 5\n" +
+      "\n" +
+      "show\r\n" +
+      "change 11 => $11 0 1 0 0 1\n" +
+      "take 1 4 3 0 0 => Sorry: Not sufficient amount of bills to complete subtraction.\n" +
+      "change 13 => $13 0 1 0 1 1\n" +
+      "give 5\n" +
+      "change -1\n" +
+      "take 0 0 0 1 1 => $54 1 1 3 3 3\n" +
+      "quit\n" +
+      "show => $41 1 0 3 2 2";
+
+  /** Temporary folder for the log. */
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Tests replay of the log with a window large enough for the whole log.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void testReplay() throws IOException {
+    assertReplay(ReplayEngine.DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Tests replay of the log with lines crossing window boundaries.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void testReplaySmallWindows() throws IOException {
+    for (int windowSize = 96; windowSize < 128; windowSize++) {
+      assertReplay(windowSize);
+    }
+  }
+
+  /**
+   * Tests replay of the log with a line longer than the window.
+   * 
+   * @throws IOException
+   */
+  @Test(expected = IOException.class)
+  public void testLineTooLong() throws IOException {
+    new ReplayEngine(new SimpleCashRegister(), ReplayListener.NONE, 16).replay(writeLog());
+  }
+
+  /**
+   * Replays the test log and checks the results.
+   * 
+   * @param windowSize - size of the log window.
+   * @throws IOException
+   */
+  private void assertReplay(final int windowSize) throws IOException {
+    final CashRegister cashRegister = new SimpleCashRegister();
+    final List<Long> mismatches = new ArrayList<>();
+    final List<Long> errors = new ArrayList<>();
+    final List<ReplayOperation> operations = new ArrayList<>();
+    final List<Long> lines = new ArrayList<>();
+
+    final ReplayReport report = new ReplayEngine(cashRegister, new ReplayListener() {
+      @Override
+      public void onResult(final long lineNumber, final ReplayOperation operation, final Cash result) {
+        operations.add(operation);
+        lines.add(lineNumber);
+      }
+
+      @Override
+      public void onMismatch(final long lineNumber, final String expected, final String actual) {
+        assertEquals("$54 1 1 3 3 3", expected);
+        mismatches.add(lineNumber);
+      }
+
+      @Override
+      public void onError(final long lineNumber, final String message) {
+        errors.add(lineNumber);
+        lines.add(lineNumber);
+      }
+    }, windowSize).replay(writeLog());
+
+    assertEquals(7, report.getRecordsAmount());
+    assertEquals(1, report.getMismatchesAmount());
+    assertEquals(2, report.getErrorsAmount());
+    assertEquals(ImmutableList.of(10L), mismatches);
+    assertEquals(ImmutableList.of(8L, 9L), errors);
+    assertEquals("Results and errors are reported in the order of the lines.", 
+        ImmutableList.of(2L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 12L), lines);
+    assertEquals(ImmutableList.of(ReplayOperation.PUT, ReplayOperation.SHOW, ReplayOperation.CHANGE, ReplayOperation.TAKE, 
+        ReplayOperation.CHANGE, ReplayOperation.TAKE, ReplayOperation.SHOW), operations);
+    assertEquals(Cash.newInstance(ImmutableMap.of(
+        BillDenomination.TWENTY, 1, 
+        BillDenomination.FIVE, 3, 
+        BillDenomination.TWO, 2, 
+        BillDenomination.ONE, 2)), cashRegister.getContents());
+  }
+
+  /**
+   * Helper method: writes the test log to temporary file.
+   * 
+   * @return path of the log.
+   * @throws IOException
+   */
+  private Path writeLog() throws IOException {
+    final Path logFile = this.folder.newFile().toPath();
+    Files.write(logFile, LOG.getBytes(StandardCharsets.US_ASCII));
+    return logFile;
+  }
+}
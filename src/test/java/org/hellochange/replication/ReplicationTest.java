@@ -0,0 +1,219 @@
+package org.hellochange.replication;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.SimpleCashRegister;
+import org.hellochange.cash.event.RegisterEventRing;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests primary/replica register replication over loopback.
+ * 
+ * @author vladimir
+ *
+ */
+public class ReplicationTest {
+
+  /**
+   * Tests replicas catching up from the snapshot and following the deltas, and failover to a replica.
+   * 
+   * @throws IOException
+   * @throws InterruptedException
+   * @throws NoSufficientFundsException
+   */
+  @Test
+  public void testReplication() throws IOException, InterruptedException, NoSufficientFundsException {
+    final Cash initial = Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 1, BillDenomination.FIVE, 2));
+    final RegisterEventRing ring = new RegisterEventRing(16);
+    final CashRegister primaryRegister = new SimpleCashRegister(initial, ring);
+
+    try (final ReplicationPrimary primary = new ReplicationPrimary(ring, initial, 0, 8)) {
+      primary.start();
+      primaryRegister.add(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 2, BillDenomination.ONE, 3)));
+      primaryRegister.remove(Cash.newInstance(BillDenomination.ONE, 1));
+
+      try (final ReplicaCashRegister early = new ReplicaCashRegister("localhost", primary.getPort())) {
+        assertTrue(early.awaitSequence(2, 10, TimeUnit.SECONDS));
+        assertEquals(primaryRegister.getContents(), early.getContents());
+
+        // more events than fit in the ring and a batch
+        for (int i = 0; i < 100; i++) {
+          primaryRegister.add(Cash.newInstance(BillDenomination.TWO, 1));
+          assertNotNull(primaryRegister.change(2));
+        }
+        assertNotNull(primaryRegister.change(37));
+
+        try (final ReplicaCashRegister late = new ReplicaCashRegister("localhost", primary.getPort())) {
+          assertTrue(early.awaitSequence(203, 10, TimeUnit.SECONDS));
+          assertTrue(late.awaitSequence(203, 10, TimeUnit.SECONDS));
+          assertEquals(primaryRegister.getContents(), early.getContents());
+          assertEquals(primaryRegister.getContents(), late.getContents());
+          assertEquals("$15 0 1 1 0 0", late.getContents().toString());
+          assertEquals(late.getSequence(), late.getSnapshot().getVersion());
+          assertFalse(late.hasChangedSince(late.getSequence()));
+
+          while (primary.getAckedSequence() < 203) {
+            Thread.sleep(1);
+          }
+          assertEquals(2, primary.getReplicasCount());
+        }
+
+        try {
+          early.change(1);
+          fail();
+        } catch (UnsupportedOperationException e) {
+          // expected
+        }
+
+        final CashRegister promoted = early.promote();
+        assertFalse(early.isConnected());
+        assertEquals(primaryRegister.getContents(), promoted.getContents());
+        assertNotNull(promoted.change(15));
+      }
+    }
+
+    // register does not wait for the closed primary
+    for (int i = 0; i < 100; i++) {
+      primaryRegister.add(Cash.newInstance(BillDenomination.ONE, 1));
+    }
+  }
+
+  /**
+   * Tests a replica which stopped reading being disconnected instead of stalling the register.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void testLaggardDisconnected() throws IOException {
+    final Cash initial = Cash.newInstance(BillDenomination.ONE, 1);
+    final RegisterEventRing ring = new RegisterEventRing(16);
+    final CashRegister register = new SimpleCashRegister(initial, ring);
+
+    try (final ReplicationPrimary primary = new ReplicationPrimary(ring, initial, 0, 1, 4);
+        final Socket stalled = new Socket()) {
+      stalled.setReceiveBufferSize(1024);
+      stalled.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort()));
+      primary.start();
+
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (primary.getReplicasCount() == 0) {
+        assertTrue(System.nanoTime() < deadline);
+        Thread.yield();
+      }
+      // never read from the stalled replica, keep the register busy until the primary drops it
+      while (primary.getReplicasCount() > 0) {
+        assertTrue(System.nanoTime() < deadline);
+        register.add(initial);
+      }
+      for (int i = 0; i < 100; i++) {
+        register.add(initial);
+      }
+    }
+  }
+
+  /**
+   * Tests the replica following the primary register changed by concurrent writers: events come in the order of the commits, 
+   * so the replica applies every frame and ends up with the contents of the primary.
+   * 
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  @Test
+  public void testConcurrentWriters() throws IOException, InterruptedException {
+    final Cash initial = Cash.newInstance(BillDenomination.FIVE, 1);
+    final RegisterEventRing ring = new RegisterEventRing(64);
+    final SimpleCashRegister primaryRegister = new SimpleCashRegister(initial, ring);
+    final Cash bill = Cash.newInstance(BillDenomination.FIVE, 1);
+
+    try (final ReplicationPrimary primary = new ReplicationPrimary(ring, initial, 0, 16);
+        final ReplicaCashRegister replica = new ReplicaCashRegister("localhost", primary.getPort())) {
+      primary.start();
+      assertTrue(replica.awaitSequence(0, 10, TimeUnit.SECONDS));
+
+      // every writer takes the bills it has put, racing with the others for them
+      final List<Thread> writers = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final Thread writer = new Thread(() -> {
+          for (int i = 0; i < 2000; i++) {
+            primaryRegister.add(bill);
+            try {
+              primaryRegister.remove(bill);
+            } catch (NoSufficientFundsException nsfEx) {
+              // another writer has taken the bill
+            }
+            primaryRegister.change(5);
+          }
+        });
+        writers.add(writer);
+        writer.start();
+      }
+      for (final Thread writer : writers) {
+        writer.join();
+      }
+
+      assertTrue(replica.awaitSequence(primaryRegister.getVersion(), 30, TimeUnit.SECONDS));
+      assertEquals(primaryRegister.getContents(), replica.getContents());
+      assertTrue(replica.isConnected());
+      assertEquals(0, replica.getResyncs());
+    }
+  }
+
+  /**
+   * Tests the replica which receives a frame leaving negative amount of bills: the frame is not applied 
+   * and the replica resyncs from a fresh snapshot instead of stopping the replication.
+   * 
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  @Test
+  public void testResyncOnInvalidFrame() throws IOException, InterruptedException {
+    final int[] billsAmounts = new int[ReplicationProtocol.DENOMINATIONS.length];
+    billsAmounts[BillDenomination.TEN.ordinal()] = 1;
+    final int[] deltas = new int[ReplicationProtocol.DENOMINATIONS.length];
+    deltas[BillDenomination.ONE.ordinal()] = -1;
+
+    try (final ServerSocket primary = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      try (final ReplicaCashRegister replica = new ReplicaCashRegister("localhost", primary.getLocalPort())) {
+        // the first connection gets a broken stream
+        try (final Socket socket = primary.accept()) {
+          final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+          ReplicationProtocol.writeSnapshot(out, 5, billsAmounts);
+          ReplicationProtocol.writeBatch(out, 6, 1, deltas);
+          out.flush();
+
+          // the replica resyncs on a new connection
+          try (final Socket resynced = primary.accept()) {
+            assertEquals(5, replica.getSequence());
+            assertEquals(Cash.newInstance(BillDenomination.TEN, 1), replica.getContents());
+
+            final DataOutputStream resyncedOut = new DataOutputStream(new BufferedOutputStream(resynced.getOutputStream()));
+            billsAmounts[BillDenomination.ONE.ordinal()] = 2;
+            ReplicationProtocol.writeSnapshot(resyncedOut, 7, billsAmounts);
+            resyncedOut.flush();
+            assertTrue(replica.awaitSequence(7, 10, TimeUnit.SECONDS));
+            assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TEN, 1, BillDenomination.ONE, 2)), replica.getContents());
+            assertTrue(replica.isConnected());
+            assertEquals(1, replica.getResyncs());
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.hellochange.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests primitive open-addressing map.
+ * 
+ * @author vladimir
+ *
+ */
+public class LongLongMapTest {
+
+  /**
+   * Tests random puts and removals against {@link HashMap}.
+   */
+  @Test
+  public void testAgainstHashMap() {
+    final Random random = new Random(42);
+    final LongLongMap map = new LongLongMap(0);
+    final Map<Long, Long> expected = new HashMap<>();
+
+    for (int i = 0; i < 200000; i++) {
+      // narrow key range, so keys collide and are removed often
+      final long key = random.nextInt(5000) - 100;
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key) != null, map.remove(key));
+      } else {
+        map.put(key, i);
+        expected.put(key, (long) i);
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    for (long key = -100; key < 4900; key++) {
+      assertEquals(expected.containsKey(key), map.containsKey(key));
+      assertEquals(expected.containsKey(key) ? expected.get(key) : -1L, map.get(key, -1L));
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package org.hellochange.service;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.Solution;
+import org.hellochange.cash.change.TableChangeProducerStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests directory of registers with idle eviction.
+ * 
+ * @author vladimir
+ *
+ */
+public class RegisterDirectoryTest {
+  /** Initial contents of the registers. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TWENTY, 1, 
+      BillDenomination.TEN, 2, 
+      BillDenomination.ONE, 5));
+
+  /** File of the store. */
+  private Path storeFile;
+
+  /**
+   * Creates the file of the store.
+   * 
+   * @throws IOException - not expected.
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.storeFile = Files.createTempFile("registers", ".store");
+  }
+
+  /**
+   * Deletes the file of the store.
+   * 
+   * @throws IOException - not expected.
+   */
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.storeFile);
+  }
+
+  /**
+   * Tests eviction of idle registers and their reload on access.
+   * 
+   * @throws IOException - not expected.
+   */
+  @Test
+  public void testEvictAndReload() throws IOException {
+    try (final RegisterDirectory directory = new RegisterDirectory(this.storeFile, 1, TimeUnit.MINUTES)) {
+      final CashRegister active = directory.create(1L, CASH);
+      final CashRegister idle = directory.create(2L, CASH);
+      assertEquals(0, directory.getResidentCount());
+
+      assertEquals(Cash.newInstance(BillDenomination.TEN, 1), idle.change(10));
+      assertEquals(CASH, active.getContents());
+      assertEquals(2, directory.getResidentCount());
+
+      assertEquals(0, directory.evictIdle(System.nanoTime()));
+      assertEquals(2, directory.evictIdle(System.nanoTime() + TimeUnit.MINUTES.toNanos(2)));
+      assertEquals(0, directory.getResidentCount());
+
+      assertEquals(CASH.getMoneyAmount() - 10, idle.getContents().getMoneyAmount());
+      assertEquals(1, directory.getResidentCount());
+      assertEquals(2, directory.getRegistersCount());
+    }
+  }
+
+  /**
+   * Tests that registers many more than the initial file size survive the directory being closed and opened again.
+   * 
+   * @throws IOException - not expected.
+   */
+  @Test
+  public void testReopen() throws IOException {
+    final int registersCount = 5000;
+    try (final RegisterDirectory directory = new RegisterDirectory(this.storeFile, 1, TimeUnit.MINUTES)) {
+      for (long id = 0; id < registersCount; id++) {
+        directory.create(id, CASH).add(Cash.newInstance(BillDenomination.FIVE, (int) id + 1));
+      }
+      assertEquals(registersCount, directory.getResidentCount());
+    }
+    assertTrue(Files.size(this.storeFile) >= registersCount * (long) SlottedCashStore.SLOT_SIZE);
+
+    try (final RegisterDirectory directory = new RegisterDirectory(this.storeFile, 1, TimeUnit.MINUTES)) {
+      assertEquals(registersCount, directory.getRegistersCount());
+      assertEquals(0, directory.getResidentCount());
+      for (long id = 0; id < registersCount; id += 7) {
+        assertEquals((int) id + 1, directory.getRegister(id).getContents().getBillsAmount(BillDenomination.FIVE));
+      }
+      try {
+        directory.create(3L, CASH);
+        fail("IllegalArgumentException is expected.");
+      } catch (IllegalArgumentException iaEx) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Tests that closing the directory waits for the operation running and stores its result.
+   * 
+   * @throws Exception - not expected.
+   */
+  @Test
+  public void testCloseDuringOperation() throws Exception {
+    final CountDownLatch computing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ChangeProducerStrategy blockingStrategy = new ChangeProducerStrategy() {
+      @Override
+      public Solution computeChange(final Cash cashAvailable, final int changeAmount) {
+        computing.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException iEx) {
+          Thread.currentThread().interrupt();
+        }
+        return new TableChangeProducerStrategy().computeChange(cashAvailable, changeAmount);
+      }
+    };
+
+    final RegisterDirectory directory = new RegisterDirectory(this.storeFile, 1, TimeUnit.MINUTES, blockingStrategy);
+    final CashRegister register = directory.create(1L, CASH);
+    final FutureTask<Cash> change = new FutureTask<>(() -> register.change(10));
+    new Thread(change).start();
+    computing.await();
+
+    final FutureTask<Void> close = new FutureTask<>(() -> {
+      directory.close();
+      return null;
+    });
+    new Thread(close).start();
+    Thread.sleep(100);
+    assertFalse(close.isDone());
+
+    release.countDown();
+    assertEquals(Cash.newInstance(BillDenomination.TEN, 1), change.get());
+    close.get();
+    try {
+      register.getContents();
+      fail("IllegalStateException is expected.");
+    } catch (IllegalStateException isEx) {
+      // expected
+    }
+
+    try (final RegisterDirectory reopened = new RegisterDirectory(this.storeFile, 1, TimeUnit.MINUTES)) {
+      assertEquals(CASH.getMoneyAmount() - 10, reopened.getRegister(1L).getContents().getMoneyAmount());
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package org.hellochange.service;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.hellochange.cash.BillDenomination;
+import org.hellochange.cash.Cash;
+import org.hellochange.cash.CashRegister;
+import org.hellochange.cash.NoSufficientFundsException;
+import org.hellochange.cash.change.ChangeProducerStrategy;
+import org.hellochange.cash.change.DpChangeProducerStrategy;
+import org.hellochange.cash.change.Solution;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests multi-tenant register service.
+ * 
+ * @author vladimir
+ *
+ */
+public class RegisterServiceTest {
+  /** Initial contents of the registers. */
+  private static final Cash CASH = Cash.newInstance(ImmutableMap.of(
+      BillDenomination.TWENTY, 1, 
+      BillDenomination.TEN, 2, 
+      BillDenomination.FIVE, 3, 
+      BillDenomination.TWO, 4, 
+      BillDenomination.ONE, 5));
+
+  /**
+   * Tests operations of a register through its view.
+   * 
+   * @throws NoSufficientFundsException - not expected.
+   */
+  @Test
+  public void testRegister() throws NoSufficientFundsException {
+    try (final RegisterService service = new RegisterService(16)) {
+      service.create("store", 42L, CASH).join();
+      final CashRegister register = service.getRegister("store", 42L);
+
+      assertEquals(CASH, register.getContents());
+      assertEquals(CASH.addBills(BillDenomination.TWENTY, 1), register.add(Cash.newInstance(BillDenomination.TWENTY, 1)));
+      assertEquals(CASH, register.remove(Cash.newInstance(BillDenomination.TWENTY, 1)));
+      assertEquals(Cash.newInstance(ImmutableMap.of(BillDenomination.TWENTY, 1, BillDenomination.TEN, 1, BillDenomination.FIVE, 1)), 
+          register.change(35));
+      assertNull(register.change(100));
+
+      try {
+        register.remove(Cash.newInstance(BillDenomination.TWENTY, 1));
+        fail("NoSufficientFundsException is expected.");
+      } catch (NoSufficientFundsException nsfEx) {
+        assertEquals(BillDenomination.TWENTY, nsfEx.getDenomination());
+      }
+
+      // register which does not fit into the packed state any more
+      final Cash big = Cash.newInstance(BillDenomination.ONE, 5000);
+      assertEquals(big.getMoneyAmount() + 33, register.add(big).getMoneyAmount());
+      assertEquals(4005, register.remove(Cash.newInstance(BillDenomination.ONE, 1000)).getBillsAmount(BillDenomination.ONE));
+      // and fits into it again
+      assertEquals(5, register.remove(Cash.newInstance(BillDenomination.ONE, 4000)).getBillsAmount(BillDenomination.ONE));
+      assertEquals(33, register.getContents().getMoneyAmount());
+    }
+  }
+
+  /**
+   * Tests many registers updated concurrently.
+   */
+  @Test
+  public void testManyRegisters() {
+    final int registersCount = 10000;
+    try (final RegisterService service = new RegisterService(8, 4, registersCount * 2, new DpChangeProducerStrategy())) {
+      final List<CompletableFuture<Cash>> futures = new ArrayList<>();
+      for (long id = 0; id < registersCount; id++) {
+        futures.add(service.create("store-" + (id % 10), id, CASH));
+      }
+      futures.forEach(CompletableFuture::join);
+      futures.clear();
+
+      for (long id = 0; id < registersCount; id++) {
+        futures.add(service.change("store-" + (id % 10), id, 3));
+        futures.add(service.add("store-" + (id % 10), id, Cash.newInstance(BillDenomination.TEN, 1)));
+      }
+      futures.forEach(CompletableFuture::join);
+
+      assertEquals(registersCount, service.getRegistersCount().join().intValue());
+      for (long id = 0; id < registersCount; id += 97) {
+        assertEquals(CASH.getMoneyAmount() + 7, service.getContents("store", id).join().getMoneyAmount());
+      }
+      try {
+        service.getContents("store", registersCount).join();
+        fail("IllegalArgumentException is expected.");
+      } catch (CompletionException cEx) {
+        assertTrue(cEx.getCause() instanceof IllegalArgumentException);
+      }
+    }
+  }
+
+  /**
+   * Tests that a tenant over its quota is rejected while another tenant is not: the operation running 
+   * holds its quota until it completes.
+   * 
+   * @throws InterruptedException - not expected.
+   */
+  @Test
+  public void testTenantQuota() throws InterruptedException {
+    final CountDownLatch computing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ChangeProducerStrategy blockingStrategy = new ChangeProducerStrategy() {
+      @Override
+      public Solution computeChange(final Cash cashAvailable, final int changeAmount) {
+        computing.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException iEx) {
+          Thread.currentThread().interrupt();
+        }
+        return new DpChangeProducerStrategy().computeChange(cashAvailable, changeAmount);
+      }
+    };
+
+    try (final RegisterService service = new RegisterService(4, 2, 2, blockingStrategy)) {
+      service.create("heavy", 1L, CASH).join();
+      service.create("light", 2L, CASH).join();
+
+      final CompletableFuture<Cash> blocked = service.change("heavy", 1L, 5);
+      computing.await();
+      final CompletableFuture<Cash> queued = service.getContents("heavy", 1L);
+      final CompletableFuture<Cash> rejected = service.getContents("heavy", 1L);
+      final CompletableFuture<Cash> light = service.getContents("light", 2L);
+
+      try {
+        rejected.join();
+        fail("RejectedExecutionException is expected.");
+      } catch (CompletionException cEx) {
+        assertTrue(cEx.getCause() instanceof RejectedExecutionException);
+      }
+      assertFalse(light.isCompletedExceptionally());
+
+      release.countDown();
+      assertEquals(Cash.newInstance(BillDenomination.FIVE, 1), blocked.join());
+      assertEquals(CASH.getMoneyAmount() - 5, queued.join().getMoneyAmount());
+      assertEquals(CASH, light.join());
+    }
+  }
+
+  /**
+   * Tests that operations are completed exceptionally once the service has been closed, so their callers do not hang.
+   */
+  @Test
+  public void testClose() {
+    final RegisterService service = new RegisterService(16);
+    service.create("store", 1L, CASH).join();
+    final CashRegister register = service.getRegister("store", 1L);
+    service.close();
+
+    try {
+      register.getContents();
+      fail("RejectedExecutionException is expected.");
+    } catch (CompletionException cEx) {
+      assertTrue(cEx.getCause() instanceof RejectedExecutionException);
+    }
+  }
+}